@@ -0,0 +1,287 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The ArenaAvlMap class represents an AVL tree whose nodes live in parallel
+ * arrays instead of separate AvlNode objects, and implements the Map
+ * interface. A node is an index: keys[i] and values[i] hold its pair, and
+ * left[i], right[i] and height[i] replace the object fields, with NIL for a
+ * missing child. Removed slots are chained through left[] into a free list
+ * and reused by later inserts.
+ *
+ * This drops the object header, the Pair and the child references per
+ * entry, and keeps the links of neighbouring nodes in the same cache lines.
+ */
+
+import java.util.Arrays;
+
+public class ArenaAvlMap<K extends Comparable<? super K>, V> implements Map<K,V> {
+
+	private static final int NIL = -1;
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int ALLOWED_IMBALANCE = 1;
+
+	private K[] keys;
+	private V[] values;
+	private int[] left;
+	private int[] right;
+	private int[] height;
+
+	private int root = NIL;
+	private int used;			// slots ever handed out, i.e. the arena's high-water mark
+	private int freeList = NIL;	// head of the chain of removed slots
+	private int keyCount;
+
+	public ArenaAvlMap() {
+
+		this(DEFAULT_CAPACITY);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ArenaAvlMap(int initialCapacity) {
+
+		int capacity = Math.max(initialCapacity, 1);
+		keys = (K[]) new Comparable[capacity];
+		values = (V[]) new Object[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		height = new int[capacity];
+	}
+
+	/**
+     * Insert a key/value pair into the tree, replacing the value if the
+     * key is already present.
+     */
+	public void put(K key, V value) {
+
+		root = insert(key, value, root);
+	}
+
+	/**
+     * Returns a value given a key, or null if the key is absent.
+     */
+	public V get(K key) {
+
+		int t = find(key);
+		return t == NIL ? null : values[t];
+	}
+
+	/**
+     * Remove the pair for key, if any. Its slot goes on the free list.
+     * @return the value that was removed, or null.
+     */
+	public V remove(K key) {
+
+		int t = find(key);
+		if(t == NIL)
+			return null;
+
+		V old = values[t];
+		root = remove(key, root);
+		return old;
+	}
+
+	/**
+     * Returns the slot holding key, or NIL.
+     */
+	private int find(K key) {
+
+		int t = root;
+
+		while(t != NIL) {
+			int compareResult = key.compareTo(keys[t]);
+
+			if(compareResult < 0)
+				t = left[t];
+			else if(compareResult > 0)
+				t = right[t];
+			else
+				return t;    // Match
+		}
+		return NIL;
+	}
+
+	/**
+     * Returns the number of pairs in the tree.
+     */
+	public int size() {
+
+		return keyCount;
+	}
+
+	/**
+     * Returns the number of node slots allocated, used or free.
+     */
+	public int capacity() {
+
+		return keys.length;
+	}
+
+	/**
+     * Takes a slot from the free list, or from the end of the arena,
+     * doubling the arrays when they are full.
+     */
+	private int allocate(K key, V value) {
+
+		int n;
+		if(freeList != NIL) {
+			n = freeList;
+			freeList = left[n];
+		}
+		else {
+			if(used == keys.length)
+				grow();
+			n = used++;
+		}
+
+		keys[n] = key;
+		values[n] = value;
+		left[n] = NIL;
+		right[n] = NIL;
+		height[n] = 0;
+		keyCount++;
+		return n;
+	}
+
+	/**
+     * Returns slot n to the free list, clearing its references so the
+     * key and value can be collected.
+     */
+	private void free(int n) {
+
+		keys[n] = null;
+		values[n] = null;
+		left[n] = freeList;
+		freeList = n;
+		keyCount--;
+	}
+
+	private void grow() {
+
+		int capacity = keys.length * 2;
+		keys = Arrays.copyOf(keys, capacity);
+		values = Arrays.copyOf(values, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		height = Arrays.copyOf(height, capacity);
+	}
+
+	private int height(int t) {
+
+		return t == NIL ? -1 : height[t];
+	}
+
+	/**
+     * Internal method to insert into a subtree.
+     * @return the new root of the subtree.
+     */
+	private int insert(K key, V value, int t) {
+
+		if(t == NIL)
+			return allocate(key, value);
+
+		int compareResult = key.compareTo(keys[t]);
+
+		if(compareResult < 0) {
+			int l = insert(key, value, left[t]);
+			left[t] = l;
+		}
+		else if(compareResult > 0) {
+			int r = insert(key, value, right[t]);
+			right[t] = r;
+		}
+		else
+			values[t] = value;
+		return balance(t);
+	}
+
+	/**
+     * Internal method to remove from a subtree.
+     * @return the new root of the subtree.
+     */
+	private int remove(K key, int t) {
+
+		if(t == NIL)
+			return t;   // Item not found; do nothing
+
+		int compareResult = key.compareTo(keys[t]);
+
+		if(compareResult < 0) {
+			int l = remove(key, left[t]);
+			left[t] = l;
+		}
+		else if(compareResult > 0) {
+			int r = remove(key, right[t]);
+			right[t] = r;
+		}
+		else if(left[t] != NIL && right[t] != NIL) { // Two children
+			int min = right[t];
+			while(left[min] != NIL)
+				min = left[min];
+			keys[t] = keys[min];
+			values[t] = values[min];
+			int r = remove(keys[t], right[t]);
+			right[t] = r;
+		}
+		else {
+			int child = (left[t] != NIL) ? left[t] : right[t];
+			free(t);
+			return child;
+		}
+		return balance(t);
+	}
+
+	// Assume t is either balanced or within one of being balanced
+	private int balance(int t) {
+
+		if(t == NIL)
+			return t;
+
+		if(height(left[t]) - height(right[t]) > ALLOWED_IMBALANCE) {
+			if(height(left[left[t]]) >= height(right[left[t]]))
+				t = rotateWithLeftChild(t);
+			else
+				t = doubleWithLeftChild(t);
+		}
+		else if(height(right[t]) - height(left[t]) > ALLOWED_IMBALANCE) {
+			if(height(right[right[t]]) >= height(left[right[t]]))
+				t = rotateWithRightChild(t);
+			else
+				t = doubleWithRightChild(t);
+		}
+
+		height[t] = Math.max(height(left[t]), height(right[t])) + 1;
+		return t;
+	}
+
+	private int rotateWithLeftChild(int k2) {
+
+		int k1 = left[k2];
+		left[k2] = right[k1];
+		right[k1] = k2;
+		height[k2] = Math.max(height(left[k2]), height(right[k2])) + 1;
+		height[k1] = Math.max(height(left[k1]), height[k2]) + 1;
+		return k1;
+	}
+
+	private int rotateWithRightChild(int k1) {
+
+		int k2 = right[k1];
+		right[k1] = left[k2];
+		left[k2] = k1;
+		height[k1] = Math.max(height(left[k1]), height(right[k1])) + 1;
+		height[k2] = Math.max(height(right[k2]), height[k1]) + 1;
+		return k2;
+	}
+
+	private int doubleWithLeftChild(int k3) {
+
+		left[k3] = rotateWithRightChild(left[k3]);
+		return rotateWithLeftChild(k3);
+	}
+
+	private int doubleWithRightChild(int k1) {
+
+		right[k1] = rotateWithLeftChild(right[k1]);
+		return rotateWithRightChild(k1);
+	}
+}
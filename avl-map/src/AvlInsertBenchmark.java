@@ -0,0 +1,86 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Times AvlMap.put and AvlMap.putNear when loading n String keys in
+ * ascending order, nearly sorted order (ascending, shuffled within windows
+ * of 16) and random order, and counts the key comparisons per insert with
+ * a counting comparator.
+ *
+ * Usage: java AvlInsertBenchmark [n] [rounds]
+ */
+
+import java.util.Comparator;
+import java.util.Random;
+
+public class AvlInsertBenchmark {
+
+	private static long compares;
+
+	private static final Comparator<String> COUNTING = (a, b) -> {
+		compares++;
+		return a.compareTo(b);
+	};
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		String[] ascending = new String[n];
+		for(int i = 0; i < n; i++)
+			ascending[i] = String.format("key%09d", i);
+
+		Random rnd = new Random(42);
+		String[] nearly = ascending.clone();
+		for(int start = 0; start < n; start += 16)
+			shuffle(nearly, start, Math.min(start + 16, n), rnd);
+		String[] random = ascending.clone();
+		shuffle(random, 0, n, rnd);
+
+		System.out.println("n = " + n + ", best of " + rounds + " rounds");
+		System.out.printf("%-10s %-8s %12s %14s%n", "order", "method", "ns/insert", "compares/insert");
+		run("ascending", ascending, rounds);
+		run("nearly", nearly, rounds);
+		run("random", random, rounds);
+	}
+
+	private static void run(String order, String[] keys, int rounds) {
+
+		for(int near = 0; near < 2; near++) {
+			long best = Long.MAX_VALUE;
+			for(int r = 0; r < rounds; r++) {
+				AvlMap<String, Integer> m = new AvlMap<String, Integer>(Comparator.naturalOrder());
+				long start = System.nanoTime();
+				if(near == 1)
+					for(String k : keys)
+						m.putNear(k, 1);
+				else
+					for(String k : keys)
+						m.put(k, 1);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+
+			// a separate counted pass, so counting does not skew the timing
+			AvlMap<String, Integer> m = new AvlMap<>(COUNTING);
+			compares = 0;
+			for(String k : keys)
+				if(near == 1)
+					m.putNear(k, 1);
+				else
+					m.put(k, 1);
+
+			System.out.printf("%-10s %-8s %12.1f %14.2f%n", order, near == 1 ? "putNear" : "put",
+					(double) best / keys.length, (double) compares / keys.length);
+		}
+	}
+
+	private static void shuffle(String[] a, int from, int to, Random rnd) {
+
+		for(int i = to - 1; i > from; i--) {
+			int j = from + rnd.nextInt(i - from + 1);
+			String tmp = a[i];
+			a[i] = a[j];
+			a[j] = tmp;
+		}
+	}
+}
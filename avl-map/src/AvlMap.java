@@ -5,7 +5,73 @@
  * and implements the Map interface.
  */
 
-public class AvlMap<K extends Comparable<K>, V> extends AvlTree<Pair<K,V>> implements Map<K,V> {
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// K's first bound is Object so that remove(K) erases to remove(Object) and
+// does not clash with AvlTree's remove(Pair), which erases to remove(Comparable).
+public class AvlMap<K extends Object & Comparable<K>, V> extends AvlTree<Pair<K,V>> implements Map<K,V>, Iterable<Pair<K,V>> {
+	
+	private final Comparator<? super K> keyComparator; // null for natural ordering
+	
+	public AvlMap() {
+		
+		keyComparator = null;
+	}
+	
+	/**
+     * Creates a map ordered by c, e.g. a specialized String comparison,
+     * instead of the natural ordering of the keys.
+     */
+	public AvlMap(Comparator<? super K> c) {
+		
+		super(AvlMap.<K,V>pairComparator(c));
+		keyComparator = c;
+	}
+	
+	/**
+     * Creates a map of sortedKeys[i] to sortedValues[i], built bottom-up
+     * in O(n) instead of by n puts.
+     * @param sortedKeys the keys in strictly increasing order.
+     * @param sortedValues their values.
+     * @throws IllegalArgumentException if the arrays differ in length or
+     * the keys are not strictly increasing.
+     */
+	public static <K extends Object & Comparable<K>, V> AvlMap<K,V> fromSorted(K[] sortedKeys, V[] sortedValues) {
+		
+		return fromSorted(sortedKeys, sortedValues, null);
+	}
+	
+	/**
+     * Same as fromSorted(sortedKeys, sortedValues), for keys sorted by c.
+     * @param c the ordering of the keys, or null for the natural ordering.
+     */
+	public static <K extends Object & Comparable<K>, V> AvlMap<K,V> fromSorted(K[] sortedKeys, V[] sortedValues,
+			Comparator<? super K> c) {
+		
+		if(sortedKeys.length != sortedValues.length)
+			throw new IllegalArgumentException(sortedKeys.length + " keys but " + sortedValues.length + " values");
+		
+		ArrayList<Pair<K,V>> pairs = new ArrayList<>(sortedKeys.length);
+		for(int i = 0; i < sortedKeys.length; i++)
+			pairs.add(new Pair<K,V>(sortedKeys[i], sortedValues[i]));
+		
+		AvlMap<K,V> m = new AvlMap<K,V>(c);
+		m.buildFromSorted(pairs);
+		return m;
+	}
+	
+	private static <K extends Object & Comparable<K>, V> Comparator<Pair<K,V>> pairComparator(Comparator<? super K> c) {
+		
+		if(c == null)
+			return null;
+		return (lhs, rhs) -> c.compare(lhs.key, rhs.key);
+	}
 	
 	/**
      * Insert a key/value pair into the tree.
@@ -15,32 +81,286 @@ public class AvlMap<K extends Comparable<K>, V> extends AvlTree<Pair<K,V>> imple
 		insert(new Pair<K,V>(key,value));
 	}
 	
+	/**
+     * Insert a key/value pair, searching from the position of the last
+     * insert instead of from the root. Cheaper than put when keys arrive
+     * in ascending or nearly sorted order.
+     */
+	public void putNear(K key, V value) {
+		
+		insertNear(new Pair<K,V>(key,value));
+	}
+	
 	/**
      * Returns a value given a key for a key/value pair.
+     * Walks down from the root comparing against each node's key,
+     * so a lookup allocates nothing.
      */
 	public V get(K key) {
 		
-		AvlNode<Pair<K,V>> found = find(new Pair<K, V>(key, null), root);
-        if (found == null)
-            return null;
-        return found.element.value;
+		AvlNode<Pair<K,V>> t = root;
+		int depth = 0;
+		
+		while(t != null) {
+			depth++;
+			int compareResult = compareKeys(key, t.element.key);
+			
+			if(compareResult < 0)
+				t = t.left;
+			else if(compareResult > 0)
+				t = t.right;
+			else
+				break;    // Match
+		}
+		
+		if(counters != null)
+			counters.searched(depth);
+		return t == null ? null : t.element.value;
+	}
+	
+	/**
+     * Removes the pair for key in a single pass down the tree.
+     * @return the value that was removed, or null.
+     */
+	public V remove(K key) {
+		
+		Pair<K,V> removed = removeItem(new Pair<K,V>(key, null));
+		return removed == null ? null : removed.value;
+	}
+	
+	/**
+     * Inserts the pair unless key is present, locating the node once.
+     * @return the value already present, or null if the pair was inserted.
+     */
+	public V putIfAbsent(K key, V value) {
+		
+		Pair<K,V> pair = new Pair<K,V>(key, value);
+		Pair<K,V> found = findOrInsert(pair);
+		return found == pair ? null : found.value;
 	}
 	
 	/**
-     * Finds an item in a subtree by traversing the tree.
+     * Returns the value for key, inserting mappingFunction(key) if the key
+     * is absent. The node is located or created once; it is only removed
+     * again if the function returns null or throws.
      */
-	private AvlNode<Pair<K,V>> find(Pair<K,V> x, AvlNode<Pair<K,V>> t) {
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		
+		Pair<K,V> pair = new Pair<K,V>(key, null);
+		Pair<K,V> found = findOrInsert(pair);
+		if(found != pair)
+			return found.value;
+		
+		V value = null;
+		try {
+			value = mappingFunction.apply(key);
+		}
+		finally {
+			if(value == null)
+				removeItem(pair);
+		}
+		pair.value = value;
+		return value;
+	}
+	
+	/**
+     * Inserts value if key is absent, otherwise combines the old value with
+     * it, locating the node once. The pair is removed if the result is null.
+     * @return the new value, or null if the pair was removed.
+     */
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		
+		Pair<K,V> pair = new Pair<K,V>(key, value);
+		Pair<K,V> found = findOrInsert(pair);
+		if(found == pair)
+			return value;
+		
+		V newValue = remappingFunction.apply(found.value, value);
+		if(newValue == null)
+			removeItem(found);
+		else
+			found.value = newValue;
+		return newValue;
+	}
+	
+	/**
+     * Returns the number of keys smaller than key, in O(log n).
+     */
+	public int rankOf(K key) {
+		
+		int rank = 0;
+		AvlNode<Pair<K,V>> t = root;
 		
-        if(t == null)
-            return null; 
-            
-        int compareResult = x.compareTo(t.element);
-            
-        if(compareResult < 0)
-            return find(x, t.left);
-        else if(compareResult > 0)
-            return find(x, t.right);
-        else
-            return t;    // Match
-    }
-}
\ No newline at end of file
+		while(t != null) {
+			int compareResult = compareKeys(key, t.element.key);
+			
+			if(compareResult < 0)
+				t = t.left;
+			else if(compareResult > 0) {
+				rank += size(t.left) + 1;
+				t = t.right;
+			}
+			else
+				return rank + size(t.left);
+		}
+		return rank;
+	}
+	
+	/**
+     * Returns the key of rank k (the k-th smallest, counting from 0),
+     * in O(log n).
+     */
+	public K selectKey(int k) {
+		
+		return select(k).key;
+	}
+	
+	/**
+     * Returns the largest key less than or equal to key, or null.
+     */
+	public K floorKey(K key) {
+		
+		K best = null;
+		AvlNode<Pair<K,V>> t = root;
+		
+		while(t != null) {
+			int compareResult = compareKeys(key, t.element.key);
+			
+			if(compareResult < 0)
+				t = t.left;
+			else if(compareResult > 0) {
+				best = t.element.key;
+				t = t.right;
+			}
+			else
+				return t.element.key;
+		}
+		return best;
+	}
+	
+	/**
+     * Returns the smallest key greater than or equal to key, or null.
+     */
+	public K ceilingKey(K key) {
+		
+		K best = null;
+		AvlNode<Pair<K,V>> t = root;
+		
+		while(t != null) {
+			int compareResult = compareKeys(key, t.element.key);
+			
+			if(compareResult > 0)
+				t = t.right;
+			else if(compareResult < 0) {
+				best = t.element.key;
+				t = t.left;
+			}
+			else
+				return t.element.key;
+		}
+		return best;
+	}
+	
+	/**
+     * Iterates every pair in ascending key order.
+     */
+	public Iterator<Pair<K,V>> iterator() {
+		
+		return new RangeIterator(null, null);
+	}
+	
+	/**
+     * Returns the pairs with lo <= key < hi in ascending key order.
+     * Iteration is lazy: it only descends into subtrees that can hold
+     * keys in range, so a full scan costs O(log n + m) for m results.
+     */
+	public Iterable<Pair<K,V>> subMap(K lo, K hi) {
+		
+		return () -> new RangeIterator(lo, hi);
+	}
+	
+	/**
+     * Returns an immutable copy of the map laid out for fast searching
+     * (see FrozenAvlMap), built in O(n) from an in-order walk. The map
+     * itself is not changed and can be discarded.
+     */
+	@SuppressWarnings("unchecked")
+	public FrozenAvlMap<K,V> freeze() {
+		
+		K[] keys = (K[]) new Comparable[size()];
+		V[] values = (V[]) new Object[size()];
+		int[] next = { 0 };
+		inOrder(p -> {
+			keys[next[0]] = p.key;
+			values[next[0]++] = p.value;
+		});
+		return new FrozenAvlMap<K,V>(keys, values, keyComparator);
+	}
+	
+	/**
+     * Splits the map around key. Keys smaller than key stay in this map,
+     * keys greater than or equal to key are moved into the returned map.
+     */
+	public AvlMap<K,V> splitAt(K key) {
+		
+		return (AvlMap<K,V>) split(new Pair<K,V>(key, null));
+	}
+	
+	/**
+     * Creates an empty map with the same ordering, so that the tree
+     * operations that build new trees return an AvlMap.
+     */
+	@Override
+	protected AvlTree<Pair<K,V>> newTree() {
+		
+		return new AvlMap<K,V>(keyComparator);
+	}
+	
+	private int compareKeys(K lhs, K rhs) {
+		
+		return keyComparator == null ? lhs.compareTo(rhs) : keyComparator.compare(lhs, rhs);
+	}
+	
+	/**
+     * In-order iterator over a key range. The stack holds the nodes in
+     * range whose left subtree has been visited but which have not been
+     * returned yet. A null bound leaves that end of the range open.
+     */
+	private class RangeIterator implements Iterator<Pair<K,V>> {
+		
+		private final K hi;
+		private final ArrayDeque<AvlNode<Pair<K,V>>> stack = new ArrayDeque<>();
+		
+		RangeIterator(K lo, K hi) {
+			
+			this.hi = hi;
+			
+			// push the path to the first key >= lo, skipping smaller subtrees
+			AvlNode<Pair<K,V>> t = root;
+			while(t != null) {
+				if(lo == null || compareKeys(t.element.key, lo) >= 0) {
+					stack.push(t);
+					t = t.left;
+				}
+				else
+					t = t.right;
+			}
+		}
+		
+		public boolean hasNext() {
+			
+			return !stack.isEmpty() && (hi == null || compareKeys(stack.peek().element.key, hi) < 0);
+		}
+		
+		public Pair<K,V> next() {
+			
+			if(!hasNext())
+				throw new NoSuchElementException();
+			
+			AvlNode<Pair<K,V>> current = stack.pop();
+			for(AvlNode<Pair<K,V>> t = current.right; t != null; t = t.left)
+				stack.push(t);
+			return current.element;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Measures the latency and the heap allocated per AvlMap.get, with the
+ * natural String ordering and with a comparator.
+ * Usage: java AvlMapBenchmark [n] [lookups]
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+
+public class AvlMapBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+
+		String[] keys = new String[n];
+		for(int i = 0; i < n; i++)
+			keys[i] = "key" + i;
+
+		System.out.println("n = " + n + ", " + lookups + " lookups");
+		System.out.printf("%-20s %12s %14s%n", "ordering", "ns/get", "bytes/get");
+
+		run("natural", new AvlMap<String, Integer>(), keys, lookups);
+		run("comparator", new AvlMap<String, Integer>(Comparator.naturalOrder()), keys, lookups);
+	}
+
+	private static void run(String name, AvlMap<String, Integer> m, String[] keys, int lookups) {
+
+		Integer value = 1;
+		for(String k : keys)
+			m.put(k, value);
+
+		// warm up so the measured loop runs compiled code
+		lookupLoop(m, keys, lookups);
+
+		long bytesBefore = allocatedBytes();
+		long start = System.nanoTime();
+		lookupLoop(m, keys, lookups);
+		long elapsed = System.nanoTime() - start;
+		long bytes = allocatedBytes() - bytesBefore;
+
+		System.out.printf("%-20s %12.1f %14.3f%n", name,
+				(double) elapsed / lookups, (double) bytes / lookups);
+	}
+
+	private static void lookupLoop(AvlMap<String, Integer> m, String[] keys, int lookups) {
+
+		// stride through the keys so consecutive lookups take different paths
+		int index = 0;
+		for(int i = 0; i < lookups; i++) {
+			sink += m.get(keys[index]);
+			index += 7919;
+			if(index >= keys.length)
+				index -= keys.length;
+		}
+	}
+
+	/**
+     * Returns the bytes allocated so far by the current thread, as
+     * reported by the HotSpot thread MXBean.
+     */
+	private static long allocatedBytes() {
+
+		com.sun.management.ThreadMXBean bean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
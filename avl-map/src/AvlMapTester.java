@@ -9,5 +9,38 @@ public class AvlMapTester {
 		m.put("frog", 6);
 	
 		System.out.println(m.get("cat"));
+		
+		// order statistics and range queries
+		m.put("ant", 1);
+		m.put("dog", 4);
+		m.put("eel", 5);
+		System.out.println("rank of dog: " + m.rankOf("dog"));
+		System.out.println("key of rank 3: " + m.selectKey(3));
+		System.out.println("floor of cow: " + m.floorKey("cow"));
+		System.out.println("ceiling of cow: " + m.ceilingKey("cow"));
+		
+		System.out.print("keys in [b, f): ");
+		for(Pair<String, Integer> p : m.subMap("b", "f"))
+			System.out.print(p.key + " ");
+		System.out.println();
+		
+		// a null bound leaves that end of the range open
+		BPlusTreeMap<String, Integer> b = new BPlusTreeMap<String, Integer>();
+		for(Pair<String, Integer> p : m)
+			b.put(p.key, p.value);
+		System.out.print("keys below dog: ");
+		for(Pair<String, Integer> p : m.subMap(null, "dog"))
+			System.out.print(p.key + " ");
+		System.out.print("| B+-tree: ");
+		for(Pair<String, Integer> p : b.subMap(null, "dog"))
+			System.out.print(p.key + " ");
+		System.out.println();
+		System.out.print("keys from dog: ");
+		for(Pair<String, Integer> p : m.subMap("dog", null))
+			System.out.print(p.key + " ");
+		System.out.print("| B+-tree: ");
+		for(Pair<String, Integer> p : b.subMap("dog", null))
+			System.out.print(p.key + " ");
+		System.out.println();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Checks the bulk operations of AvlTree, through AvlMap, against TreeMap:
+ * AvlMap.fromSorted, splitAt, join, union, parallelUnion and intersection,
+ * on random maps of very different and very similar sizes. Where both
+ * maps hold a key, union and intersection must keep the argument's value.
+ * After every operation each resulting tree is walked to check the AVL
+ * invariants: keys in order, heights and subtree sizes consistent with the
+ * children, balance within 1, and every child pointing back at its parent.
+ *
+ * Usage: java AvlSetOpsTester [trials] [maxSize]
+ */
+
+import java.util.Random;
+import java.util.TreeMap;
+
+public class AvlSetOpsTester {
+
+	private static int broken;	// trees found violating an invariant
+
+	public static void main(String[] args) {
+
+		int trials = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		int maxSize = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		Random rnd = new Random(42);
+		int[] wrong = new int[6];
+		String[] names = { "fromSorted", "splitAt", "join", "union", "parallelUnion", "intersection" };
+
+		for(int t = 0; t < trials; t++) {
+			// sizes from empty to maxSize, often far apart; key ranges that
+			// overlap a little or a lot
+			int m = size(rnd, maxSize), n = size(rnd, maxSize);
+			int range = 1 + Math.max(m, n) * (1 + rnd.nextInt(4));
+			TreeMap<Integer, String> a = randomMap(rnd, m, range, "a");
+			TreeMap<Integer, String> b = randomMap(rnd, n, range, "b");
+
+			AvlMap<Integer, String> x = build(a);
+			if(!same(x, a))
+				wrong[0]++;
+
+			// split at a random key, then join the halves back
+			int at = rnd.nextInt(range + 2) - 1;
+			AvlMap<Integer, String> high = x.splitAt(at);
+			if(!same(x, a.headMap(at, false)) || !same(high, a.tailMap(at, true)))
+				wrong[1]++;
+			x.join(high);
+			if(!same(x, a) || !high.isEmpty())
+				wrong[2]++;
+
+			TreeMap<Integer, String> union = new TreeMap<>(a);
+			union.putAll(b);	// b's values win
+			x = build(a);
+			AvlMap<Integer, String> y = build(b);
+			x.union(y);
+			if(!same(x, union) || !y.isEmpty())
+				wrong[3]++;
+
+			x = build(a);
+			y = build(b);
+			x.parallelUnion(y);
+			if(!same(x, union) || !y.isEmpty())
+				wrong[4]++;
+
+			TreeMap<Integer, String> both = new TreeMap<>(b);
+			both.keySet().retainAll(a.keySet());
+			x = build(a);
+			y = build(b);
+			x.intersection(y);
+			if(!same(x, both) || !y.isEmpty())
+				wrong[5]++;
+
+			// the trees must still take ordinary writes afterwards
+			for(int i = 0; i < 100; i++) {
+				int k = rnd.nextInt(range);
+				if(rnd.nextBoolean())
+					x.putNear(k, "c" + k);
+				else
+					x.put(k, "c" + k);
+				both.put(k, "c" + k);
+			}
+			if(!same(x, both))
+				wrong[5]++;
+		}
+
+		for(int i = 0; i < names.length; i++)
+			System.out.printf("%-14s %d trials: %s%n", names[i], trials,
+					wrong[i] == 0 ? "ok" : wrong[i] + " wrong results");
+		System.out.println("trees breaking an AVL invariant: " + broken);
+
+		// a large union takes the forking path of parallelUnion
+		TreeMap<Integer, String> a = randomMap(rnd, 200000, 1000000, "a");
+		TreeMap<Integer, String> b = randomMap(rnd, 200000, 1000000, "b");
+		AvlMap<Integer, String> x = build(a), y = build(b);
+		x.parallelUnion(y);
+		a.putAll(b);
+		System.out.println("parallelUnion of two 200000-key maps: " + (same(x, a) ? "ok" : "WRONG"));
+
+		try {
+			x = build(a);
+			x.join(build(a));
+			System.out.println("join of overlapping maps: no exception");
+		}
+		catch(IllegalArgumentException e) {
+			System.out.println("join of overlapping maps: " + e.getMessage());
+		}
+		try {
+			AvlMap.fromSorted(new Integer[] { 1, 3, 2 }, new String[] { "a", "b", "c" });
+			System.out.println("fromSorted of unsorted keys: no exception");
+		}
+		catch(IllegalArgumentException e) {
+			System.out.println("fromSorted of unsorted keys: " + e.getMessage());
+		}
+		try {
+			AvlMap.fromSorted(new Integer[] { 1, 2 }, new String[] { "a" });
+			System.out.println("fromSorted with too few values: no exception");
+		}
+		catch(IllegalArgumentException e) {
+			System.out.println("fromSorted with too few values: " + e.getMessage());
+		}
+	}
+
+	/**
+     * A size up to max, one time in four 0 or 1, otherwise spread over
+     * orders of magnitude.
+     */
+	private static int size(Random rnd, int max) {
+
+		if(rnd.nextInt(4) == 0)
+			return rnd.nextInt(2);
+		return (int) Math.pow(max, rnd.nextDouble());
+	}
+
+	private static TreeMap<Integer, String> randomMap(Random rnd, int n, int range, String tag) {
+
+		TreeMap<Integer, String> t = new TreeMap<>();
+		while(t.size() < Math.min(n, range)) {
+			int k = rnd.nextInt(range);
+			t.put(k, tag + k);
+		}
+		return t;
+	}
+
+	private static AvlMap<Integer, String> build(TreeMap<Integer, String> t) {
+
+		return AvlMap.fromSorted(t.keySet().toArray(new Integer[0]), t.values().toArray(new String[0]));
+	}
+
+	/**
+     * Whether m holds exactly the pairs of expected, in order, with its
+     * invariants intact.
+     */
+	private static boolean same(AvlMap<Integer, String> m, java.util.Map<Integer, String> expected) {
+
+		if(check(m.root, null) < -1)
+			broken++;
+		if(m.size() != expected.size())
+			return false;
+		java.util.Iterator<java.util.Map.Entry<Integer, String>> it = expected.entrySet().iterator();
+		for(Pair<Integer, String> p : m) {
+			java.util.Map.Entry<Integer, String> e = it.next();
+			if(!p.key.equals(e.getKey()) || !p.value.equals(e.getValue()))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+     * Checks the subtree t, whose parent should be parent.
+     * @return its height, or -2 if any invariant fails.
+     */
+	private static int check(AvlTree.AvlNode<Pair<Integer, String>> t, AvlTree.AvlNode<Pair<Integer, String>> parent) {
+
+		if(t == null)
+			return -1;
+		int hl = check(t.left, t), hr = check(t.right, t);
+		if(hl < -1 || hr < -1 || t.parent != parent || Math.abs(hl - hr) > 1
+				|| t.height != Math.max(hl, hr) + 1
+				|| t.size != AvlTree.size(t.left) + AvlTree.size(t.right) + 1
+				|| (t.left != null && t.left.element.key >= t.element.key)
+				|| (t.right != null && t.right.element.key <= t.element.key))
+			return -2;
+		return t.height;
+	}
+}
@@ -1,5 +1,6 @@
 // ******************PUBLIC OPERATIONS*********************
 // void insert( x )       --> Insert x
+// void insertNear( x )   --> Insert x, searching from the last position
 // void remove( x )       --> Remove x (unimplemented)
 // boolean contains( x )  --> Return true if x is present
 // boolean remove( x )    --> Return true if x was present
@@ -8,27 +9,91 @@
 // boolean isEmpty( )     --> Return true if empty; else false
 // void makeEmpty( )      --> Remove all items
 // void printTree( )      --> Print tree in sorted order
+// int size( )            --> Return number of items
+// int rank( x )          --> Return number of items smaller than x
+// Comparable select( k ) --> Return item of rank k
+// Comparable floor( x )  --> Return largest item <= x, or null
+// Comparable ceiling( x )--> Return smallest item >= x, or null
+// void buildFromSorted( l )  --> Replace contents by sorted list l in O(n)
+// AvlTree split( x )     --> Move items >= x into a new tree
+// void join( t )         --> Append tree t, whose items are all larger
+// void union( t )        --> Add all items of t; t is emptied
+// void parallelUnion( t )--> Same as union, using fork-join
+// void intersection( t ) --> Keep only items also in t; t is emptied
+// void inOrder( f )      --> Apply f to every item in sorted order
+// void enableMetrics( )  --> Start counting rotations and search depths
+// Map metrics( )         --> Return rotation counts, height, average search depth
 
-public class AvlTree<AnyType extends Comparable<? super AnyType>>
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+public class AvlTree<AnyType extends Comparable<? super AnyType>> implements MetricSource
 {
     /** The tree root. */
 	protected AvlNode<AnyType> root;
 	
+    /** Ordering of the items, or null for their natural ordering. */
+    private final Comparator<? super AnyType> cmp;
+    
+    /** Operation counters, or null while metrics are disabled. */
+    protected TreeCounters counters;
+    
+    /** Node last inserted or found by a write, where insertNear starts. */
+    private AvlNode<AnyType> finger;
+	
     /**
      * Construct the tree.
      */
     public AvlTree()
+    {
+        this(null);
+    }
+
+    /**
+     * Construct the tree, ordered by c instead of the natural ordering.
+     * @param c the comparator, or null for the natural ordering.
+     */
+    public AvlTree(Comparator<? super AnyType> c)
     {
         root = null;
+        cmp = c;
     }
 
     /**
-     * Insert into the tree; duplicates are ignored.
+     * Compare two items using the comparator if there is one,
+     * otherwise using compareTo.
+     */
+    private int myCompare(AnyType lhs, AnyType rhs)
+    {
+        if(cmp != null)
+            return cmp.compare(lhs, rhs);
+        else
+            return lhs.compareTo(rhs);
+    }
+
+    /**
+     * Insert into the tree; an equal item is replaced by x.
      * @param x the item to insert.
      */
     public void insert(AnyType x)
     {
-        root = insert(x, root);
+        insertNode(x, root).element = x;
+    }
+
+    /**
+     * Insert into the tree like insert, but start the search from the
+     * position of the last insert instead of from the root. For ascending
+     * or clustered items this compares x against O(1) items on average
+     * instead of O(log n).
+     * @param x the item to insert.
+     */
+    public void insertNear(AnyType x)
+    {
+        insertNode(x, fingerStart(x)).element = x;
     }
 
     /**
@@ -37,35 +102,203 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
      */
     public void remove(AnyType x)
     {
-        root = remove(x, root);
+        removeItem(x);
     }
 
-       
     /**
-     * Internal method to remove from a subtree.
+     * Remove from the tree in a single pass, returning what was removed.
      * @param x the item to remove.
-     * @param t the node that roots the subtree.
-     * @return the new root of the subtree.
+     * @return the item of the tree equal to x, or null if x was not found.
      */
-    private AvlNode<AnyType> remove(AnyType x, AvlNode<AnyType> t)
+    protected AnyType removeItem(AnyType x)
     {
+        AvlNode<AnyType> t = root;
+        while(t != null)
+        {
+            int compareResult = myCompare(x, t.element);
+
+            if(compareResult < 0)
+                t = t.left;
+            else if(compareResult > 0)
+                t = t.right;
+            else
+                break;    // Match
+        }
         if(t == null)
-            return t;   // Item not found; do nothing
-            
-        int compareResult = x.compareTo(t.element);
-            
-        if(compareResult < 0)
-            t.left = remove(x, t.left);
-        else if(compareResult > 0)
-            t.right = remove(x, t.right);
-        else if(t.left != null && t.right != null) // Two children
+            return null;   // Item not found; do nothing
+
+        AnyType removed = t.element;
+        if(t.left != null && t.right != null) // Two children
+        {
+            AvlNode<AnyType> min = findMin(t.right);
+            t.element = min.element;
+            t = min;
+        }
+
+        // t has at most one child, which takes its place
+        AvlNode<AnyType> parent = t.parent;
+        replaceChild(parent, t, (t.left != null) ? t.left : t.right);
+        retrace(parent, -1);
+        finger = (parent != null) ? parent : root;
+        return removed;
+    }
+
+    /**
+     * Find the item equal to x.
+     * @param x the item to search for.
+     * @return the item of the tree equal to x, or null if x was not found.
+     */
+    protected AnyType find(AnyType x)
+    {
+        AvlNode<AnyType> t = root;
+        while(t != null)
+        {
+            int compareResult = myCompare(x, t.element);
+
+            if(compareResult < 0)
+                t = t.left;
+            else if(compareResult > 0)
+                t = t.right;
+            else
+                return t.element;    // Match
+        }
+        return null;
+    }
+
+    /**
+     * Apply action to every item in sorted order.
+     */
+    public void inOrder(Consumer<? super AnyType> action)
+    {
+        inOrder(root, action);
+    }
+
+    /**
+     * Find the item equal to x, inserting x if there is none, in a single
+     * pass down the tree. An existing item is not replaced.
+     * @param x the item to find or insert.
+     * @return the item now in the tree; x itself if it was inserted.
+     */
+    protected AnyType findOrInsert(AnyType x)
+    {
+        return insertNode(x, root).element;
+    }
+
+    /**
+     * Internal method to find x below t, or to add a leaf for it, without
+     * recursion. t must be the root or a node whose subtree would hold x.
+     * @return the node equal to x, or the new leaf holding x.
+     */
+    private AvlNode<AnyType> insertNode(AnyType x, AvlNode<AnyType> t)
+    {
+        if(t == null)
+        {
+            replaceChild(null, null, new AvlNode<>(x, null, null));
+            return finger = root;
+        }
+
+        AvlNode<AnyType> leaf;
+        while(true)
         {
-            t.element = findMin(t.right).element;
-            t.right = remove(t.element, t.right);
+            int compareResult = myCompare(x, t.element);
+
+            if(compareResult < 0)
+            {
+                if(t.left == null)
+                {
+                    leaf = t.left = new AvlNode<>(x, null, null);
+                    break;
+                }
+                t = t.left;
+            }
+            else if(compareResult > 0)
+            {
+                if(t.right == null)
+                {
+                    leaf = t.right = new AvlNode<>(x, null, null);
+                    break;
+                }
+                t = t.right;
+            }
+            else
+                return finger = t;    // Match; nothing changed
         }
+
+        leaf.parent = t;
+        retrace(t, 1);
+        return finger = leaf;
+    }
+
+    /**
+     * Internal method to walk from t up to the root after a node was added
+     * below t (delta = 1) or removed (delta = -1). Nodes are rebalanced only
+     * while subtree heights keep changing: once a subtree has the height it
+     * had before, no ancestor can be out of balance, and above it only the
+     * subtree sizes are adjusted.
+     */
+    private void retrace(AvlNode<AnyType> t, int delta)
+    {
+        while(t != null)
+        {
+            AvlNode<AnyType> parent = t.parent;
+            int oldHeight = t.height;
+            AvlNode<AnyType> s = balance(t);
+            if(s != t)
+                replaceChild(parent, t, s);
+            t = parent;
+            if(s.height == oldHeight)
+                break;
+        }
+        for(; t != null; t = t.parent)
+            t.size += delta;
+    }
+
+    /**
+     * Internal method to hang s where child hung below parent, or at the
+     * root if parent is null.
+     */
+    private void replaceChild(AvlNode<AnyType> parent, AvlNode<AnyType> child, AvlNode<AnyType> s)
+    {
+        if(parent == null)
+            root = s;
+        else if(parent.left == child)
+            parent.left = s;
         else
-            t = (t.left != null) ? t.left : t.right;
-        return balance(t);
+            parent.right = s;
+        if(s != null)
+            s.parent = parent;
+    }
+
+    /**
+     * Internal method to find where a search for x can start instead of
+     * the root. Climbs from the finger to the lowest ancestor whose
+     * subtree must hold x; ancestors on the far side of x from the finger
+     * bound nothing and are passed without a comparison.
+     */
+    private AvlNode<AnyType> fingerStart(AnyType x)
+    {
+        AvlNode<AnyType> u = finger;
+        if(u == null)
+            return root;
+
+        int compareResult = myCompare(x, u.element);
+        AvlNode<AnyType> t = u;
+        while(compareResult != 0 && t.parent != null)
+        {
+            AvlNode<AnyType> p = t.parent;
+            if((compareResult > 0) == (t == p.right))
+            {
+                t = p;    // p is beyond t away from x, so u's range does not end at p
+                continue;
+            }
+
+            int parentResult = myCompare(x, p.element);
+            if(parentResult != 0 && (parentResult > 0) != (compareResult > 0))
+                break;    // x lies between u and p
+            u = t = p;
+            compareResult = parentResult;
+        }
+        return u;
     }
     
     /**
@@ -105,7 +338,7 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
      */
     public void makeEmpty()
     {
-        root = null;
+        setRoot(null);
     }
 
     /**
@@ -117,6 +350,255 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         return root == null;
     }
 
+    /**
+     * Return the number of items in the tree.
+     */
+    public int size()
+    {
+        return size(root);
+    }
+
+    /**
+     * Count the items smaller than x in O(log n), using subtree sizes.
+     * @param x the item to rank; it need not be in the tree.
+     * @return the number of items smaller than x.
+     */
+    public int rank(AnyType x)
+    {
+        int rank = 0;
+        AvlNode<AnyType> t = root;
+
+        while( t != null )
+        {
+            int compareResult = myCompare( x, t.element );
+
+            if( compareResult < 0 )
+                t = t.left;
+            else
+            {
+                if( compareResult == 0 )
+                    return rank + size( t.left );
+                rank += size( t.left ) + 1;
+                t = t.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Find the item of rank k, i.e. the k-th smallest counting from 0,
+     * in O(log n).
+     * @param k the rank, from 0 to size() - 1.
+     * @return the item of rank k.
+     * @throws IndexOutOfBoundsException if k is out of range.
+     */
+    public AnyType select(int k)
+    {
+        if( k < 0 || k >= size( root ) )
+            throw new IndexOutOfBoundsException( "select rank: " + k + "; size: " + size( root ) );
+
+        AvlNode<AnyType> t = root;
+        while( true )
+        {
+            int leftSize = size( t.left );
+
+            if( k < leftSize )
+                t = t.left;
+            else if( k > leftSize )
+            {
+                k -= leftSize + 1;
+                t = t.right;
+            }
+            else
+                return t.element;
+        }
+    }
+
+    /**
+     * Find the largest item less than or equal to x.
+     * @return the item, or null if every item is greater than x.
+     */
+    public AnyType floor(AnyType x)
+    {
+        AvlNode<AnyType> t = root, best = null;
+
+        while( t != null )
+        {
+            int compareResult = myCompare( x, t.element );
+
+            if( compareResult < 0 )
+                t = t.left;
+            else if( compareResult > 0 )
+            {
+                best = t;
+                t = t.right;
+            }
+            else
+                return t.element;
+        }
+        return best == null ? null : best.element;
+    }
+
+    /**
+     * Find the smallest item greater than or equal to x.
+     * @return the item, or null if every item is smaller than x.
+     */
+    public AnyType ceiling(AnyType x)
+    {
+        AvlNode<AnyType> t = root, best = null;
+
+        while( t != null )
+        {
+            int compareResult = myCompare( x, t.element );
+
+            if( compareResult < 0 )
+            {
+                best = t;
+                t = t.left;
+            }
+            else if( compareResult > 0 )
+                t = t.right;
+            else
+                return t.element;
+        }
+        return best == null ? null : best.element;
+    }
+
+    /**
+     * Replace the contents of the tree by a list that is already sorted,
+     * in O(n): the middle item becomes the root and each half is built
+     * the same way, so no comparisons or rotations are needed.
+     * @param sorted the items in strictly increasing order.
+     * @throws IllegalArgumentException if the items are not strictly increasing.
+     */
+    public void buildFromSorted(List<? extends AnyType> sorted)
+    {
+        for( int i = 1; i < sorted.size( ); i++ )
+            if( myCompare( sorted.get( i - 1 ), sorted.get( i ) ) >= 0 )
+                throw new IllegalArgumentException( "Items are not strictly increasing at index " + i );
+
+        setRoot( buildFromSorted( sorted, 0, sorted.size( ) - 1 ) );
+    }
+
+    /**
+     * Split the tree around x. Items smaller than x stay in this tree and
+     * items greater than or equal to x are moved into the returned tree.
+     * Runtime: O(log n).
+     * @param x the split point; it need not be in the tree.
+     * @return a tree of the same type holding the items >= x.
+     */
+    public AvlTree<AnyType> split(AnyType x)
+    {
+        Split<AnyType> s = split( root, x );
+        AvlTree<AnyType> greater = newTree( );
+
+        setRoot( s.left );
+        greater.setRoot( s.found == null ? s.right : join( null, s.found, s.right ) );
+        return greater;
+    }
+
+    /**
+     * Append every item of other to this tree. All items of other must be
+     * larger than all items of this tree. other is left empty.
+     * Runtime: O(|height difference|).
+     * @throws IllegalArgumentException if the trees overlap.
+     */
+    public void join(AvlTree<AnyType> other)
+    {
+        if( !isEmpty( ) && !other.isEmpty( ) &&
+                myCompare( findMax( root ).element, findMin( other.root ).element ) >= 0 )
+            throw new IllegalArgumentException( "Joined tree must hold larger items" );
+
+        setRoot( join2( root, other.root ) );
+        other.setRoot( null );
+    }
+
+    /**
+     * Add every item of other to this tree, replacing equal items by the
+     * ones from other. other is left empty.
+     * Runtime: O(m log(n/m + 1)) for trees of sizes m <= n.
+     */
+    public void union(AvlTree<AnyType> other)
+    {
+        setRoot( union( root, other.root ) );
+        other.setRoot( null );
+    }
+
+    /**
+     * Same as union, but the two halves of each step are merged in
+     * parallel on the common fork-join pool once the inputs are large.
+     */
+    public void parallelUnion(AvlTree<AnyType> other)
+    {
+        setRoot( ForkJoinPool.commonPool( ).invoke( new UnionTask( root, other.root ) ) );
+        other.setRoot( null );
+    }
+
+    /**
+     * Keep only the items that are also in other, taking the equal items
+     * from other. other is left empty.
+     * Runtime: O(m log(n/m + 1)) for trees of sizes m <= n.
+     */
+    public void intersection(AvlTree<AnyType> other)
+    {
+        setRoot( intersection( root, other.root ) );
+        other.setRoot( null );
+    }
+
+    /**
+     * Replace the whole tree by the subtree t after a bulk operation. The
+     * finger is dropped, since its node may have moved to another tree.
+     */
+    private void setRoot( AvlNode<AnyType> t )
+    {
+        root = t;
+        if( t != null )
+            t.parent = null;
+        finger = null;
+    }
+
+    /**
+     * Create an empty tree with the same ordering, used by split.
+     * Subclasses override this so that split returns their own type.
+     */
+    protected AvlTree<AnyType> newTree()
+    {
+        return new AvlTree<AnyType>( cmp );
+    }
+
+    /**
+     * Start counting rotations and search depths. Until this is called the
+     * only cost on insert, remove and search is a null check.
+     */
+    public void enableMetrics()
+    {
+        if(counters == null)
+            counters = new TreeCounters();
+    }
+
+    public void disableMetrics()
+    {
+        counters = null;
+    }
+
+    /**
+     * Returns the tree's health metrics: size, height, rotation counts by
+     * type and the average number of nodes visited per search. Counts are
+     * zero while metrics are disabled.
+     */
+    public java.util.Map<String, Object> metrics()
+    {
+        TreeCounters c = counters != null ? counters : new TreeCounters();
+        java.util.Map<String, Object> m = new LinkedHashMap<>();
+        m.put("size", size());
+        m.put("height", height(root));
+        m.put("singleRotations", c.singleRotations);
+        m.put("doubleRotations", c.doubleRotations);
+        m.put("searches", c.searches);
+        m.put("averageSearchDepth", c.searches == 0 ? 0.0 : (double) c.searchDepth / c.searches);
+        return m;
+    }
+
     /**
      * Print the tree contents in sorted order.
      */
@@ -138,18 +620,33 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         
         if(height(t.left) - height(t.right) > ALLOWED_IMBALANCE )
             if(height(t.left.left) >= height(t.left.right))
+            {
                 t = rotateWithLeftChild( t );
+                if( counters != null )
+                    counters.singleRotations++;
+            }
             else
+            {
                 t = doubleWithLeftChild( t );
+                if( counters != null )
+                    counters.doubleRotations++;
+            }
         else
         if( height( t.right ) - height( t.left ) > ALLOWED_IMBALANCE )
             if( height( t.right.right ) >= height( t.right.left ) )
+            {
                 t = rotateWithRightChild( t );
+                if( counters != null )
+                    counters.singleRotations++;
+            }
             else
+            {
                 t = doubleWithRightChild( t );
+                if( counters != null )
+                    counters.doubleRotations++;
+            }
 
-        t.height = Math.max( height( t.left ), height( t.right ) ) + 1;
-        return t;
+        return update( t );
     }
     
     public void checkBalance( )
@@ -175,28 +672,6 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
     }
     
     
-    /**
-     * Internal method to insert into a subtree.
-     * @param x the item to insert.
-     * @param t the node that roots the subtree.
-     * @return the new root of the subtree.
-     */
-    private AvlNode<AnyType> insert( AnyType x, AvlNode<AnyType> t )
-    {
-        if( t == null )
-            return new AvlNode<>( x, null, null );
-        
-        int compareResult = x.compareTo( t.element );
-        
-        if( compareResult < 0 )
-            t.left = insert( x, t.left );
-        else if( compareResult > 0 )
-            t.right = insert( x, t.right );
-        else if( compareResult == 0)
-        	t.element = x;
-        return balance( t );
-    }
-
     /**
      * Internal method to find the smallest item in a subtree.
      * @param t the node that roots the tree.
@@ -227,6 +702,16 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         return t;
     }
 
+    private void inOrder(AvlNode<AnyType> t, Consumer<? super AnyType> action)
+    {
+        if(t != null)
+        {
+            inOrder(t.left, action);
+            action.accept(t.element);
+            inOrder(t.right, action);
+        }
+    }
+
     /**
      * Internal method to find an item in a subtree.
      * @param x is item to search for.
@@ -234,23 +719,244 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
      * @return true if x is found in subtree.
      */
     private boolean contains( AnyType x, AvlNode<AnyType> t ) {
+        int depth = 0;
+        boolean found = false;
         while( t != null )
         {
-            int compareResult = x.compareTo( t.element );
+            depth++;
+            int compareResult = myCompare( x, t.element );
             
             if( compareResult < 0 )
                 t = t.left;
             else if( compareResult > 0 )
                 t = t.right;
             else
-                return true;    // Match
+            {
+                found = true;    // Match
+                break;
+            }
         }
 
-        return false;   // No match
+        if( counters != null )
+            counters.searched( depth );
+        return found;
     }
     
     ////////////////////////////////////////////////////////////////////////////////////
     
+    /**
+     * Internal method to build a perfectly balanced subtree.
+     * @return the root of the subtree holding sorted[lo..hi].
+     */
+    private AvlNode<AnyType> buildFromSorted( List<? extends AnyType> sorted, int lo, int hi )
+    {
+        if( lo > hi )
+            return null;
+
+        int mid = ( lo + hi ) >>> 1;
+        AvlNode<AnyType> t = new AvlNode<>( sorted.get( mid ) );
+        t.left = buildFromSorted( sorted, lo, mid - 1 );
+        t.right = buildFromSorted( sorted, mid + 1, hi );
+        return update( t );
+    }
+
+    /**
+     * Recompute the height and size of t from its children, and point the
+     * children back at t.
+     */
+    private AvlNode<AnyType> update( AvlNode<AnyType> t )
+    {
+        t.height = Math.max( height( t.left ), height( t.right ) ) + 1;
+        t.size = size( t.left ) + size( t.right ) + 1;
+        if( t.left != null )
+            t.left.parent = t;
+        if( t.right != null )
+            t.right.parent = t;
+        return t;
+    }
+
+    /**
+     * The result of splitting a subtree around an item.
+     */
+    private static class Split<AnyType>
+    {
+        AvlNode<AnyType> left;    // items smaller than x
+        AvlNode<AnyType> found;   // node equal to x, detached, or null
+        AvlNode<AnyType> right;   // items larger than x
+    }
+
+    /**
+     * Internal method to split a subtree around x. The nodes of t are
+     * reused, so t must not be used afterwards.
+     */
+    private Split<AnyType> split( AvlNode<AnyType> t, AnyType x )
+    {
+        if( t == null )
+            return new Split<>( );
+
+        int compareResult = myCompare( x, t.element );
+        Split<AnyType> s;
+
+        if( compareResult < 0 )
+        {
+            s = split( t.left, x );
+            s.right = join( s.right, t, t.right );
+        }
+        else if( compareResult > 0 )
+        {
+            s = split( t.right, x );
+            s.left = join( t.left, t, s.left );
+        }
+        else
+        {
+            s = new Split<>( );
+            s.left = t.left;
+            s.right = t.right;
+            s.found = t;
+        }
+        return s;
+    }
+
+    /**
+     * Internal method to join two subtrees and a middle node k, where every
+     * item of l is smaller than k and every item of r is larger.
+     * Descends along the spine of the taller tree to a subtree of about the
+     * same height as the shorter one, hangs the join there, and rebalances
+     * on the way back up exactly as insert does.
+     * @return the root of the joined subtree.
+     */
+    private AvlNode<AnyType> join( AvlNode<AnyType> l, AvlNode<AnyType> k, AvlNode<AnyType> r )
+    {
+        if( height( l ) > height( r ) + ALLOWED_IMBALANCE )
+        {
+            l.right = join( l.right, k, r );
+            return balance( l );
+        }
+        if( height( r ) > height( l ) + ALLOWED_IMBALANCE )
+        {
+            r.left = join( l, k, r.left );
+            return balance( r );
+        }
+
+        k.left = l;
+        k.right = r;
+        return update( k );
+    }
+
+    /**
+     * Internal method to join two subtrees without a middle node, by
+     * detaching the largest node of l and using it as the middle.
+     */
+    private AvlNode<AnyType> join2( AvlNode<AnyType> l, AvlNode<AnyType> r )
+    {
+        if( l == null )
+            return r;
+        if( r == null )
+            return l;
+
+        AvlNode<AnyType> max = findMax( l );
+        l = removeMax( l );
+        return join( l, max, r );
+    }
+
+    /**
+     * Internal method to detach the largest node of a non-empty subtree.
+     * @return the new root of the subtree.
+     */
+    private AvlNode<AnyType> removeMax( AvlNode<AnyType> t )
+    {
+        if( t.right == null )
+            return t.left;
+        t.right = removeMax( t.right );
+        return balance( t );
+    }
+
+    /**
+     * Internal method to merge two subtrees: split t2 around the root of
+     * t1, merge the matching halves, and join them back with the root.
+     */
+    private AvlNode<AnyType> union( AvlNode<AnyType> t1, AvlNode<AnyType> t2 )
+    {
+        if( t1 == null )
+            return t2;
+        if( t2 == null )
+            return t1;
+
+        Split<AnyType> s = split( t2, t1.element );
+        AvlNode<AnyType> l = union( t1.left, s.left );
+        AvlNode<AnyType> r = union( t1.right, s.right );
+        return join( l, unionRoot( t1, s ), r );
+    }
+
+    /**
+     * The middle node of a union step; an equal item from t2 replaces the
+     * one from t1, as insert does.
+     */
+    private AvlNode<AnyType> unionRoot( AvlNode<AnyType> t1, Split<AnyType> s )
+    {
+        if( s.found != null )
+            t1.element = s.found.element;
+        return t1;
+    }
+
+    /**
+     * Internal method to intersect two subtrees, in the same way as union
+     * but dropping the root of t1 when t2 does not contain it.
+     */
+    private AvlNode<AnyType> intersection( AvlNode<AnyType> t1, AvlNode<AnyType> t2 )
+    {
+        if( t1 == null || t2 == null )
+            return null;
+
+        Split<AnyType> s = split( t2, t1.element );
+        AvlNode<AnyType> l = intersection( t1.left, s.left );
+        AvlNode<AnyType> r = intersection( t1.right, s.right );
+
+        if( s.found == null )
+            return join2( l, r );
+        return join( l, s.found, r );
+    }
+
+    /** Below this many nodes, a union step is not worth forking. */
+    private static final int PARALLEL_UNION_THRESHOLD = 1 << 13;
+
+    /**
+     * Fork-join version of union. The two recursive merges touch disjoint
+     * sets of nodes, so they can run concurrently.
+     */
+    private class UnionTask extends RecursiveTask<AvlNode<AnyType>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final AvlNode<AnyType> t1;
+        private final AvlNode<AnyType> t2;
+
+        UnionTask( AvlNode<AnyType> t1, AvlNode<AnyType> t2 )
+        {
+            this.t1 = t1;
+            this.t2 = t2;
+        }
+
+        protected AvlNode<AnyType> compute( )
+        {
+            if( size( t1 ) + size( t2 ) < PARALLEL_UNION_THRESHOLD )
+                return union( t1, t2 );
+            if( t1 == null )
+                return t2;
+            if( t2 == null )
+                return t1;
+
+            Split<AnyType> s = split( t2, t1.element );
+            UnionTask left = new UnionTask( t1.left, s.left );
+            left.fork( );
+            AvlNode<AnyType> r = new UnionTask( t1.right, s.right ).compute( );
+            AvlNode<AnyType> l = left.join( );
+            // ForkJoinTask.join() hides the outer join here
+            return AvlTree.this.join( l, unionRoot( t1, s ), r );
+        }
+    }
+
+    
     /**
      * Internal method to print a subtree in sorted order.
      * @param t the node that roots the tree.
@@ -273,34 +979,40 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         return t == null ? -1 : t.height;
     }
 
+    /**
+     * Return the number of nodes in the subtree rooted at t, or 0, if null.
+     */
+    protected static int size( AvlNode<?> t )
+    {
+        return t == null ? 0 : t.size;
+    }
+
     /**
      * Rotate binary tree node with left child.
      * For AVL trees, this is a single rotation for case 1.
-     * Update heights, then return new root.
+     * Update heights, sizes and parents, then return new root.
      */
     private AvlNode<AnyType> rotateWithLeftChild( AvlNode<AnyType> k2 )
     {
         AvlNode<AnyType> k1 = k2.left;
         k2.left = k1.right;
         k1.right = k2;
-        k2.height = Math.max( height( k2.left ), height( k2.right ) ) + 1;
-        k1.height = Math.max( height( k1.left ), k2.height ) + 1;
-        return k1;
+        update( k2 );
+        return update( k1 );
     }
 
     /**
      * Rotate binary tree node with right child.
      * For AVL trees, this is a single rotation for case 4.
-     * Update heights, then return new root.
+     * Update heights, sizes and parents, then return new root.
      */
     private AvlNode<AnyType> rotateWithRightChild( AvlNode<AnyType> k1 )
     {
         AvlNode<AnyType> k2 = k1.right;
         k1.right = k2.left;
         k2.left = k1;
-        k1.height = Math.max( height( k1.left ), height( k1.right ) ) + 1;
-        k2.height = Math.max( height( k2.right ), k1.height ) + 1;
-        return k2;
+        update( k1 );
+        return update( k2 );
     }
 
     /**
@@ -327,6 +1039,24 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         return rotateWithRightChild( k1 );
     }
 
+    /**
+     * Counters behind metrics(). Plain fields: a concurrent reader may
+     * see slightly stale values.
+     */
+    protected static class TreeCounters
+    {
+        long singleRotations;
+        long doubleRotations;
+        long searches;
+        long searchDepth;   // nodes visited, summed over all searches
+
+        void searched( int depth )
+        {
+            searches++;
+            searchDepth += depth;
+        }
+    }
+
     public static class AvlNode<AnyType>
     {
             // Constructors
@@ -341,11 +1071,14 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
             left     = lt;
             right    = rt;
             height   = 0;
+            size     = 1;
         }
 
         AnyType           element;      // The data in the node
         AvlNode<AnyType>  left;         // Left child
         AvlNode<AnyType>  right;        // Right child
+        AvlNode<AnyType>  parent;       // Parent, or null at the root
         int               height;       // Height
+        int               size;         // Number of nodes in this subtree
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Times merging a map of m keys into a map of n keys with AvlTree's
+ * join-based union, with parallelUnion, and by re-inserting the m pairs
+ * one put at a time, for m from a few keys up to n. The keys of the two
+ * maps interleave over the same range, and about half of the m keys are
+ * already in the larger map. Both maps are bulk-loaded with
+ * AvlMap.fromSorted before each timed merge.
+ *
+ * Usage: java AvlUnionBenchmark [n] [ms] [rounds]
+ * e.g.   java AvlUnionBenchmark 1000000 100,10000,100000,1000000 5
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class AvlUnionBenchmark {
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		String[] ms = (args.length > 1 ? args[1] : "100,10000,100000,1000000").split(",");
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		// the large map holds the even numbers below 2n
+		Integer[] bigKeys = new Integer[n];
+		Integer[] bigValues = new Integer[n];
+		for(int i = 0; i < n; i++)
+			bigKeys[i] = bigValues[i] = 2 * i;
+
+		Random rnd = new Random(42);
+		// warm up the JIT on every method with small maps
+		Integer[] warmKeys = Arrays.copyOf(bigKeys, Math.min(n, 10000));
+		for(int r = 0; r < 200; r++)
+			for(int method = 0; method < 3; method++)
+				time(method, warmKeys, warmKeys, smallKeys(rnd, warmKeys.length, 100));
+
+		System.out.println("n = " + n + ", best of " + rounds + " rounds, "
+				+ Runtime.getRuntime().availableProcessors() + " CPUs");
+		System.out.printf("%10s %-14s %12s %12s%n", "m", "method", "ms", "ns/key of m");
+
+		for(String s : ms) {
+			int m = Integer.parseInt(s.trim());
+			Integer[] smallKeys = smallKeys(rnd, n, m);
+
+			for(int method = 0; method < 3; method++) {
+				long best = Long.MAX_VALUE;
+				for(int r = 0; r < rounds; r++)
+					best = Math.min(best, time(method, bigKeys, bigValues, smallKeys));
+				System.out.printf("%10d %-14s %12.2f %12.1f%n", m,
+						method == 0 ? "union" : method == 1 ? "parallelUnion" : "put each",
+						best / 1e6, (double) best / m);
+			}
+		}
+	}
+
+	/**
+     * Returns m sorted keys below 2n, one from each stretch of 2n/m, even
+     * or odd at random.
+     */
+	private static Integer[] smallKeys(Random rnd, int n, int m) {
+
+		Integer[] keys = new Integer[m];
+		long stretch = 2L * n / m;
+		for(int i = 0; i < m; i++)
+			keys[i] = (int) (i * stretch + rnd.nextInt((int) stretch));
+		return keys;
+	}
+
+	/**
+     * Bulk-loads both maps, then merges the small one into the big one
+     * by the given method. Returns the nanoseconds the merge took.
+     */
+	private static long time(int method, Integer[] bigKeys, Integer[] bigValues, Integer[] smallKeys) {
+
+		AvlMap<Integer, Integer> big = AvlMap.fromSorted(bigKeys, bigValues);
+		AvlMap<Integer, Integer> small = AvlMap.fromSorted(smallKeys, smallKeys);
+		long start = System.nanoTime();
+		if(method == 0)
+			big.union(small);
+		else if(method == 1)
+			big.parallelUnion(small);
+		else
+			for(int i = 0; i < smallKeys.length; i++)
+				big.put(smallKeys[i], smallKeys[i]);
+		long elapsed = System.nanoTime() - start;
+		if(big.size() < bigKeys.length)
+			throw new AssertionError("merge lost keys");
+		return elapsed;
+	}
+}
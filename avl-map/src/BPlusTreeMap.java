@@ -0,0 +1,333 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The BPlusTreeMap class represents a B+-tree and implements the Map
+ * interface. Every node holds up to fanout keys in one contiguous array that
+ * is binary searched, so a lookup touches about log_fanout(n) nodes instead
+ * of the ~1.44 log2(n) nodes of an AvlMap. Pairs live only in the leaves,
+ * which are linked left to right for ordered scans.
+ *
+ * remove() deletes from the leaf only; underfull nodes are not merged, so a
+ * tree that shrinks keeps its shape and may hold empty leaves until it is
+ * refilled.
+ */
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class BPlusTreeMap<K extends Comparable<? super K>, V> implements Map<K,V>, Iterable<Pair<K,V>> {
+
+	private static final int DEFAULT_FANOUT = 64;
+
+	private final int fanout;	// maximum keys per leaf, children per inner node
+	private Node root;
+	private Leaf first;			// leftmost leaf, where scans start
+	private int keyCount;
+	private K splitKey;			// separator handed up by the last node split
+
+	public BPlusTreeMap() {
+
+		this(DEFAULT_FANOUT);
+	}
+
+	/**
+     * Creates a tree whose nodes hold up to fanout keys (leaves) or
+     * children (inner nodes).
+     */
+	public BPlusTreeMap(int fanout) {
+
+		if(fanout < 3)
+			throw new IllegalArgumentException("Fanout must be at least 3: " + fanout);
+
+		this.fanout = fanout;
+		first = new Leaf();
+		root = first;
+	}
+
+	/**
+     * Insert a key/value pair into the tree, replacing the value if the
+     * key is already present.
+     */
+	public void put(K key, V value) {
+
+		Node sibling = root.insert(key, value);
+
+		// the root split: grow the tree by one level
+		if(sibling != null) {
+			Inner newRoot = new Inner();
+			newRoot.keys[0] = splitKey;
+			newRoot.children[0] = root;
+			newRoot.children[1] = sibling;
+			newRoot.count = 1;
+			root = newRoot;
+		}
+	}
+
+	/**
+     * Returns a value given a key, or null if the key is absent.
+     */
+	@SuppressWarnings("unchecked")
+	public V get(K key) {
+
+		Node t = root;
+		while(t instanceof Inner) {
+			Inner in = (Inner) t;
+			t = in.children[upperBound(in.keys, in.count, key)];
+		}
+
+		Leaf leaf = (Leaf) t;
+		int i = lowerBound(leaf.keys, leaf.count, key);
+		if(i < leaf.count && key.compareTo(leaf.keys[i]) == 0)
+			return (V) leaf.values[i];
+		return null;
+	}
+
+	/**
+     * Remove the pair for key, if any.
+     * @return the value that was removed, or null.
+     */
+	@SuppressWarnings("unchecked")
+	public V remove(K key) {
+
+		Node t = root;
+		while(t instanceof Inner) {
+			Inner in = (Inner) t;
+			t = in.children[upperBound(in.keys, in.count, key)];
+		}
+
+		Leaf leaf = (Leaf) t;
+		int i = lowerBound(leaf.keys, leaf.count, key);
+		if(i == leaf.count || key.compareTo(leaf.keys[i]) != 0)
+			return null;
+
+		V old = (V) leaf.values[i];
+		leaf.count--;
+		System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.count - i);
+		System.arraycopy(leaf.values, i + 1, leaf.values, i, leaf.count - i);
+		leaf.keys[leaf.count] = null;
+		leaf.values[leaf.count] = null;
+		keyCount--;
+		return old;
+	}
+
+	/**
+     * Returns the number of pairs in the tree.
+     */
+	public int size() {
+
+		return keyCount;
+	}
+
+	/**
+     * Iterates every pair in key order by walking the leaf chain.
+     */
+	public Iterator<Pair<K,V>> iterator() {
+
+		return new LeafIterator(first, 0, null);
+	}
+
+	/**
+     * Returns the pairs with lo <= key < hi in key order. Finds the leaf
+     * of lo once, then follows the leaf links. A null bound leaves that end
+     * of the range open.
+     */
+	public Iterable<Pair<K,V>> subMap(K lo, K hi) {
+
+		return () -> {
+			if(lo == null)
+				return new LeafIterator(first, 0, hi);
+
+			Node t = root;
+			while(t instanceof Inner) {
+				Inner in = (Inner) t;
+				t = in.children[upperBound(in.keys, in.count, lo)];
+			}
+			Leaf leaf = (Leaf) t;
+			return new LeafIterator(leaf, lowerBound(leaf.keys, leaf.count, lo), hi);
+		};
+	}
+
+	/**
+     * Returns the first index in keys[0..count) whose key is >= key.
+     */
+	private static <K extends Comparable<? super K>> int lowerBound(K[] keys, int count, K key) {
+
+		int lo = 0, hi = count;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(keys[mid].compareTo(key) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+     * Returns the first index in keys[0..count) whose key is > key, which
+     * is the child of an inner node that can hold key.
+     */
+	private static <K extends Comparable<? super K>> int upperBound(K[] keys, int count, K key) {
+
+		int lo = 0, hi = count;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(keys[mid].compareTo(key) <= 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	private abstract class Node {
+
+		K[] keys;
+		int count;	// number of keys in use
+
+		/**
+         * Inserts into the subtree rooted here.
+         * @return the new right sibling if this node split, else null,
+         * with its separator left in splitKey.
+         */
+		abstract Node insert(K key, V value);
+	}
+
+	private class Leaf extends Node {
+
+		Object[] values;
+		Leaf next;	// right neighbour in key order
+
+		@SuppressWarnings("unchecked")
+		Leaf() {
+			// one spare slot so a full leaf can take the key before splitting
+			keys = (K[]) new Comparable[fanout + 1];
+			values = new Object[fanout + 1];
+		}
+
+		Node insert(K key, V value) {
+
+			int i = lowerBound(keys, count, key);
+			if(i < count && key.compareTo(keys[i]) == 0) {
+				values[i] = value;
+				return null;
+			}
+
+			System.arraycopy(keys, i, keys, i + 1, count - i);
+			System.arraycopy(values, i, values, i + 1, count - i);
+			keys[i] = key;
+			values[i] = value;
+			count++;
+			keyCount++;
+
+			return count > fanout ? split() : null;
+		}
+
+		private Leaf split() {
+
+			Leaf right = new Leaf();
+			int half = count / 2;
+			right.count = count - half;
+			System.arraycopy(keys, half, right.keys, 0, right.count);
+			System.arraycopy(values, half, right.values, 0, right.count);
+
+			// clear the moved slots so they do not pin keys and values
+			for(int i = half; i < count; i++) {
+				keys[i] = null;
+				values[i] = null;
+			}
+			count = half;
+
+			right.next = next;
+			next = right;
+			splitKey = right.keys[0];
+			return right;
+		}
+	}
+
+	private class Inner extends Node {
+
+		Node[] children;
+
+		@SuppressWarnings("unchecked")
+		Inner() {
+			keys = (K[]) new Comparable[fanout];
+			children = (Node[]) new BPlusTreeMap.Node[fanout + 1];
+		}
+
+		Node insert(K key, V value) {
+
+			int i = upperBound(keys, count, key);
+			Node sibling = children[i].insert(key, value);
+			if(sibling == null)
+				return null;
+
+			// hang the new child to the right of the one that split
+			System.arraycopy(keys, i, keys, i + 1, count - i);
+			System.arraycopy(children, i + 1, children, i + 2, count - i);
+			keys[i] = splitKey;
+			children[i + 1] = sibling;
+			count++;
+
+			return count + 1 > fanout ? split() : null;
+		}
+
+		private Inner split() {
+
+			// keys[half] moves up; the right node takes keys above it
+			Inner right = new Inner();
+			int half = count / 2;
+			right.count = count - half - 1;
+			System.arraycopy(keys, half + 1, right.keys, 0, right.count);
+			System.arraycopy(children, half + 1, right.children, 0, right.count + 1);
+			splitKey = keys[half];
+
+			for(int i = half; i < count; i++) {
+				keys[i] = null;
+				children[i + 1] = null;
+			}
+			count = half;
+			return right;
+		}
+	}
+
+	/**
+     * Walks the leaf chain from a starting position, stopping before hi
+     * (or at the end if hi is null).
+     */
+	private class LeafIterator implements Iterator<Pair<K,V>> {
+
+		private Leaf leaf;
+		private int index;
+		private final K hi;
+
+		LeafIterator(Leaf leaf, int index, K hi) {
+			this.leaf = leaf;
+			this.index = index;
+			this.hi = hi;
+			skipExhausted();
+		}
+
+		private void skipExhausted() {
+			while(leaf != null && index >= leaf.count) {
+				leaf = leaf.next;
+				index = 0;
+			}
+		}
+
+		public boolean hasNext() {
+			return leaf != null && (hi == null || leaf.keys[index].compareTo(hi) < 0);
+		}
+
+		@SuppressWarnings("unchecked")
+		public Pair<K,V> next() {
+			if(!hasNext())
+				throw new NoSuchElementException();
+
+			Pair<K,V> result = new Pair<>(leaf.keys[index], (V) leaf.values[index]);
+			index++;
+			skipExhausted();
+			return result;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The BloomFilter class is a blocked Bloom filter over int hash codes. Each
+ * hash selects one 512-bit block (a 64-byte cache line) and sets or tests
+ * all of its bits inside that block, so a query touches one cache line
+ * instead of k scattered ones. mightContain() never returns false for a
+ * hash that was added; it returns true for an absent hash with roughly the
+ * false positive rate the filter was sized for.
+ *
+ * Bits cannot be cleared, since other hashes may share them: a filter only
+ * forgets by being rebuilt.
+ */
+
+public class BloomFilter {
+
+	private static final int BLOCK_LONGS = 8;	// 8 x 64 bits = one cache line
+	private static final int MAX_HASHES = 16;
+
+	private final long[] bits;
+	private final int blockMask;
+	private final int hashes;	// bits set per key
+
+	/**
+     * Creates a filter for expectedKeys keys with the given false positive
+     * rate, using m = -n ln(p) / ln(2)^2 bits and k = (m / n) ln(2) hashes.
+     */
+	public BloomFilter(int expectedKeys, double falsePositiveRate) {
+
+		if(falsePositiveRate <= 0 || falsePositiveRate >= 1)
+			throw new IllegalArgumentException("False positive rate must be in (0, 1): " + falsePositiveRate);
+
+		int n = Math.max(expectedKeys, 1);
+		double bitsPerKey = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+
+		long blocks = 1;
+		while(blocks * BLOCK_LONGS * 64 < n * bitsPerKey)
+			blocks <<= 1;
+		if(blocks > (1 << 24))
+			throw new IllegalArgumentException("Filter too large for " + expectedKeys + " keys");
+
+		bits = new long[(int) blocks * BLOCK_LONGS];
+		blockMask = (int) blocks - 1;
+		hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitsPerKey * Math.log(2))));
+	}
+
+	public void add(int hashCode) {
+
+		long h = mix(hashCode);
+		int block = (int) (h >>> 40) & blockMask;
+		int base = block * BLOCK_LONGS;
+		int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+
+		for(int i = 0; i < hashes; i++) {
+			int bit = (h1 + i * h2) & 511;
+			bits[base + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	public boolean mightContain(int hashCode) {
+
+		long h = mix(hashCode);
+		int block = (int) (h >>> 40) & blockMask;
+		int base = block * BLOCK_LONGS;
+		int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+
+		for(int i = 0; i < hashes; i++) {
+			int bit = (h1 + i * h2) & 511;
+			if((bits[base + (bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+     * Returns the size of the bit array in bytes.
+     */
+	public int sizeInBytes() {
+
+		return bits.length * 8;
+	}
+
+	/**
+     * Spreads a 32-bit hash code over 64 bits (the finalizer of MurmurHash3),
+     * so that the block and the in-block positions are independent.
+     */
+	private static long mix(int hashCode) {
+
+		long h = hashCode * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Times a miss-heavy get workload on SeparateChainingMap with and without
+ * its Bloom filter, for several false positive rates, and reports the
+ * observed false positive rate and the chain walks the filter avoided.
+ *
+ * Usage: java BloomFilterBenchmark [n] [missPercent] [rates] [rounds]
+ * e.g.   java BloomFilterBenchmark 1000000 90 0.1,0.01,0.001 5
+ */
+
+import java.util.Random;
+
+public class BloomFilterBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int missPercent = args.length > 1 ? Integer.parseInt(args[1]) : 90;
+		String[] rates = (args.length > 2 ? args[2] : "0.1,0.01,0.001").split(",");
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		SeparateChainingMap<String, Integer> m = new SeparateChainingMap<>();
+		for(int i = 0; i < n; i++)
+			m.put("key" + i, i);
+
+		// one query per key slot, missPercent% of them absent
+		Random rnd = new Random(42);
+		String[] queries = new String[n];
+		for(int i = 0; i < n; i++)
+			queries[i] = rnd.nextInt(100) < missPercent ? "miss" + i : "key" + rnd.nextInt(n);
+
+		System.out.println("n = " + n + ", " + missPercent + "% misses, best of " + rounds + " rounds");
+		System.out.printf("%-10s %12s %12s %14s %14s%n",
+				"fp rate", "get ns/op", "filter KB", "observed fp", "walks avoided");
+
+		run(m, queries, rounds, "off");
+		for(String r : rates) {
+			m.enableBloomFilter(Double.parseDouble(r.trim()));
+			run(m, queries, rounds, r.trim());
+		}
+
+		if(sink == 42)
+			System.out.println();
+	}
+
+	private static void run(SeparateChainingMap<String, Integer> m, String[] queries, int rounds, String label) {
+
+		long best = Long.MAX_VALUE;
+		long skips = 0, falsePositives = 0;
+		for(int r = 0; r < rounds; r++) {
+			long skipsBefore = m.filterSkips(), fpBefore = m.filterFalsePositives();
+			long start = System.nanoTime();
+			for(String q : queries) {
+				Integer v = m.get(q);
+				if(v != null)
+					sink += v;
+			}
+			best = Math.min(best, System.nanoTime() - start);
+			skips = m.filterSkips() - skipsBefore;
+			falsePositives = m.filterFalsePositives() - fpBefore;
+		}
+
+		String observed = "-", avoided = "-";
+		if(!label.equals("off")) {
+			observed = String.format("%.4f", (double) falsePositives / (skips + falsePositives));
+			avoided = Long.toString(skips);
+		}
+		System.out.printf("%-10s %12.1f %12d %14s %14s%n", label, (double) best / queries.length,
+				m.filterSizeInBytes() / 1024, observed, avoided);
+	}
+}
@@ -0,0 +1,313 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The BoundedCache class is a Map that holds at most capacity pairs,
+ * evicting others as new keys arrive. Pairs are found through an
+ * OpenAddressingMap index and ordered by recency in intrusive doubly-linked
+ * lists (the node carries its own prev/next links, as in MyLinkedList, so a
+ * hit moves it in O(1) without searching).
+ *
+ * Policy.LRU keeps one list and evicts its least recently used pair.
+ *
+ * Policy.W_TINY_LFU splits the capacity into a small LRU window (1%) and a
+ * main area kept as a segmented LRU: new pairs enter the probation segment,
+ * and a hit there promotes them to the protected segment (80% of main).
+ * Every new key starts in the window. When the window overflows, its oldest
+ * pair is admitted to main only if a CountMinSketch of recent accesses says
+ * it is used more often than the pair main would evict. One-hit wonders and
+ * scans therefore pass through the window without flushing the popular keys.
+ * The sketch counts one access per get, and one per put unless the put
+ * follows a get that missed on the same key, so a memoizing get-then-put
+ * is counted once.
+ *
+ * Not thread-safe.
+ */
+
+public class BoundedCache<K, V> implements Map<K, V> {
+
+	public enum Policy { LRU, W_TINY_LFU }
+
+	private static final byte WINDOW = 0;
+	private static final byte PROBATION = 1;
+	private static final byte PROTECTED = 2;
+
+	private final int capacity;
+	private final Policy policy;
+	private final OpenAddressingMap<K, Node<K, V>> index;
+
+	// LRU uses probation alone; least recently used pairs are at the front
+	private final AccessList<K, V> window = new AccessList<>();
+	private final AccessList<K, V> probation = new AccessList<>();
+	private final AccessList<K, V> protectedList = new AccessList<>();
+	private final int maxWindow;
+	private final int maxMain;
+	private final int maxProtected;
+	private final CountMinSketch sketch;
+	private K lastMiss;	// counted in the sketch by get, not yet put
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public BoundedCache(int capacity) {
+
+		this(capacity, Policy.W_TINY_LFU);
+	}
+
+	public BoundedCache(int capacity, Policy policy) {
+
+		if(capacity < 1)
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+
+		this.capacity = capacity;
+		this.policy = policy;
+		index = new OpenAddressingMap<>(capacity + 1, 0.5f);
+
+		if(policy == Policy.W_TINY_LFU) {
+			maxWindow = Math.max(1, capacity / 100);
+			maxMain = capacity - maxWindow;
+			maxProtected = maxMain * 4 / 5;
+			sketch = new CountMinSketch(capacity);
+		}
+		else {
+			maxWindow = 0;
+			maxMain = capacity;
+			maxProtected = 0;
+			sketch = null;
+		}
+	}
+
+	/**
+     * Returns the value for key, or null on a miss. A hit makes the pair
+     * the most recently used.
+     */
+	public V get(K key) {
+
+		if(sketch != null)
+			sketch.increment(key.hashCode());
+
+		Node<K, V> node = index.get(key);
+		if(node == null) {
+			misses++;
+			lastMiss = key;
+			return null;
+		}
+
+		lastMiss = null;
+		hits++;
+		onAccess(node);
+		return node.value;
+	}
+
+	/**
+     * Inserts or replaces the pair for key, evicting a pair if the cache
+     * is full. Under W_TINY_LFU the evicted pair may be the new one.
+     */
+	public void put(K key, V value) {
+
+		if(sketch != null && !key.equals(lastMiss))
+			sketch.increment(key.hashCode());
+		lastMiss = null;
+
+		Node<K, V> node = index.get(key);
+		if(node != null) {
+			node.value = value;
+			onAccess(node);
+			return;
+		}
+
+		node = new Node<>(key, value);
+		index.put(key, node);
+
+		if(policy == Policy.LRU) {
+			probation.addLast(node, PROBATION);
+			if(probation.size > capacity)
+				evict(probation.first());
+		}
+		else {
+			window.addLast(node, WINDOW);
+			if(window.size > maxWindow) {
+				Node<K, V> candidate = window.first();
+				window.remove(candidate);
+				admit(candidate);
+			}
+		}
+	}
+
+	public V remove(K key) {
+
+		Node<K, V> node = index.remove(key);
+		if(node == null)
+			return null;
+
+		listOf(node).remove(node);
+		return node.value;
+	}
+
+	public int size() {
+
+		return index.size();
+	}
+
+	public int capacity() {
+
+		return capacity;
+	}
+
+	public long hitCount() {
+
+		return hits;
+	}
+
+	public long missCount() {
+
+		return misses;
+	}
+
+	/**
+     * Returns the number of pairs dropped to make room, including new
+     * pairs that W_TINY_LFU declined to admit.
+     */
+	public long evictionCount() {
+
+		return evictions;
+	}
+
+	/**
+     * Returns hits / (hits + misses) over the gets since the last reset.
+     */
+	public double hitRatio() {
+
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	public void resetStats() {
+
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	private void onAccess(Node<K, V> node) {
+
+		if(node.queue == PROBATION && policy == Policy.W_TINY_LFU) {
+			// second hit: promote, demoting the protected LRU if it overflows
+			probation.remove(node);
+			protectedList.addLast(node, PROTECTED);
+			if(protectedList.size > maxProtected) {
+				Node<K, V> demoted = protectedList.first();
+				protectedList.remove(demoted);
+				probation.addLast(demoted, PROBATION);
+			}
+		}
+		else
+			listOf(node).moveToEnd(node);
+	}
+
+	/**
+     * Moves a pair leaving the window into main, if there is room or it
+     * is used more often than main's eviction victim.
+     */
+	private void admit(Node<K, V> candidate) {
+
+		if(probation.size + protectedList.size < maxMain) {
+			probation.addLast(candidate, PROBATION);
+			return;
+		}
+
+		Node<K, V> victim = probation.size > 0 ? probation.first() : protectedList.first();
+		if(victim != null
+				&& sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+			evict(victim);
+			probation.addLast(candidate, PROBATION);
+		}
+		else {
+			index.remove(candidate.key);
+			evictions++;
+		}
+	}
+
+	private void evict(Node<K, V> node) {
+
+		listOf(node).remove(node);
+		index.remove(node.key);
+		evictions++;
+	}
+
+	private AccessList<K, V> listOf(Node<K, V> node) {
+
+		switch(node.queue) {
+		case WINDOW:
+			return window;
+		case PROTECTED:
+			return protectedList;
+		default:
+			return probation;
+		}
+	}
+
+	/**
+     * A cached pair and its links in one of the access lists.
+     */
+	private static class Node<K, V> {
+
+		final K key;
+		V value;
+		Node<K, V> prev;
+		Node<K, V> next;
+		byte queue;
+
+		Node(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+     * Doubly-linked list of nodes between a begin and an end marker, least
+     * recently used first. Every operation is O(1).
+     */
+	private static class AccessList<K, V> {
+
+		private final Node<K, V> beginMarker = new Node<>(null, null);
+		private final Node<K, V> endMarker = new Node<>(null, null);
+		int size;
+
+		AccessList() {
+			beginMarker.next = endMarker;
+			endMarker.prev = beginMarker;
+		}
+
+		/**
+         * Returns the least recently used node, or null if empty.
+         */
+		Node<K, V> first() {
+			return size == 0 ? null : beginMarker.next;
+		}
+
+		void addLast(Node<K, V> node, byte queue) {
+			node.queue = queue;
+			node.prev = endMarker.prev;
+			node.next = endMarker;
+			endMarker.prev.next = node;
+			endMarker.prev = node;
+			size++;
+		}
+
+		void remove(Node<K, V> node) {
+			node.prev.next = node.next;
+			node.next.prev = node.prev;
+			node.prev = null;
+			node.next = null;
+			size--;
+		}
+
+		void moveToEnd(Node<K, V> node) {
+			if(node.next == endMarker)
+				return;
+			remove(node);
+			addLast(node, node.queue);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Replays key traces against BoundedCache as a memoization cache (get, and
+ * put on a miss) and reports the hit ratio and ops/sec of each eviction
+ * policy. The traces are Zipfian draws from KeyDistribution, alone and with
+ * every fourth request replaced by a sequential scan over keys outside the
+ * Zipfian range, which flushes an LRU cache but not W-TinyLFU. A put right
+ * after a missed get of the same key is not counted again by the frequency
+ * sketch, so every request is one access.
+ *
+ * Usage: java CacheBenchmark [universe] [requests] [cacheSizes] [rounds]
+ * e.g.   java CacheBenchmark 1000000 5000000 1000,10000,100000 3
+ */
+
+public class CacheBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+
+	public static void main(String[] args) {
+
+		int universe = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 5000000;
+		String[] sizes = (args.length > 2 ? args[2] : "1000,10000,100000").split(",");
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+		int[] zipf = KeyDistribution.ZIPFIAN.sample(universe, requests, 42);
+		int[] scan = zipf.clone();
+		for(int i = 3, next = 0; i < scan.length; i += 4)
+			scan[i] = universe + next++;	// never repeats
+
+		System.out.println("universe = " + universe + ", " + requests + " requests, best of " + rounds + " rounds");
+		System.out.printf("%-12s %10s %-12s %10s %12s%n", "trace", "capacity", "policy", "hit ratio", "ops/sec");
+
+		for(String s : sizes) {
+			int capacity = Integer.parseInt(s.trim());
+			for(BoundedCache.Policy policy : BoundedCache.Policy.values()) {
+				replay("zipf", zipf, capacity, policy, rounds);
+				replay("zipf+scan", scan, capacity, policy, rounds);
+			}
+		}
+		if(sink == 42)
+			System.out.println();
+	}
+
+	private static void replay(String name, int[] trace, int capacity, BoundedCache.Policy policy, int rounds) {
+
+		long best = Long.MAX_VALUE;
+		double hitRatio = 0;
+
+		for(int r = 0; r < rounds; r++) {
+			BoundedCache<Integer, Integer> cache = new BoundedCache<>(capacity, policy);
+			long start = System.nanoTime();
+			for(int k : trace) {
+				Integer v = cache.get(k);
+				if(v == null)
+					cache.put(k, k);
+				else
+					sink += v;
+			}
+			best = Math.min(best, System.nanoTime() - start);
+			hitRatio = cache.hitRatio();
+		}
+
+		System.out.printf("%-12s %10d %-12s %10.4f %12.0f%n", name, capacity, policy, hitRatio,
+				trace.length / (best / 1e9));
+	}
+}
@@ -0,0 +1,96 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The Codec interface turns keys and values into bytes for the on-disk
+ * snapshot formats and reads them back from a (possibly memory-mapped)
+ * buffer. Encodings must be stable across processes, so a snapshot written
+ * by one run can be read by the next.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public interface Codec<T> {
+
+	/**
+     * Returns the bytes for value.
+     */
+	public byte[] encode(T value);
+
+	/**
+     * Reads a value from buf[offset, offset + length) without moving the
+     * buffer's position.
+     */
+	public T decode(ByteBuffer buf, int offset, int length);
+
+	/**
+     * Compares key with the value encoded at buf[offset, offset + length),
+     * for binary searches over sorted snapshots. The default decodes the
+     * value; codecs override it to compare in place. Only used with
+     * Comparable keys.
+     */
+	@SuppressWarnings("unchecked")
+	public default int compare(T key, ByteBuffer buf, int offset, int length) {
+		return ((Comparable<? super T>) key).compareTo(decode(buf, offset, length));
+	}
+
+	public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+
+		public byte[] encode(Integer value) {
+			return ByteBuffer.allocate(4).putInt(value).array();
+		}
+
+		public Integer decode(ByteBuffer buf, int offset, int length) {
+			return buf.getInt(offset);
+		}
+
+		public int compare(Integer key, ByteBuffer buf, int offset, int length) {
+			return Integer.compare(key, buf.getInt(offset));
+		}
+	};
+
+	public static final Codec<Long> LONG = new Codec<Long>() {
+
+		public byte[] encode(Long value) {
+			return ByteBuffer.allocate(8).putLong(value).array();
+		}
+
+		public Long decode(ByteBuffer buf, int offset, int length) {
+			return buf.getLong(offset);
+		}
+
+		public int compare(Long key, ByteBuffer buf, int offset, int length) {
+			return Long.compare(key, buf.getLong(offset));
+		}
+	};
+
+	public static final Codec<String> STRING = new Codec<String>() {
+
+		public byte[] encode(String value) {
+			return value.getBytes(StandardCharsets.UTF_8);
+		}
+
+		public String decode(ByteBuffer buf, int offset, int length) {
+			byte[] bytes = new byte[length];
+			buf.get(offset, bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		// walks ASCII bytes as chars, decoding only if a non-ASCII byte shows up
+		public int compare(String key, ByteBuffer buf, int offset, int length) {
+			int n = Math.min(key.length(), length);
+			for(int i = 0; i < n; i++) {
+				byte b = buf.get(offset + i);
+				if(b < 0)
+					return key.compareTo(decode(buf, offset, length));
+				if(key.charAt(i) != b)
+					return key.charAt(i) - b;
+			}
+			for(int i = n; i < length; i++) {
+				if(buf.get(offset + i) < 0)
+					return key.compareTo(decode(buf, offset, length));
+			}
+			return key.length() - length;
+		}
+	};
+}
@@ -0,0 +1,309 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The ConcurrentChainingMap class represents a thread-safe separate chaining
+ * hash table and implements the Map interface.
+ *
+ * Keys are striped over a fixed number of segments, each owning its own
+ * bucket array, key count and resize lock. Within a segment, an empty bucket
+ * is claimed with a single compareAndSet, and a non-empty bucket is written
+ * under a lock on its head node, so writers only contend on the same bucket.
+ * get() takes no locks: links and values are volatile, a removal only
+ * unlinks a node (which still points to its successor), and a resize copies
+ * nodes instead of relinking them, so a reader holding an old bucket array
+ * or a removed node still sees a consistent chain.
+ *
+ * The compound operations putIfAbsent, computeIfAbsent and merge are the
+ * Map defaults and are not atomic.
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class ConcurrentChainingMap<K, V> implements Map<K, V> {
+
+	private static final int DEFAULT_SEGMENTS = 16;
+	private static final int DEFAULT_SEGMENT_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private final Segment<K, V>[] segments;
+	private final int segmentShift;	// high hash bits select the segment
+
+	public ConcurrentChainingMap() {
+
+		this(DEFAULT_SEGMENTS);
+	}
+
+	/**
+     * Creates a map striped over at least concurrencyLevel segments, rounded
+     * up to a power of two.
+     */
+	@SuppressWarnings("unchecked")
+	public ConcurrentChainingMap(int concurrencyLevel) {
+
+		int count = 1, bits = 0;
+		while(count < concurrencyLevel) {
+			count <<= 1;
+			bits++;
+		}
+
+		segmentShift = 32 - bits;
+		segments = (Segment<K, V>[]) new Segment[count];
+		for(int i = 0; i < count; i++)
+			segments[i] = new Segment<>(DEFAULT_SEGMENT_CAPACITY);
+	}
+
+	/**
+     * Spreads the hash code so that both the high bits (segment) and the
+     * low bits (bucket) depend on every bit of the original.
+     */
+	private static int hash(Object key) {
+
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private Segment<K, V> segmentFor(int h) {
+
+		return segments.length == 1 ? segments[0] : segments[h >>> segmentShift];
+	}
+
+	/**
+     * Inserts a key/value pair into the map, replacing the value if the key
+     * is already present. Safe to call from any number of threads.
+     */
+	public void put(K key, V value) {
+
+		if(key == null || value == null)
+			throw new IllegalArgumentException("Null keys and values are not supported");
+
+		int h = hash(key);
+		segmentFor(h).put(h, key, value);
+	}
+
+	/**
+     * Removes the pair for key, if any.
+     * @return the value that was removed, or null.
+     */
+	public V remove(K key) {
+
+		if(key == null)
+			return null;
+
+		int h = hash(key);
+		return segmentFor(h).remove(h, key);
+	}
+
+	/**
+     * Returns a value given a key, or null if the key is absent. Never
+     * blocks.
+     */
+	public V get(K key) {
+
+		if(key == null)
+			return null;
+
+		int h = hash(key);
+		AtomicReferenceArray<Node<K, V>> tab = segmentFor(h).table;
+
+		Node<K, V> e = tab.get(h & (tab.length() - 1));
+		while(e != null) {
+			if(e instanceof ForwardingNode) {
+				// bucket already moved by a resize, continue in the new array
+				tab = ((ForwardingNode<K, V>) e).nextTable;
+				e = tab.get(h & (tab.length() - 1));
+				continue;
+			}
+			if(e.hash == h && e.key.equals(key))
+				return e.value;
+			e = e.next;
+		}
+		return null;
+	}
+
+	/**
+     * Returns the number of keys in the map. The result is only exact when
+     * no other thread is writing.
+     */
+	public int size() {
+
+		int sum = 0;
+		for(Segment<K, V> s : segments)
+			sum += s.count.get();
+		return sum;
+	}
+
+	/**
+     * Chain node. The key and hash never change; value and next are volatile
+     * so that lock-free readers see writes made under the bucket lock.
+     */
+	private static class Node<K, V> {
+
+		final int hash;
+		final K key;
+		volatile V value;
+		volatile Node<K, V> next;
+
+		Node(int hash, K key, V value) {
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+     * Placed in a bucket of the old array once a resize has copied that
+     * bucket, pointing readers and writers at the new array.
+     */
+	private static class ForwardingNode<K, V> extends Node<K, V> {
+
+		final AtomicReferenceArray<Node<K, V>> nextTable;
+
+		ForwardingNode(AtomicReferenceArray<Node<K, V>> nextTable) {
+			super(0, null, null);
+			this.nextTable = nextTable;
+		}
+	}
+
+	/**
+     * One stripe of the map. The segment's own monitor serializes resizes;
+     * ordinary writes only lock the head node of their bucket.
+     */
+	private static class Segment<K, V> {
+
+		volatile AtomicReferenceArray<Node<K, V>> table;
+		final AtomicInteger count = new AtomicInteger();
+
+		Segment(int capacity) {
+			table = new AtomicReferenceArray<>(capacity);
+		}
+
+		void put(int h, K key, V value) {
+
+			AtomicReferenceArray<Node<K, V>> tab = table;
+
+			while(true) {
+				int i = h & (tab.length() - 1);
+				Node<K, V> f = tab.get(i);
+
+				if(f == null) {
+					// empty bucket: install the first node without locking
+					if(tab.compareAndSet(i, null, new Node<>(h, key, value)))
+						break;
+				}
+				else if(f instanceof ForwardingNode) {
+					tab = ((ForwardingNode<K, V>) f).nextTable;
+				}
+				else {
+					synchronized(f) {
+						// the head may have been forwarded while we waited
+						if(tab.get(i) != f)
+							continue;
+
+						Node<K, V> e = f;
+						while(true) {
+							if(e.hash == h && e.key.equals(key)) {
+								e.value = value;
+								return;
+							}
+							if(e.next == null)
+								break;
+							e = e.next;
+						}
+						e.next = new Node<>(h, key, value);
+					}
+					break;
+				}
+			}
+
+			if(count.incrementAndGet() > tab.length() * LOAD_FACTOR)
+				resize(tab);
+		}
+
+		V remove(int h, K key) {
+
+			AtomicReferenceArray<Node<K, V>> tab = table;
+
+			while(true) {
+				int i = h & (tab.length() - 1);
+				Node<K, V> f = tab.get(i);
+
+				if(f == null)
+					return null;
+				if(f instanceof ForwardingNode) {
+					tab = ((ForwardingNode<K, V>) f).nextTable;
+					continue;
+				}
+
+				synchronized(f) {
+					if(tab.get(i) != f)
+						continue;
+
+					for(Node<K, V> prev = null, e = f; e != null; prev = e, e = e.next) {
+						if(e.hash == h && e.key.equals(key)) {
+							// writers blocked on the old head recheck it and retry
+							if(prev == null)
+								tab.set(i, e.next);
+							else
+								prev.next = e.next;
+							count.decrementAndGet();
+							return e.value;
+						}
+					}
+					return null;
+				}
+			}
+		}
+
+		/**
+         * Doubles the bucket array. Each old bucket is copied under its head
+         * lock into the two new buckets it splits into, and then replaced by
+         * a ForwardingNode, so writers are never blocked for longer than one
+         * bucket copy.
+         */
+		synchronized void resize(AtomicReferenceArray<Node<K, V>> tab) {
+
+			if(table != tab)
+				return; // another thread already resized
+
+			int n = tab.length();
+			AtomicReferenceArray<Node<K, V>> nextTab = new AtomicReferenceArray<>(n * 2);
+			ForwardingNode<K, V> fwd = new ForwardingNode<>(nextTab);
+
+			for(int i = 0; i < n; i++) {
+				while(true) {
+					Node<K, V> f = tab.get(i);
+					if(f == null) {
+						if(tab.compareAndSet(i, null, fwd))
+							break;
+						continue;
+					}
+
+					synchronized(f) {
+						if(tab.get(i) != f)
+							continue;
+
+						// copy, never relink, so readers of tab are unaffected
+						Node<K, V> lo = null, hi = null;
+						for(Node<K, V> e = f; e != null; e = e.next) {
+							Node<K, V> copy = new Node<>(e.hash, e.key, e.value);
+							if((e.hash & n) == 0) {
+								copy.next = lo;
+								lo = copy;
+							}
+							else {
+								copy.next = hi;
+								hi = copy;
+							}
+						}
+						nextTab.set(i, lo);
+						nextTab.set(i + n, hi);
+						tab.set(i, fwd);
+					}
+					break;
+				}
+			}
+			table = nextTab;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Measures throughput of ConcurrentChainingMap against a SeparateChainingMap
+ * behind one global lock, for 1 to N threads and several read/write mixes.
+ * Reads look up prefilled keys. Writes insert keys no thread has used
+ * before, and every third write removes the oldest key its thread
+ * inserted, so the map keeps growing and every segment resizes as it runs.
+ * The last column is the number of keys left at the end of the run.
+ * Usage: java ConcurrentMapBenchmark [keys] [maxThreads] [millis]
+ */
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrentMapBenchmark {
+
+	private static volatile boolean running;
+
+	public static void main(String[] args) throws InterruptedException {
+
+		int keyCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+		int millis = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+		Integer[] keys = new Integer[keyCount];
+		for(int i = 0; i < keyCount; i++)
+			keys[i] = i;
+
+		int[] writePercents = { 0, 10, 50 };
+
+		System.out.println(keyCount + " keys, " + millis + " ms per run");
+		System.out.printf("%-22s %7s %8s %10s %10s%n", "map", "writes", "threads", "Mops/s", "keys");
+
+		for(int writes : writePercents) {
+			for(int threads = 1; threads <= maxThreads; threads *= 2) {
+				Map<Integer, Integer> locked = new LockedMap();
+				double lockedOps = run(locked, keys, threads, writes, millis);
+				Map<Integer, Integer> striped = new ConcurrentChainingMap<>();
+				double stripedOps = run(striped, keys, threads, writes, millis);
+				System.out.printf("%-22s %6d%% %8d %10.2f %10d%n", "global lock", writes, threads,
+						lockedOps, locked.size());
+				System.out.printf("%-22s %6d%% %8d %10.2f %10d%n", "ConcurrentChainingMap", writes, threads,
+						stripedOps, striped.size());
+			}
+		}
+	}
+
+	/**
+     * Prefills the empty map m and hammers it from the given number of
+     * threads for millis ms. Thread t inserts the keys keys.length + t,
+     * keys.length + t + threads, ..., so no two threads write the same key.
+     * Returns millions of operations per second.
+     */
+	private static double run(Map<Integer, Integer> m, Integer[] keys,
+			int threads, int writePercent, int millis) throws InterruptedException {
+
+		for(Integer k : keys)
+			m.put(k, k);
+
+		LongAdder ops = new LongAdder();
+		CountDownLatch ready = new CountDownLatch(threads);
+		Thread[] workers = new Thread[threads];
+		running = true;
+
+		for(int t = 0; t < threads; t++) {
+			int first = keys.length + t;
+			workers[t] = new Thread(() -> {
+				ThreadLocalRandom rnd = ThreadLocalRandom.current();
+				int next = first, oldest = first;	// this thread's live keys are [oldest, next)
+				long done = 0;
+				ready.countDown();
+				while(running) {
+					if(rnd.nextInt(100) >= writePercent)
+						m.get(keys[rnd.nextInt(keys.length)]);
+					else if(rnd.nextInt(3) > 0 || oldest == next) {
+						m.put(next, next);
+						next += threads;
+					}
+					else {
+						m.remove(oldest);
+						oldest += threads;
+					}
+					done++;
+				}
+				ops.add(done);
+			});
+			workers[t].start();
+		}
+
+		ready.await();
+		Thread.sleep(millis);
+		running = false;
+		for(Thread w : workers)
+			w.join();
+
+		return ops.sum() / (millis * 1000.0);
+	}
+
+	/**
+     * The baseline: a SeparateChainingMap shared through one global lock.
+     */
+	private static class LockedMap implements Map<Integer, Integer> {
+
+		private final SeparateChainingMap<Integer, Integer> map = new SeparateChainingMap<>();
+
+		public synchronized void put(Integer key, Integer value) {
+			map.put(key, value);
+		}
+
+		public synchronized Integer get(Integer key) {
+			return map.get(key);
+		}
+
+		public synchronized Integer remove(Integer key) {
+			return map.remove(key);
+		}
+
+		public synchronized int size() {
+			return map.size();
+		}
+	}
+}
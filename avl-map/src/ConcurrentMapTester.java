@@ -0,0 +1,114 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Stress test for ConcurrentChainingMap. Each writer thread owns a disjoint
+ * range of keys and, round after round, puts every key with a new value,
+ * reads it back, and removes a third of them, while reader threads look up
+ * random keys from all ranges. The map starts small, so its segments resize
+ * while the writers run. Afterwards size() and every key's value must match
+ * what the writers did last, and every value a reader saw must be one that
+ * a writer put.
+ *
+ * Usage: java ConcurrentMapTester [writers] [keysPerWriter] [rounds] [readers]
+ */
+
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrentMapTester {
+
+	private static volatile boolean writing;
+
+	public static void main(String[] args) throws InterruptedException {
+
+		int writers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int keysPerWriter = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		int readers = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+		for(int segments : new int[] { 1, 16 }) {
+			ConcurrentChainingMap<Integer, Integer> m = new ConcurrentChainingMap<>(segments);
+			LongAdder errors = new LongAdder();
+			LongAdder badReads = new LongAdder();
+			LongAdder reads = new LongAdder();
+			int keys = writers * keysPerWriter;
+
+			writing = true;
+			Thread[] readerThreads = new Thread[readers];
+			for(int r = 0; r < readers; r++) {
+				int seed = r;
+				readerThreads[r] = new Thread(() -> {
+					Random rnd = new Random(seed);
+					long done = 0;
+					while(writing) {
+						int k = rnd.nextInt(keys);
+						Integer v = m.get(k);
+						if(v != null && (v < k || v >= k + rounds))
+							badReads.increment();
+						done++;
+					}
+					reads.add(done);
+				});
+				readerThreads[r].start();
+			}
+
+			Thread[] writerThreads = new Thread[writers];
+			for(int w = 0; w < writers; w++) {
+				int lo = w * keysPerWriter, hi = lo + keysPerWriter;
+				writerThreads[w] = new Thread(() -> {
+					for(int round = 0; round < rounds; round++) {
+						for(int k = lo; k < hi; k++) {
+							m.put(k, k + round);
+							Integer v = m.get(k);
+							if(v == null || v != k + round)
+								errors.increment();
+						}
+						for(int k = lo; k < hi; k++) {
+							if(removedIn(k, round)) {
+								Integer v = m.remove(k);
+								if(v == null || v != k + round || m.get(k) != null)
+									errors.increment();
+							}
+						}
+					}
+				});
+				writerThreads[w].start();
+			}
+
+			for(Thread t : writerThreads)
+				t.join();
+			writing = false;
+			for(Thread t : readerThreads)
+				t.join();
+
+			// only the last round's values, less the keys it removed, remain
+			int last = rounds - 1, expected = 0;
+			for(int k = 0; k < keys; k++) {
+				Integer v = m.get(k);
+				if(removedIn(k, last)) {
+					if(v != null)
+						errors.increment();
+				}
+				else {
+					expected++;
+					if(v == null || v != k + last)
+						errors.increment();
+				}
+			}
+
+			System.out.printf("%d segment%s, %d writers x %d keys, %d rounds: size %d of %d, "
+					+ "%s; %d reads, %s%n", segments, segments == 1 ? "" : "s", writers, keysPerWriter,
+					rounds, m.size(), expected, errors.sum() == 0 ? "contents ok" : errors.sum() + " wrong values",
+					reads.sum(), badReads.sum() == 0 ? "all values seen were written" : badReads.sum() + " bad reads");
+		}
+	}
+
+	/**
+     * Whether the writer of key k removes it in the given round; a third
+     * of the keys, a different third each round.
+     */
+	private static boolean removedIn(int k, int round) {
+
+		return (k + round) % 3 == 0;
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The CountMinSketch class estimates how often each hash code has been seen
+ * recently, in 4 bits per counter. Each hash increments one counter in each
+ * of DEPTH rows and the estimate is the smallest of them, so collisions can
+ * only inflate it. Counters saturate at 15, and after sampleSize increments
+ * every counter is halved, so old popularity fades. This is the frequency
+ * filter of the TinyLFU admission policy.
+ */
+
+public class CountMinSketch {
+
+	private static final int DEPTH = 4;
+	private static final long RESET_MASK = 0x7777777777777777L;	// clears each counter's top bit after >>> 1
+
+	private final long[] table;		// DEPTH rows of 16 counters per long
+	private final int rowWords;
+	private final int counterMask;	// counters per row - 1
+	private final int sampleSize;
+	private int additions;
+
+	/**
+     * Creates a sketch sized for tracking about capacity distinct hot
+     * items, aging after 10 * capacity increments.
+     */
+	public CountMinSketch(int capacity) {
+
+		int counters = 16;
+		while(counters < capacity)
+			counters <<= 1;
+
+		rowWords = counters / 16;
+		counterMask = counters - 1;
+		table = new long[DEPTH * rowWords];
+		sampleSize = 10 * Math.max(capacity, 1);
+	}
+
+	/**
+     * Counts one occurrence of hashCode.
+     */
+	public void increment(int hashCode) {
+
+		long h = spread(hashCode);
+		int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+		boolean added = false;
+
+		for(int i = 0; i < DEPTH; i++) {
+			int counter = (h1 + i * h2) & counterMask;
+			int word = i * rowWords + (counter >>> 4);
+			int shift = (counter & 15) << 2;
+			if(((table[word] >>> shift) & 15) < 15) {
+				table[word] += 1L << shift;
+				added = true;
+			}
+		}
+
+		if(added && ++additions == sampleSize)
+			reset();
+	}
+
+	/**
+     * Returns the estimated count of hashCode, at most 15.
+     */
+	public int frequency(int hashCode) {
+
+		long h = spread(hashCode);
+		int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+		int min = 15;
+
+		for(int i = 0; i < DEPTH; i++) {
+			int counter = (h1 + i * h2) & counterMask;
+			int word = i * rowWords + (counter >>> 4);
+			int shift = (counter & 15) << 2;
+			min = Math.min(min, (int) ((table[word] >>> shift) & 15));
+		}
+		return min;
+	}
+
+	/**
+     * Halves every counter.
+     */
+	private void reset() {
+
+		for(int i = 0; i < table.length; i++)
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		additions /= 2;
+	}
+
+	/**
+     * Spreads a hash code over 64 bits, whose two halves give row i the
+     * counter h1 + i * h2 (double hashing).
+     */
+	private static long spread(int hashCode) {
+
+		long h = hashCode * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		h *= 0xD6E8FEB86659FD93L;
+		h ^= h >>> 32;
+		return h;
+	}
+}
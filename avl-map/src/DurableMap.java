@@ -0,0 +1,461 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The DurableMap class adds crash recovery to an in-memory Map such as an
+ * AvlMap. Every put and remove is appended to a write-ahead log in dir
+ * before it is applied; checkpoint() writes the whole map to a checkpoint
+ * file and empties the log, and it also runs by itself once the log grows
+ * past checkpointBytes. open() loads the last checkpoint and replays the
+ * log on top of it, dropping a torn record at the tail.
+ *
+ * How often the log is forced to disk is set by a SyncPolicy. Writers that
+ * wait for an fsync share it: one force covers every record appended before
+ * it started (group commit), so concurrent writers need far fewer fsyncs
+ * than writes.
+ *
+ * Log record: length, CRC32 of the payload, payload = type (PUT/REMOVE),
+ * keyLength, key bytes, value bytes (PUT only).
+ * Checkpoint: magic "DMCP", count, count times keyLength, key, valueLength,
+ * value. It is written to a temporary file, forced and renamed, so a crash
+ * never leaves a partial checkpoint. Replaying records that a checkpoint
+ * already contains is harmless, since the replayed puts and removes end in
+ * the same state.
+ *
+ * Single operations are thread-safe. The compound Map defaults are logged
+ * as their individual puts and removes and are not atomic.
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class DurableMap<K extends Comparable<? super K>, V> implements Map<K,V>, Closeable {
+
+	/**
+     * When log records are forced to disk.
+     */
+	public enum SyncPolicy {
+		/** put/remove return once their record is on disk. Nothing acknowledged is lost. */
+		FSYNC_EACH,
+		/** fsync every batchRecords records or batchMillis ms; a crash loses at most that window. */
+		FSYNC_BATCH,
+		/** only checkpoint() and close() fsync; the OS decides when the log reaches disk. */
+		NO_FSYNC
+	}
+
+	private static final String LOG_FILE = "wal.log";
+	private static final String CHECKPOINT_FILE = "checkpoint";
+	private static final int CHECKPOINT_MAGIC = 0x444D4350;	// "DMCP"
+	private static final byte PUT = 1;
+	private static final byte REMOVE = 2;
+	private static final int FLUSH_BYTES = 1 << 16;	// hand buffered records to the OS past this
+
+	private final Map<K,V> map;
+	private final Iterable<Pair<K,V>> pairs;	// the same map, for checkpoints
+	private final Codec<K> keyCodec;
+	private final Codec<V> valueCodec;
+	private final SyncPolicy policy;
+	private final File dir;
+	private final FileChannel log;
+
+	// guarded by this: the map, the pending buffer and the sequence numbers
+	private ByteBuffer pending = ByteBuffer.allocate(FLUSH_BYTES * 2);
+	private long logBytes;
+	private volatile long appendedSeq;
+
+	// guarded by syncLock, which is always taken before this
+	private final Object syncLock = new Object();
+	private volatile long syncedSeq;
+	private long fsyncCount;
+
+	private int batchRecords = 256;
+	private long checkpointBytes = 64L << 20;
+	private ScheduledExecutorService flusher;
+	private volatile IOException flushFailure;	// the first failed fsync of the flusher
+	private final CRC32 crc = new CRC32();
+
+	private DurableMap(File dir, Map<K,V> map, Iterable<Pair<K,V>> pairs, Codec<K> keyCodec,
+			Codec<V> valueCodec, SyncPolicy policy) throws IOException {
+
+		this.dir = dir;
+		this.map = map;
+		this.pairs = pairs;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.policy = policy;
+
+		dir.mkdirs();
+		loadCheckpoint();
+		log = FileChannel.open(new File(dir, LOG_FILE).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		replay();
+
+		if(policy == SyncPolicy.FSYNC_BATCH)
+			setBatch(batchRecords, 10);
+	}
+
+	/**
+     * Opens the store in dir, recovering map (which should be empty) from
+     * the checkpoint and log found there, if any.
+     */
+	public static <K extends Comparable<? super K>, V, M extends Map<K,V> & Iterable<Pair<K,V>>> DurableMap<K,V> open(
+			File dir, M map, Codec<K> keyCodec, Codec<V> valueCodec, SyncPolicy policy) throws IOException {
+
+		return new DurableMap<>(dir, map, map, keyCodec, valueCodec, policy);
+	}
+
+	/**
+     * For FSYNC_BATCH: force the log once batchRecords records are
+     * unsynced, and at least every batchMillis ms while any are. If a
+     * timed force fails, the flusher keeps its schedule, and every later
+     * put, remove and close throws UncheckedIOException with the cause,
+     * since records the caller was told are durable may not be.
+     */
+	public synchronized void setBatch(int batchRecords, long batchMillis) {
+
+		if(batchRecords < 1 || batchMillis < 1)
+			throw new IllegalArgumentException("Batch limits must be positive");
+
+		this.batchRecords = batchRecords;
+		if(policy != SyncPolicy.FSYNC_BATCH)
+			return;
+
+		if(flusher != null)
+			flusher.shutdown();
+		flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "DurableMap-flusher");
+			t.setDaemon(true);
+			return t;
+		});
+		flusher.scheduleWithFixedDelay(() -> {
+			// an exception escaping the task would cancel the schedule
+			try {
+				if(syncedSeq < appendedSeq)
+					sync(appendedSeq);
+			}
+			catch(UncheckedIOException e) {
+				if(flushFailure == null)
+					flushFailure = e.getCause();
+			}
+		}, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+     * Checkpoint automatically once the log holds this many bytes.
+     */
+	public synchronized void setCheckpointBytes(long checkpointBytes) {
+
+		this.checkpointBytes = checkpointBytes;
+	}
+
+	public void put(K key, V value) {
+
+		if(key == null || value == null)
+			throw new IllegalArgumentException("Null keys and values are not supported");
+		checkFlushed();
+
+		long seq;
+		boolean checkpointDue;
+		synchronized(this) {
+			seq = append(PUT, keyCodec.encode(key), valueCodec.encode(value));
+			map.put(key, value);
+			checkpointDue = logBytes >= checkpointBytes;
+		}
+		afterWrite(seq, checkpointDue);
+	}
+
+	public V remove(K key) {
+
+		checkFlushed();
+		long seq;
+		boolean checkpointDue;
+		V old;
+		synchronized(this) {
+			if(key == null || map.get(key) == null)
+				return null;
+			seq = append(REMOVE, keyCodec.encode(key), null);
+			old = map.remove(key);
+			checkpointDue = logBytes >= checkpointBytes;
+		}
+		afterWrite(seq, checkpointDue);
+		return old;
+	}
+
+	public synchronized V get(K key) {
+
+		return map.get(key);
+	}
+
+	public synchronized int size() {
+
+		return map.size();
+	}
+
+	/**
+     * Returns the number of times the log has been forced to disk.
+     */
+	public long fsyncCount() {
+
+		synchronized(syncLock) {
+			return fsyncCount;
+		}
+	}
+
+	/**
+     * Writes the whole map to the checkpoint file and empties the log.
+     */
+	public void checkpoint() {
+
+		checkpoint(false);
+	}
+
+	private void checkpoint(boolean onlyIfDue) {
+
+		synchronized(syncLock) {
+			synchronized(this) {
+				if(onlyIfDue && logBytes < checkpointBytes)
+					return;	// another writer checkpointed first
+				try {
+					flushPending();
+					Path tmp = new File(dir, CHECKPOINT_FILE + ".tmp").toPath();
+					try(FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+							StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+						writeCheckpoint(out);
+						out.force(true);
+					}
+					Files.move(tmp, new File(dir, CHECKPOINT_FILE).toPath(),
+							StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					forceDirectory();
+
+					// only now is it safe to drop the records the checkpoint holds
+					log.truncate(0);
+					log.position(0);
+					log.force(true);
+					fsyncCount++;
+					logBytes = 0;
+					syncedSeq = appendedSeq;
+				}
+				catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+	}
+
+	/**
+     * Forces everything logged so far to disk, then releases the log.
+     * Does not checkpoint; the next open() replays the log.
+     */
+	public void close() throws IOException {
+
+		synchronized(this) {
+			if(flusher != null)
+				flusher.shutdown();
+		}
+		try {
+			sync(appendedSeq);
+			checkFlushed();
+		}
+		finally {
+			log.close();
+		}
+	}
+
+	/**
+     * Throws if the FSYNC_BATCH flusher failed to force the log.
+     */
+	private void checkFlushed() {
+
+		IOException e = flushFailure;
+		if(e != null)
+			throw new UncheckedIOException("A timed fsync of the log failed", e);
+	}
+
+	/**
+     * Encodes a record into the pending buffer. Must hold this.
+     * @return the record's sequence number.
+     */
+	private long append(byte type, byte[] key, byte[] value) {
+
+		int payload = 1 + 4 + key.length + (value == null ? 0 : value.length);
+		if(pending.remaining() < 8 + payload) {
+			flushPending();
+			if(pending.capacity() < 8 + payload)
+				pending = ByteBuffer.allocate(8 + payload);
+		}
+
+		int start = pending.position();
+		pending.putInt(payload);
+		pending.putInt(0);	// CRC, filled in below
+		pending.put(type);
+		pending.putInt(key.length);
+		pending.put(key);
+		if(value != null)
+			pending.put(value);
+
+		crc.reset();
+		crc.update(pending.array(), start + 8, payload);
+		pending.putInt(start + 4, (int) crc.getValue());
+
+		logBytes += 8 + payload;
+		if(pending.position() >= FLUSH_BYTES)
+			flushPending();
+		return ++appendedSeq;
+	}
+
+	/**
+     * Writes the pending buffer to the log file (not forced). Must hold
+     * this.
+     */
+	private void flushPending() {
+
+		try {
+			pending.flip();
+			while(pending.hasRemaining())
+				log.write(pending);
+			pending.clear();
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void afterWrite(long seq, boolean checkpointDue) {
+
+		if(checkpointDue)
+			checkpoint(true);
+
+		if(policy == SyncPolicy.FSYNC_EACH)
+			sync(seq);
+		else if(policy == SyncPolicy.FSYNC_BATCH && seq - syncedSeq >= batchRecords)
+			sync(seq);
+	}
+
+	/**
+     * Returns once record seq is on disk. A thread that finds a force
+     * already covering its record returns without forcing again.
+     */
+	private void sync(long seq) {
+
+		if(syncedSeq >= seq)
+			return;
+
+		synchronized(syncLock) {
+			if(syncedSeq >= seq)
+				return;	// the previous leader's force included our record
+
+			long upTo;
+			synchronized(this) {
+				flushPending();
+				upTo = appendedSeq;
+			}
+			// writers keep appending to pending while we force
+			try {
+				log.force(false);
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			fsyncCount++;
+			syncedSeq = upTo;
+		}
+	}
+
+	private void writeCheckpoint(FileChannel out) throws IOException {
+
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out)));
+		data.writeInt(CHECKPOINT_MAGIC);
+		data.writeInt(map.size());
+		for(Pair<K,V> p : pairs) {
+			byte[] key = keyCodec.encode(p.key);
+			byte[] value = valueCodec.encode(p.value);
+			data.writeInt(key.length);
+			data.write(key);
+			data.writeInt(value.length);
+			data.write(value);
+		}
+		data.flush();
+	}
+
+	private void loadCheckpoint() throws IOException {
+
+		File file = new File(dir, CHECKPOINT_FILE);
+		if(!file.exists())
+			return;
+
+		try(FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buf = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+			if(buf.getInt() != CHECKPOINT_MAGIC)
+				throw new IOException("Not a checkpoint: " + file);
+
+			int count = buf.getInt();
+			for(int i = 0; i < count; i++) {
+				int keyLength = buf.getInt();
+				K key = keyCodec.decode(buf, buf.position(), keyLength);
+				buf.position(buf.position() + keyLength);
+				int valueLength = buf.getInt();
+				V value = valueCodec.decode(buf, buf.position(), valueLength);
+				buf.position(buf.position() + valueLength);
+				map.put(key, value);
+			}
+		}
+	}
+
+	/**
+     * Applies every intact log record to the map, then cuts the log after
+     * the last one so that new records follow it.
+     */
+	private void replay() throws IOException {
+
+		long size = log.size();
+		long good = 0;
+
+		if(size > 0) {
+			ByteBuffer buf = log.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			while(buf.remaining() >= 8) {
+				int payload = buf.getInt();
+				int checksum = buf.getInt();
+				if(payload < 5 || payload > buf.remaining())
+					break;	// torn tail
+
+				int start = buf.position();
+				crc.reset();
+				crc.update(buf.slice(start, payload));
+				if((int) crc.getValue() != checksum)
+					break;
+
+				byte type = buf.get(start);
+				int keyLength = buf.getInt(start + 1);
+				K key = keyCodec.decode(buf, start + 5, keyLength);
+				if(type == PUT)
+					map.put(key, valueCodec.decode(buf, start + 5 + keyLength, payload - 5 - keyLength));
+				else
+					map.remove(key);
+
+				buf.position(start + payload);
+				good = buf.position();
+			}
+		}
+
+		if(good < size)
+			log.truncate(good);
+		log.position(good);
+		logBytes = good;
+	}
+
+	private void forceDirectory() {
+
+		// makes the rename durable on Linux; not supported everywhere
+		try(FileChannel d = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+			d.force(true);
+		}
+		catch(IOException e) {
+		}
+	}
+}
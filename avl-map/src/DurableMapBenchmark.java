@@ -0,0 +1,98 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Measures puts/sec of a DurableMap over an AvlMap under each SyncPolicy,
+ * with one writer and with several, next to a plain AvlMap. fsyncs/put
+ * shows how many writers each group commit served.
+ *
+ * Usage: java DurableMapBenchmark [seconds] [threads] [dir]
+ * e.g.   java DurableMapBenchmark 3 1,8 /var/tmp
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DurableMapBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+		String[] threadCounts = (args.length > 1 ? args[1] : "1,8").split(",");
+		File base = new File(args.length > 2 ? args[2] : System.getProperty("java.io.tmpdir"), "durable-map-bench");
+
+		System.out.println(seconds + " s per run, logs in " + base);
+		System.out.printf("%-12s %8s %14s %12s%n", "policy", "threads", "puts/sec", "fsyncs/put");
+
+		for(String t : threadCounts) {
+			int threads = Integer.parseInt(t.trim());
+
+			Map<Integer, Integer> plain = new AvlMap<>();
+			long puts = run(plain, threads, seconds);
+			System.out.printf("%-12s %8d %14.0f %12s%n", "(no log)", threads, puts / seconds, "-");
+
+			for(DurableMap.SyncPolicy policy : DurableMap.SyncPolicy.values()) {
+				File dir = new File(base, policy.name());
+				clear(dir);
+
+				DurableMap<Integer, Integer> m = DurableMap.open(dir, new AvlMap<Integer, Integer>(),
+						Codec.INTEGER, Codec.INTEGER, policy);
+				puts = run(m, threads, seconds);
+				long fsyncs = m.fsyncCount();
+				m.close();
+				clear(dir);
+
+				System.out.printf("%-12s %8d %14.0f %12.4f%n", policy, threads, puts / seconds,
+						(double) fsyncs / puts);
+			}
+		}
+		base.delete();
+	}
+
+	/**
+     * Runs threads writers against m for the given time, returning the
+     * number of puts. Plain maps are not thread-safe, so their writers
+     * share m's monitor, as DurableMap's do.
+     */
+	private static long run(Map<Integer, Integer> m, int threads, double seconds) throws InterruptedException {
+
+		long end = System.nanoTime() + (long) (seconds * 1e9);
+		AtomicLong total = new AtomicLong();
+		boolean durable = m instanceof DurableMap;
+
+		Thread[] workers = new Thread[threads];
+		for(int w = 0; w < threads; w++) {
+			int id = w;
+			workers[w] = new Thread(() -> {
+				long n = 0;
+				int key = id * 1000003;
+				while((n & 63) != 0 || System.nanoTime() < end) {
+					key = key * 1103515245 + 12345;	// scattered keys
+					if(durable)
+						m.put(key & 0xFFFFF, id);
+					else {
+						synchronized(m) {
+							m.put(key & 0xFFFFF, id);
+						}
+					}
+					n++;
+				}
+				total.addAndGet(n);
+			});
+			workers[w].start();
+		}
+		for(Thread w : workers)
+			w.join();
+		return total.get();
+	}
+
+	private static void clear(File dir) throws IOException {
+
+		File[] files = dir.listFiles();
+		if(files != null) {
+			for(File f : files)
+				f.delete();
+		}
+		dir.delete();
+	}
+}
@@ -0,0 +1,262 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Checks DurableMap recovery under each SyncPolicy against a TreeMap that
+ * sees the same puts and removes:
+ *
+ *   reopen        random writes with automatic checkpoints, closed and
+ *                 reopened: every pair is back
+ *   crash image   copies of the log and checkpoint taken between writes,
+ *                 as a killed process would leave them: each recovers the
+ *                 state after some prefix of the writes, and under
+ *                 FSYNC_EACH after all of them
+ *   torn tail     the last record cut short: recovery drops that write only,
+ *                 and a write after reopening follows the one before it
+ *   corrupt tail  a payload byte of the last record flipped: the same
+ *   checkpoint    a crash after the checkpoint is renamed into place but
+ *                 before the log is truncated: replaying the old log over
+ *                 the new checkpoint gives the same pairs
+ *   flusher       FSYNC_BATCH only: the log is closed under the map, so the
+ *                 timed fsync fails: the next put and close throw
+ *
+ * Usage: java DurableMapTester [writes] [dir]
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class DurableMapTester {
+
+	private static final int KEYS = 1000;
+
+	public static void main(String[] args) throws IOException {
+
+		int writes = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		File base = new File(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"),
+				"durable-map-test");
+
+		for(DurableMap.SyncPolicy policy : DurableMap.SyncPolicy.values()) {
+			File dir = clear(new File(base, policy.name()));
+			File image = new File(base, policy.name() + "-crash");
+			Random rnd = new Random(42);
+
+			// reopen, with crash images taken along the way
+			AvlMap<Integer, String> m = new AvlMap<>();
+			DurableMap<Integer, String> d = open(dir, m, policy);
+			d.setCheckpointBytes(32 << 10);
+			TreeMap<Integer, String> model = new TreeMap<>();
+			ArrayList<Pair<Integer, String>> history = new ArrayList<>();	// a null value is a remove
+			int images = 0, prefixes = 0, whole = 0;
+			for(int i = 0; i < writes; i++) {
+				write(d, model, history, rnd, i);
+				if(i % (writes / 10) == writes / 20) {
+					copy(dir, clear(image));
+					AvlMap<Integer, String> r = new AvlMap<>();
+					open(image, r, policy).close();
+					int prefix = matchingPrefix(contents(r), history);
+					images++;
+					if(prefix >= 0)
+						prefixes++;
+					if(prefix == history.size())
+						whole++;
+				}
+			}
+			d.close();
+			AvlMap<Integer, String> r = new AvlMap<>();
+			open(dir, r, policy).close();
+			System.out.printf("%-12s reopen after %d writes: %s%n", policy, writes,
+					contents(r).equals(model) ? "ok, " + model.size() + " pairs" : "WRONG pairs");
+			System.out.printf("%-12s crash images: %d of %d recover a prefix of the writes, "
+					+ "%d all of them%s%n", policy, prefixes, images, whole,
+					policy == DurableMap.SyncPolicy.FSYNC_EACH ? (whole == images ? ": ok" : ": LOST writes") : "");
+
+			// a torn or corrupt last record costs that write and no other
+			for(int corrupt = 0; corrupt < 2; corrupt++) {
+				clear(dir);
+				m = new AvlMap<>();
+				d = open(dir, m, policy);
+				model.clear();
+				for(int i = 0; i < 500; i++)
+					write(d, model, history, rnd, i);
+				TreeMap<Integer, String> before = new TreeMap<>(model);
+				d.put(KEYS, "last");
+				d.close();
+
+				File log = new File(dir, "wal.log");
+				try(RandomAccessFile f = new RandomAccessFile(log, "rw")) {
+					if(corrupt == 0)
+						f.setLength(f.length() - 3);
+					else {
+						f.seek(f.length() - 1);
+						int b = f.read();
+						f.seek(f.length() - 1);
+						f.write(b ^ 0xFF);
+					}
+				}
+				r = new AvlMap<>();
+				d = open(dir, r, policy);
+				boolean dropped = contents(r).equals(before);
+				d.put(KEYS + 1, "after");
+				d.close();
+				before.put(KEYS + 1, "after");
+				r = new AvlMap<>();
+				open(dir, r, policy).close();
+				System.out.printf("%-12s %s tail: %s, then a new write %s%n", policy,
+						corrupt == 0 ? "torn" : "corrupt", dropped ? "only the last write lost" : "WRONG pairs",
+						contents(r).equals(before) ? "follows it: ok" : "is WRONG");
+			}
+
+			// the checkpoint is renamed into place, then the process dies
+			// before the log is truncated
+			clear(dir);
+			m = new AvlMap<>();
+			d = open(dir, m, policy);
+			model.clear();
+			for(int i = 0; i < 500; i++)
+				write(d, model, history, rnd, i);
+			d.checkpoint();
+			for(int i = 0; i < 500; i++)
+				write(d, model, history, rnd, i);
+			d.close();
+			File log = new File(dir, "wal.log"), saved = new File(base, "wal.saved");
+			Files.copy(log.toPath(), saved.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			long logBytes = log.length();
+			d = open(dir, new AvlMap<Integer, String>(), policy);
+			d.checkpoint();
+			d.close();
+			Files.move(saved.toPath(), log.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			r = new AvlMap<>();
+			open(dir, r, policy).close();
+			System.out.printf("%-12s crash between checkpoint and truncate, %d log bytes replayed: %s%n",
+					policy, logBytes, contents(r).equals(model) ? "ok" : "WRONG pairs");
+			if(policy == DurableMap.SyncPolicy.FSYNC_BATCH)
+				flusherFailure(clear(dir));
+
+			clear(image).delete();
+			clear(dir).delete();
+		}
+		base.delete();
+	}
+
+	/**
+     * Closes the log channel of an FSYNC_BATCH map behind its back, waits
+     * for the flusher to try a timed fsync, and checks that the failure
+     * reaches the next put and close.
+     */
+	private static void flusherFailure(File dir) throws IOException {
+
+		DurableMap<Integer, String> d = open(dir, new AvlMap<Integer, String>(), DurableMap.SyncPolicy.FSYNC_BATCH);
+		d.setBatch(1 << 20, 5);
+		d.put(1, "one");
+		try {
+			Field log = DurableMap.class.getDeclaredField("log");
+			log.setAccessible(true);
+			((FileChannel) log.get(d)).close();
+			Thread.sleep(100);
+		}
+		catch(ReflectiveOperationException | InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+		String put, close;
+		try {
+			d.put(2, "two");
+			put = "no exception";
+		}
+		catch(UncheckedIOException e) {
+			put = "throws";
+		}
+		try {
+			d.close();
+			close = "no exception";
+		}
+		catch(UncheckedIOException e) {
+			close = "throws";
+		}
+		System.out.printf("%-12s failed timed fsync: put %s, close %s%s%n", DurableMap.SyncPolicy.FSYNC_BATCH,
+				put, close, put.equals("throws") && close.equals("throws") ? ": ok" : ": FAILURE LOST");
+	}
+
+	private static DurableMap<Integer, String> open(File dir, AvlMap<Integer, String> m,
+			DurableMap.SyncPolicy policy) throws IOException {
+		return DurableMap.open(dir, m, Codec.INTEGER, Codec.STRING, policy);
+	}
+
+	/**
+     * Puts a random key (70%) or removes one (30%) in both d and model, and
+     * records it in history. Removes of absent keys are not logged, so they
+     * are not recorded either.
+     */
+	private static void write(DurableMap<Integer, String> d, TreeMap<Integer, String> model,
+			ArrayList<Pair<Integer, String>> history, Random rnd, int i) {
+
+		int key = rnd.nextInt(KEYS);
+		if(rnd.nextInt(10) < 7) {
+			String value = "value " + i + " of key " + key;
+			d.put(key, value);
+			model.put(key, value);
+			history.add(new Pair<>(key, value));
+		}
+		else if(d.remove(key) != null) {
+			model.remove(key);
+			history.add(new Pair<>(key, null));
+		}
+	}
+
+	/**
+     * Replays history from the start and returns the length of the
+     * longest prefix that leaves exactly the pairs in recovered, or -1 if
+     * none does. It keeps count of the keys whose replayed value differs
+     * from the recovered one, so each write is checked in O(log n).
+     */
+	private static int matchingPrefix(TreeMap<Integer, String> recovered,
+			ArrayList<Pair<Integer, String>> history) {
+
+		TreeMap<Integer, String> replayed = new TreeMap<>();
+		int differing = recovered.size();
+		int longest = differing == 0 ? 0 : -1;
+		for(int i = 0; i < history.size(); i++) {
+			Pair<Integer, String> w = history.get(i);
+			String want = recovered.get(w.key);
+			String had = w.value == null ? replayed.remove(w.key) : replayed.put(w.key, w.value);
+			boolean matched = had == null ? want == null : had.equals(want);
+			boolean matches = w.value == null ? want == null : w.value.equals(want);
+			differing += (matched ? 1 : 0) - (matches ? 1 : 0);
+			if(differing == 0)
+				longest = i + 1;
+		}
+		return longest;
+	}
+
+	private static TreeMap<Integer, String> contents(AvlMap<Integer, String> m) {
+
+		TreeMap<Integer, String> t = new TreeMap<>();
+		for(Pair<Integer, String> p : m)
+			t.put(p.key, p.value);
+		return t;
+	}
+
+	private static void copy(File from, File to) throws IOException {
+
+		to.mkdirs();
+		for(File f : from.listFiles())
+			Files.copy(f.toPath(), new File(to, f.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static File clear(File dir) {
+
+		File[] files = dir.listFiles();
+		if(files != null)
+			for(File f : files)
+				f.delete();
+		return dir;
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Compares get latency of a live AvlMap with the FrozenAvlMap returned by
+ * its freeze(), at several sizes, and reports the time freeze() takes. The
+ * keys are the Integers 0, 2, 4, ... and the lookups are random, half of
+ * them misses.
+ *
+ * 100M keys need a heap of about 16 GB, e.g.
+ *   java -Xmx16g FreezeBenchmark 1000000,10000000,100000000
+ *
+ * Usage: java FreezeBenchmark [sizes] [lookups] [rounds]
+ */
+
+import java.util.Random;
+
+public class FreezeBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+
+	public static void main(String[] args) {
+
+		String[] sizes = (args.length > 0 ? args[0] : "1000000,10000000").split(",");
+		int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 5000000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+		System.out.println(lookups + " lookups, best of " + rounds + " rounds");
+		System.out.printf("%12s %14s %14s %12s%n", "n", "live ns/get", "frozen ns/get", "freeze ms");
+
+		for(String s : sizes) {
+			int n = Integer.parseInt(s.trim());
+
+			AvlMap<Integer, Integer> live = new AvlMap<>();
+			for(int i = 0; i < n; i++)
+				live.putNear(2 * i, i);
+
+			long start = System.nanoTime();
+			FrozenAvlMap<Integer, Integer> frozen = live.freeze();
+			long freezeNanos = System.nanoTime() - start;
+
+			Random rnd = new Random(42);
+			Integer[] probes = new Integer[lookups];
+			for(int i = 0; i < lookups; i++)
+				probes[i] = rnd.nextInt(2 * n);
+
+			long bestLive = Long.MAX_VALUE, bestFrozen = Long.MAX_VALUE;
+			for(int r = 0; r < rounds; r++) {
+				bestLive = Math.min(bestLive, time(live, probes));
+				bestFrozen = Math.min(bestFrozen, time(frozen, probes));
+			}
+
+			System.out.printf("%12d %14.1f %14.1f %12.1f%n", n, (double) bestLive / lookups,
+					(double) bestFrozen / lookups, freezeNanos / 1e6);
+		}
+		if(sink == 42)
+			System.out.println();
+	}
+
+	private static long time(Map<Integer, Integer> m, Integer[] probes) {
+
+		long start = System.nanoTime();
+		for(Integer k : probes) {
+			Integer v = m.get(k);
+			if(v != null)
+				sink += v;
+		}
+		return System.nanoTime() - start;
+	}
+}
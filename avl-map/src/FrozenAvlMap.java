@@ -0,0 +1,164 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The FrozenAvlMap class is an immutable sorted Map built by
+ * AvlMap.freeze(). The pairs are stored in flat key and value arrays in
+ * Eytzinger order: the root at index 1 and the children of node i at 2i
+ * and 2i + 1, as in a binary heap. A search is then a loop over one index,
+ *
+ *     i = 2 * i + (keys[i] < key ? 1 : 0)
+ *
+ * with no child pointers to load and no early exit, so the branch on the
+ * comparison can be compiled to a conditional move. The top levels of the
+ * tree share a few cache lines, and the 16 descendants of a node four
+ * levels down are adjacent in the array.
+ *
+ * Iteration walks the same layout in ascending key order.
+ */
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class FrozenAvlMap<K extends Comparable<? super K>, V> implements Map<K,V>, Iterable<Pair<K,V>> {
+
+	private final K[] keys;			// Eytzinger order, keys[0] unused
+	private final V[] values;		// parallel to keys
+	private final int n;
+	private final Comparator<? super K> cmp;	// null for natural ordering
+
+	/**
+     * Lays out pairs given in ascending key order.
+     * @param sortedKeys the keys in strictly increasing order.
+     * @param sortedValues their values.
+     * @param c the ordering of the keys, or null for the natural ordering.
+     */
+	@SuppressWarnings("unchecked")
+	FrozenAvlMap(K[] sortedKeys, V[] sortedValues, Comparator<? super K> c) {
+
+		n = sortedKeys.length;
+		keys = (K[]) new Comparable[n + 1];
+		values = (V[]) new Object[n + 1];
+		cmp = c;
+		layout(sortedKeys, sortedValues, 0, 1);
+	}
+
+	/**
+     * Fills the subtree rooted at index i by an in-order walk, taking the
+     * pairs from position next on.
+     * @return the position of the first pair not used.
+     */
+	private int layout(K[] sortedKeys, V[] sortedValues, int next, int i) {
+
+		if(i > n)
+			return next;
+
+		next = layout(sortedKeys, sortedValues, next, 2 * i);
+		keys[i] = sortedKeys[next];
+		values[i] = sortedValues[next];
+		return layout(sortedKeys, sortedValues, next + 1, 2 * i + 1);
+	}
+
+	/**
+     * Returns the index of the smallest key >= key, or 0 if there is none.
+     */
+	private int lowerBound(K key) {
+
+		int i = 1;
+		if(cmp == null)
+			while(i <= n)
+				i = 2 * i + (keys[i].compareTo(key) < 0 ? 1 : 0);
+		else
+			while(i <= n)
+				i = 2 * i + (cmp.compare(keys[i], key) < 0 ? 1 : 0);
+
+		// drop the trailing right turns and the last left turn
+		return i >>> (Integer.numberOfTrailingZeros(~i) + 1);
+	}
+
+	private int compareKeys(K lhs, K rhs) {
+
+		return cmp == null ? lhs.compareTo(rhs) : cmp.compare(lhs, rhs);
+	}
+
+	/**
+     * Returns a value given a key, or null if the key is absent.
+     */
+	public V get(K key) {
+
+		int i = lowerBound(key);
+		return (i != 0 && compareKeys(keys[i], key) == 0) ? values[i] : null;
+	}
+
+	/**
+     * Returns the smallest key greater than or equal to key, or null.
+     */
+	public K ceilingKey(K key) {
+
+		return keys[lowerBound(key)];
+	}
+
+	public int size() {
+
+		return n;
+	}
+
+	public void put(K key, V value) {
+		throw new UnsupportedOperationException("Frozen maps are read-only");
+	}
+
+	public V remove(K key) {
+		throw new UnsupportedOperationException("Frozen maps are read-only");
+	}
+
+	/**
+     * Iterates every pair in ascending key order. Each call to next
+     * allocates the Pair it returns.
+     */
+	public Iterator<Pair<K,V>> iterator() {
+
+		return new Iterator<Pair<K,V>>() {
+
+			private int i = leftmost(1);
+
+			public boolean hasNext() {
+				return i != 0;
+			}
+
+			public Pair<K,V> next() {
+				if(i == 0)
+					throw new NoSuchElementException();
+				Pair<K,V> pair = new Pair<K,V>(keys[i], values[i]);
+				i = successor(i);
+				return pair;
+			}
+		};
+	}
+
+	/**
+     * Returns the leftmost node of the subtree rooted at i, or 0 if the
+     * subtree is empty.
+     */
+	private int leftmost(int i) {
+
+		if(i > n)
+			return 0;
+		while(2 * i <= n)
+			i = 2 * i;
+		return i;
+	}
+
+	/**
+     * Returns the in-order successor of node i, or 0 after the last node.
+     */
+	private int successor(int i) {
+
+		if(2 * i + 1 <= n)
+			return leftmost(2 * i + 1);
+
+		// climb while i is a right child; its parent is then the successor
+		while((i & 1) == 1)
+			i >>>= 1;
+		return i >>> 1;
+	}
+}
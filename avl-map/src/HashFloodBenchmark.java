@@ -0,0 +1,100 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Times SeparateChainingMap put and get on keys built to collide. The
+ * "colliding" Strings are concatenations of "Aa" and "BB", which all share
+ * one String.hashCode(), so without seeded hashing every key would land in
+ * one chain. The "same hashCode" keys return a constant hashCode(), which
+ * no seed can separate; they end up in a single bucket that is searched as
+ * an AvlTree. Both are compared with ordinary distinct Strings.
+ *
+ * Usage: java HashFloodBenchmark [n] [rounds]
+ */
+
+public class HashFloodBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 16;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		String[] normal = new String[n];
+		String[] colliding = new String[n];
+		SameHash[] sameHash = new SameHash[n];
+		for(int i = 0; i < n; i++) {
+			normal[i] = "key" + i;
+			colliding[i] = collidingString(i, n);
+			sameHash[i] = new SameHash(i);
+		}
+
+		System.out.println("n = " + n + ", best of " + rounds + " rounds");
+		System.out.printf("%-16s %12s %12s %14s %12s%n", "keys", "put ns/op", "get ns/op", "max bucket", "tree buckets");
+		run("distinct", normal, rounds);
+		run("colliding", colliding, rounds);
+		run("same hashCode", sameHash, rounds);
+
+		if(sink == 42)
+			System.out.println();
+	}
+
+	/**
+     * Returns the i-th string of "Aa"/"BB" blocks, enough of them for n
+     * distinct strings. All such strings of one length share a hashCode.
+     */
+	private static String collidingString(int i, int n) {
+
+		int blocks = 32 - Integer.numberOfLeadingZeros(Math.max(n - 1, 1));
+		StringBuilder sb = new StringBuilder(2 * blocks);
+		for(int b = 0; b < blocks; b++)
+			sb.append(((i >>> b) & 1) == 0 ? "Aa" : "BB");
+		return sb.toString();
+	}
+
+	private static <K extends Comparable<? super K>> void run(String label, K[] keys, int rounds) {
+
+		long bestPut = Long.MAX_VALUE, bestGet = Long.MAX_VALUE;
+		SeparateChainingMap<K, Integer> m = null;
+		for(int r = 0; r < rounds; r++) {
+			m = new SeparateChainingMap<>();
+			long start = System.nanoTime();
+			for(int i = 0; i < keys.length; i++)
+				m.put(keys[i], i);
+			bestPut = Math.min(bestPut, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for(K k : keys)
+				sink += m.get(k);
+			bestGet = Math.min(bestGet, System.nanoTime() - start);
+		}
+
+		java.util.Map<String, Object> metrics = m.metrics();
+		System.out.printf("%-16s %12.1f %12.1f %14s %12s%n", label, (double) bestPut / keys.length,
+				(double) bestGet / keys.length, metrics.get("maxChainLength"), metrics.get("treeBuckets"));
+	}
+
+	/**
+     * An Integer key whose hashCode() is the same for every instance.
+     */
+	private static class SameHash implements Comparable<SameHash> {
+
+		private final int id;
+
+		SameHash(int id) {
+			this.id = id;
+		}
+
+		public int hashCode() {
+			return 1;
+		}
+
+		public boolean equals(Object o) {
+			return o instanceof SameHash && ((SameHash) o).id == id;
+		}
+
+		public int compareTo(SameHash other) {
+			return Integer.compare(id, other.id);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Compares throughput and retained heap of SeparateChainingMap and
+ * OpenAddressingMap. Usage: java HashMapBenchmark [n] [rounds]
+ */
+
+import java.util.function.Supplier;
+
+public class HashMapBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		String[] keys = new String[n];
+		String[] misses = new String[n];
+		for(int i = 0; i < n; i++) {
+			keys[i] = "key" + i;
+			misses[i] = "miss" + i;
+		}
+
+		System.out.println("n = " + n + ", best of " + rounds + " rounds");
+		System.out.printf("%-20s %12s %12s %12s %14s%n",
+				"map", "put ns/op", "hit ns/op", "miss ns/op", "bytes/entry");
+
+		run("SeparateChainingMap", SeparateChainingMap::new, keys, misses, rounds);
+		run("OpenAddressingMap", OpenAddressingMap::new, keys, misses, rounds);
+
+		if(sink == 42)
+			System.out.println();
+	}
+
+	/**
+     * Times puts, successful gets and unsuccessful gets for one
+     * implementation, then measures the heap retained by a full map.
+     */
+	private static void run(String name, Supplier<Map<String, Integer>> factory,
+			String[] keys, String[] misses, int rounds) {
+
+		Integer value = 1;
+		long[] best = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+
+		for(int r = 0; r < rounds; r++)
+			timeRound(factory.get(), keys, misses, value, best);
+
+		long before = usedMemory();
+		Map<String, Integer> m = factory.get();
+		for(String k : keys)
+			m.put(k, value);
+		long after = usedMemory();
+		sink += m.get(keys[0]);
+
+		int n = keys.length;
+		System.out.printf("%-20s %12.1f %12.1f %12.1f %14.1f%n", name,
+				(double) best[0] / n, (double) best[1] / n, (double) best[2] / n,
+				(double) (after - before) / n);
+	}
+
+	/**
+     * Runs one round against a fresh map, keeping the fastest put, hit and
+     * miss times seen so far in best. The map is unreachable on return, so
+     * it does not skew the memory measurement.
+     */
+	private static void timeRound(Map<String, Integer> m, String[] keys,
+			String[] misses, Integer value, long[] best) {
+
+		long start = System.nanoTime();
+		for(String k : keys)
+			m.put(k, value);
+		best[0] = Math.min(best[0], System.nanoTime() - start);
+
+		start = System.nanoTime();
+		for(String k : keys)
+			sink += m.get(k);
+		best[1] = Math.min(best[1], System.nanoTime() - start);
+
+		start = System.nanoTime();
+		for(String k : misses)
+			if(m.get(k) != null)
+				sink++;
+		best[2] = Math.min(best[2], System.nanoTime() - start);
+	}
+
+	private static long usedMemory() {
+
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -0,0 +1,332 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The IntIntHashMap class is a linear probing hash table from primitive
+ * int keys to primitive int values, laid out like OpenAddressingMap but
+ * with int[] keys and values, so nothing is boxed or allocated per entry.
+ * Key 0 marks an empty slot, so a pair whose key is 0 is kept outside the
+ * table.
+ *
+ * It has the operations of Map with int keys and values. Since an int
+ * cannot be null, get and remove return the map's noEntryValue (0 unless
+ * given to the constructor) for an absent key; containsKey tells the two
+ * apart.
+ */
+
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+public class IntIntHashMap {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final int FREE = 0;
+
+	private int[] keys;			// keys, FREE marks an empty slot
+	private int[] values;		// values, parallel to keys
+	private int mask;			// capacity - 1
+	private int keyCount;		// keys in the table, not counting key 0
+	private int threshold;		// keyCount at which the table grows
+	private final float loadFactor;
+	private final int noEntryValue;
+
+	private boolean hasFreeKey;	// whether key 0 is present
+	private int freeValue;		// its value
+
+	public IntIntHashMap() {
+
+		this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, 0);
+	}
+
+	/**
+     * Creates a table able to hold expectedSize keys without growing,
+     * which is resized once keyCount / capacity exceeds loadFactor. get
+     * and remove return noEntryValue for absent keys.
+     */
+	public IntIntHashMap(int expectedSize, float loadFactor, int noEntryValue) {
+
+		if(loadFactor <= 0 || loadFactor >= 1)
+			throw new IllegalArgumentException("Load factor must be in (0, 1): "
+		+ loadFactor);
+
+		this.loadFactor = loadFactor;
+		this.noEntryValue = noEntryValue;
+		allocate(tableSizeFor((int) Math.ceil(expectedSize / loadFactor)));
+	}
+
+	/**
+     * Spreads the high bits of the key into the low bits, since only the
+     * low bits are used to index a power of two table.
+     */
+	private static int hash(int key) {
+
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+     * Returns the smallest power of two that is >= n, and at least 2.
+     * @throws IllegalArgumentException if that exceeds MAXIMUM_CAPACITY.
+     */
+	private static int tableSizeFor(int n) {
+
+		if(n > MAXIMUM_CAPACITY)
+			throw new IllegalArgumentException("Capacity exceeds " + MAXIMUM_CAPACITY + ": " + n);
+		return n <= 2 ? 2 : Integer.highestOneBit(n - 1) << 1;
+	}
+
+	private void allocate(int capacity) {
+
+		keys = new int[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		threshold = (int) (capacity * loadFactor);
+	}
+
+	/**
+     * Inserts a key/value pair into the hash table, replacing the value
+     * if the key is already present.
+     */
+	public void put(int key, int value) {
+
+		if(key == FREE) {
+			hasFreeKey = true;
+			freeValue = value;
+			return;
+		}
+
+		int index = hash(key) & mask;
+
+		// probe until the key or an empty slot is found
+		while(keys[index] != FREE) {
+			if(keys[index] == key) {
+				values[index] = value;
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+
+		if(keyCount == MAXIMUM_CAPACITY - 1)
+			throw new IllegalStateException("Map is full: " + keyCount + " keys");
+		keys[index] = key;
+		values[index] = value;
+
+		if(++keyCount > threshold)
+			rehash();
+	}
+
+	/**
+     * Returns the value for key, or noEntryValue if the key is absent.
+     */
+	public int get(int key) {
+
+		if(key == FREE)
+			return hasFreeKey ? freeValue : noEntryValue;
+
+		int index = indexOf(key);
+		return index < 0 ? noEntryValue : values[index];
+	}
+
+	public boolean containsKey(int key) {
+
+		return key == FREE ? hasFreeKey : indexOf(key) >= 0;
+	}
+
+	/**
+     * Returns the slot holding a non-zero key, or -1.
+     */
+	private int indexOf(int key) {
+
+		int index = hash(key) & mask;
+		int probe;
+
+		while((probe = keys[index]) != FREE) {
+			if(probe == key)
+				return index;
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+     * Insert the pair only if key is absent.
+     * @return the value already present, or noEntryValue if the pair was
+     * inserted.
+     */
+	public int putIfAbsent(int key, int value) {
+
+		if(containsKey(key))
+			return get(key);
+		put(key, value);
+		return noEntryValue;
+	}
+
+	/**
+     * Returns the value for key, first inserting mappingFunction(key) if
+     * the key is absent.
+     */
+	public int computeIfAbsent(int key, IntUnaryOperator mappingFunction) {
+
+		if(containsKey(key))
+			return get(key);
+		int value = mappingFunction.applyAsInt(key);
+		put(key, value);
+		return value;
+	}
+
+	/**
+     * Inserts value if key is absent, otherwise replaces the old value by
+     * remappingFunction(old, value), e.g. Integer::sum for counting.
+     * @return the new value.
+     */
+	public int merge(int key, int value, IntBinaryOperator remappingFunction) {
+
+		if(key == FREE) {
+			freeValue = hasFreeKey ? remappingFunction.applyAsInt(freeValue, value) : value;
+			hasFreeKey = true;
+			return freeValue;
+		}
+
+		int index = indexOf(key);
+		if(index >= 0)
+			return values[index] = remappingFunction.applyAsInt(values[index], value);
+		put(key, value);
+		return value;
+	}
+
+	/**
+     * Removes the pair for key, if any. The entries that follow it in the
+     * probe sequence are shifted back into the gap, so no tombstones are
+     * needed and later probes stay short.
+     * @return the value that was removed, or noEntryValue.
+     */
+	public int remove(int key) {
+
+		if(key == FREE) {
+			if(!hasFreeKey)
+				return noEntryValue;
+			hasFreeKey = false;
+			return freeValue;
+		}
+
+		int gap = indexOf(key);
+		if(gap < 0)
+			return noEntryValue;
+		int old = values[gap];
+
+		// move back every entry whose home slot does not lie after the gap
+		int index = gap;
+		while(true) {
+			index = (index + 1) & mask;
+			if(keys[index] == FREE)
+				break;
+
+			int home = hash(keys[index]) & mask;
+			if(((index - home) & mask) >= ((index - gap) & mask)) {
+				keys[gap] = keys[index];
+				values[gap] = values[index];
+				gap = index;
+			}
+		}
+
+		keys[gap] = FREE;
+		keyCount--;
+		return old;
+	}
+
+	/**
+     * Returns the number of keys in the map.
+     */
+	public int size() {
+
+		return keyCount + (hasFreeKey ? 1 : 0);
+	}
+
+	public boolean isEmpty() {
+
+		return size() == 0;
+	}
+
+	/**
+     * Returns the number of slots in the table.
+     */
+	public int capacity() {
+
+		return mask + 1;
+	}
+
+	/**
+     * Returns a cursor positioned before the first pair.
+     */
+	public Cursor cursor() {
+
+		return new Cursor();
+	}
+
+	/**
+     * Walks the pairs in table order without boxing:
+     *
+     *     IntIntHashMap.Cursor c = m.cursor();
+     *     while(c.advance())
+     *         use(c.key(), c.value());
+     *
+     * The map must not be modified while a cursor is in use.
+     */
+	public class Cursor {
+
+		private int index = hasFreeKey ? -2 : -1;	// -1 is key 0
+
+		private Cursor() {
+		}
+
+		/**
+         * Moves to the next pair.
+         * @return false if there is none.
+         */
+		public boolean advance() {
+			while(++index < keys.length)
+				if(index < 0 || keys[index] != FREE)
+					return true;
+			return false;
+		}
+
+		public int key() {
+			return index < 0 ? FREE : keys[index];
+		}
+
+		public int value() {
+			return index < 0 ? freeValue : values[index];
+		}
+	}
+
+	/**
+     * Doubles the table and reinserts every key, so that each key lands
+     * in its slot for the new mask. A table of MAXIMUM_CAPACITY cannot
+     * double, so it is left to fill instead, up to the one free slot that
+     * every probe needs to stop at.
+     */
+	private void rehash() {
+
+		if(keys.length == MAXIMUM_CAPACITY) {
+			threshold = MAXIMUM_CAPACITY - 1;
+			return;
+		}
+
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(oldKeys.length * 2);
+
+		for(int i = 0; i < oldKeys.length; i++) {
+			int key = oldKeys[i];
+			if(key == FREE)
+				continue;
+
+			int index = hash(key) & mask;
+			while(keys[index] != FREE)
+				index = (index + 1) & mask;
+			keys[index] = key;
+			values[index] = oldValues[i];
+		}
+	}
+}
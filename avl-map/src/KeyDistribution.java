@@ -0,0 +1,85 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The KeyDistribution class generates the key streams used by the
+ * benchmarks: sequential, uniform and Zipfian draws from [0, n).
+ */
+
+import java.util.Random;
+
+public enum KeyDistribution {
+
+	SEQUENTIAL, UNIFORM, ZIPFIAN;
+
+	/** Skew of the Zipfian distribution; 0.99 is the usual YCSB setting. */
+	public static final double ZIPF_EXPONENT = 0.99;
+
+	/**
+     * Returns count keys drawn from [0, n) with this distribution.
+     * The same seed always yields the same stream.
+     */
+	public int[] sample(int n, int count, long seed) {
+
+		Random rnd = new Random(seed);
+		int[] keys = new int[count];
+
+		switch(this) {
+		case SEQUENTIAL:
+			for(int i = 0; i < count; i++)
+				keys[i] = i % n;
+			break;
+		case UNIFORM:
+			for(int i = 0; i < count; i++)
+				keys[i] = rnd.nextInt(n);
+			break;
+		case ZIPFIAN:
+			double[] cdf = zipfCdf(n);
+			for(int i = 0; i < count; i++)
+				keys[i] = scatter(search(cdf, rnd.nextDouble()), n);
+			break;
+		}
+		return keys;
+	}
+
+	/**
+     * Cumulative probabilities of ranks 0..n-1, where rank r has weight
+     * 1 / (r + 1)^ZIPF_EXPONENT.
+     */
+	private static double[] zipfCdf(int n) {
+
+		double[] cdf = new double[n];
+		double sum = 0;
+		for(int r = 0; r < n; r++) {
+			sum += 1.0 / Math.pow(r + 1, ZIPF_EXPONENT);
+			cdf[r] = sum;
+		}
+		for(int r = 0; r < n; r++)
+			cdf[r] /= sum;
+		return cdf;
+	}
+
+	/**
+     * Returns the first rank whose cumulative probability is >= u.
+     */
+	private static int search(double[] cdf, double u) {
+
+		int lo = 0, hi = cdf.length - 1;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(cdf[mid] < u)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+     * Maps a rank to a key so that the hot keys are spread over [0, n)
+     * instead of all sitting at its start.
+     */
+	private static int scatter(int rank, int n) {
+
+		return (int) ((rank * 2654435761L) % n);
+	}
+}
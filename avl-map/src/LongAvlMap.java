@@ -0,0 +1,390 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The LongAvlMap class is an AVL tree keyed by primitive longs. It is laid
+ * out like ArenaAvlMap: a node is an index into parallel arrays, with the
+ * keys in a long[], so put, get and iteration never box a key and no Pair
+ * or node object is allocated per entry.
+ *
+ * It has the operations of Map with long keys. get returns null for an
+ * absent key, so values may not be null. A Cursor walks the pairs in
+ * ascending key order.
+ */
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.LongFunction;
+
+public class LongAvlMap<V> {
+
+	private static final int NIL = -1;
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int ALLOWED_IMBALANCE = 1;
+
+	private long[] keys;
+	private V[] values;
+	private int[] left;
+	private int[] right;
+	private int[] height;
+
+	private int root = NIL;
+	private int used;			// slots ever handed out, i.e. the arena's high-water mark
+	private int freeList = NIL;	// head of the chain of removed slots
+	private int keyCount;
+
+	public LongAvlMap() {
+
+		this(DEFAULT_CAPACITY);
+	}
+
+	@SuppressWarnings("unchecked")
+	public LongAvlMap(int initialCapacity) {
+
+		int capacity = Math.max(initialCapacity, 1);
+		keys = new long[capacity];
+		values = (V[]) new Object[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		height = new int[capacity];
+	}
+
+	/**
+     * Insert a key/value pair into the tree, replacing the value if the
+     * key is already present.
+     */
+	public void put(long key, V value) {
+
+		if(value == null)
+			throw new IllegalArgumentException("Null values are not supported");
+		root = insert(key, value, root);
+	}
+
+	/**
+     * Returns a value given a key, or null if the key is absent.
+     */
+	public V get(long key) {
+
+		int t = find(key);
+		return t == NIL ? null : values[t];
+	}
+
+	public boolean containsKey(long key) {
+
+		return find(key) != NIL;
+	}
+
+	/**
+     * Remove the pair for key, if any. Its slot goes on the free list.
+     * @return the value that was removed, or null.
+     */
+	public V remove(long key) {
+
+		int t = find(key);
+		if(t == NIL)
+			return null;
+
+		V old = values[t];
+		root = remove(key, root);
+		return old;
+	}
+
+	/**
+     * Insert the pair only if key is absent.
+     * @return the value already present, or null if the pair was inserted.
+     */
+	public V putIfAbsent(long key, V value) {
+
+		V old = get(key);
+		if(old == null)
+			put(key, value);
+		return old;
+	}
+
+	/**
+     * Returns the value for key, first inserting mappingFunction(key) if
+     * the key is absent. Nothing is inserted if the function returns null.
+     */
+	public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+
+		V value = get(key);
+		if(value == null) {
+			value = mappingFunction.apply(key);
+			if(value != null)
+				put(key, value);
+		}
+		return value;
+	}
+
+	/**
+     * Inserts value if key is absent, otherwise replaces the old value by
+     * remappingFunction(old, value), removing the pair if that is null.
+     * @return the new value, or null if the pair was removed.
+     */
+	public V merge(long key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+
+		int t = find(key);
+		if(t == NIL) {
+			put(key, value);
+			return value;
+		}
+
+		V newValue = remappingFunction.apply(values[t], value);
+		if(newValue == null)
+			root = remove(key, root);
+		else
+			values[t] = newValue;
+		return newValue;
+	}
+
+	/**
+     * Returns the slot holding key, or NIL.
+     */
+	private int find(long key) {
+
+		int t = root;
+
+		while(t != NIL) {
+			long k = keys[t];
+
+			if(key < k)
+				t = left[t];
+			else if(key > k)
+				t = right[t];
+			else
+				return t;    // Match
+		}
+		return NIL;
+	}
+
+	/**
+     * Returns the number of pairs in the tree.
+     */
+	public int size() {
+
+		return keyCount;
+	}
+
+	public boolean isEmpty() {
+
+		return keyCount == 0;
+	}
+
+	/**
+     * Returns a cursor positioned before the smallest key.
+     */
+	public Cursor cursor() {
+
+		return new Cursor();
+	}
+
+	/**
+     * Walks the pairs in ascending key order without boxing:
+     *
+     *     LongAvlMap<V>.Cursor c = m.cursor();
+     *     while(c.advance())
+     *         use(c.key(), c.value());
+     *
+     * The tree must not be modified while a cursor is in use.
+     */
+	public class Cursor {
+
+		private final int[] stack = new int[height(root) + 2];	// ancestors still to visit
+		private int depth;
+		private int current = NIL;
+
+		private Cursor() {
+			pushLeft(root);
+		}
+
+		private void pushLeft(int t) {
+			for(; t != NIL; t = left[t])
+				stack[depth++] = t;
+		}
+
+		/**
+         * Moves to the next pair.
+         * @return false if there is none.
+         */
+		public boolean advance() {
+			if(depth == 0) {
+				current = NIL;
+				return false;
+			}
+			current = stack[--depth];
+			pushLeft(right[current]);
+			return true;
+		}
+
+		public long key() {
+			return keys[current];
+		}
+
+		public V value() {
+			return values[current];
+		}
+	}
+
+	/**
+     * Takes a slot from the free list, or from the end of the arena,
+     * doubling the arrays when they are full.
+     */
+	private int allocate(long key, V value) {
+
+		int n;
+		if(freeList != NIL) {
+			n = freeList;
+			freeList = left[n];
+		}
+		else {
+			if(used == keys.length)
+				grow();
+			n = used++;
+		}
+
+		keys[n] = key;
+		values[n] = value;
+		left[n] = NIL;
+		right[n] = NIL;
+		height[n] = 0;
+		keyCount++;
+		return n;
+	}
+
+	/**
+     * Returns slot n to the free list, clearing its value so it can be
+     * collected.
+     */
+	private void free(int n) {
+
+		values[n] = null;
+		left[n] = freeList;
+		freeList = n;
+		keyCount--;
+	}
+
+	private void grow() {
+
+		int capacity = keys.length * 2;
+		keys = Arrays.copyOf(keys, capacity);
+		values = Arrays.copyOf(values, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		height = Arrays.copyOf(height, capacity);
+	}
+
+	private int height(int t) {
+
+		return t == NIL ? -1 : height[t];
+	}
+
+	/**
+     * Internal method to insert into a subtree.
+     * @return the new root of the subtree.
+     */
+	private int insert(long key, V value, int t) {
+
+		if(t == NIL)
+			return allocate(key, value);
+
+		if(key < keys[t]) {
+			int l = insert(key, value, left[t]);
+			left[t] = l;
+		}
+		else if(key > keys[t]) {
+			int r = insert(key, value, right[t]);
+			right[t] = r;
+		}
+		else
+			values[t] = value;
+		return balance(t);
+	}
+
+	/**
+     * Internal method to remove from a subtree.
+     * @return the new root of the subtree.
+     */
+	private int remove(long key, int t) {
+
+		if(t == NIL)
+			return t;   // Item not found; do nothing
+
+		if(key < keys[t]) {
+			int l = remove(key, left[t]);
+			left[t] = l;
+		}
+		else if(key > keys[t]) {
+			int r = remove(key, right[t]);
+			right[t] = r;
+		}
+		else if(left[t] != NIL && right[t] != NIL) { // Two children
+			int min = right[t];
+			while(left[min] != NIL)
+				min = left[min];
+			keys[t] = keys[min];
+			values[t] = values[min];
+			int r = remove(keys[t], right[t]);
+			right[t] = r;
+		}
+		else {
+			int child = (left[t] != NIL) ? left[t] : right[t];
+			free(t);
+			return child;
+		}
+		return balance(t);
+	}
+
+	// Assume t is either balanced or within one of being balanced
+	private int balance(int t) {
+
+		if(t == NIL)
+			return t;
+
+		if(height(left[t]) - height(right[t]) > ALLOWED_IMBALANCE) {
+			if(height(left[left[t]]) >= height(right[left[t]]))
+				t = rotateWithLeftChild(t);
+			else
+				t = doubleWithLeftChild(t);
+		}
+		else if(height(right[t]) - height(left[t]) > ALLOWED_IMBALANCE) {
+			if(height(right[right[t]]) >= height(left[right[t]]))
+				t = rotateWithRightChild(t);
+			else
+				t = doubleWithRightChild(t);
+		}
+
+		height[t] = Math.max(height(left[t]), height(right[t])) + 1;
+		return t;
+	}
+
+	private int rotateWithLeftChild(int k2) {
+
+		int k1 = left[k2];
+		left[k2] = right[k1];
+		right[k1] = k2;
+		height[k2] = Math.max(height(left[k2]), height(right[k2])) + 1;
+		height[k1] = Math.max(height(left[k1]), height[k2]) + 1;
+		return k1;
+	}
+
+	private int rotateWithRightChild(int k1) {
+
+		int k2 = right[k1];
+		right[k1] = left[k2];
+		left[k2] = k1;
+		height[k1] = Math.max(height(left[k1]), height(right[k1])) + 1;
+		height[k2] = Math.max(height(right[k2]), height[k1]) + 1;
+		return k2;
+	}
+
+	private int doubleWithLeftChild(int k3) {
+
+		left[k3] = rotateWithRightChild(left[k3]);
+		return rotateWithLeftChild(k3);
+	}
+
+	private int doubleWithRightChild(int k1) {
+
+		right[k1] = rotateWithLeftChild(right[k1]);
+		return rotateWithRightChild(k1);
+	}
+}
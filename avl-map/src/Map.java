@@ -1,6 +1,62 @@
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public interface Map<K, V> {
-	
+
 	public void put(K key, V value);
     public V get(K key);
-}
\ No newline at end of file
+
+    /**
+     * Remove the pair for key, if any.
+     * @return the value that was removed, or null.
+     */
+    public V remove(K key);
+
+    /**
+     * Returns the number of key/value pairs.
+     */
+    public int size();
+
+    /**
+     * Insert the pair only if key is absent.
+     * @return the value already present, or null if the pair was inserted.
+     *
+     * The default looks the key up, then puts; implementations override
+     * it to do both in one traversal.
+     */
+    public default V putIfAbsent(K key, V value) {
+    	V old = get(key);
+    	if(old == null)
+    		put(key, value);
+    	return old;
+    }
+
+    /**
+     * Returns the value for key, first inserting mappingFunction(key) if
+     * the key is absent. Nothing is inserted if the function returns null.
+     */
+    public default V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    	V value = get(key);
+    	if(value == null) {
+    		value = mappingFunction.apply(key);
+    		if(value != null)
+    			put(key, value);
+    	}
+    	return value;
+    }
+
+    /**
+     * Inserts value if key is absent, otherwise replaces the old value by
+     * remappingFunction(old, value), removing the pair if that is null.
+     * @return the new value, or null if the pair was removed.
+     */
+    public default V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+    	V old = get(key);
+    	V newValue = (old == null) ? value : remappingFunction.apply(old, value);
+    	if(newValue == null)
+    		remove(key);
+    	else
+    		put(key, newValue);
+    	return newValue;
+    }
+}
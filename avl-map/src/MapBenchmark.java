@@ -0,0 +1,133 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Runs the same put/get workload against every Map implementation, for
+ * each combination of size, key distribution and write percentage.
+ * Each cell is the best of several rounds over a freshly filled map.
+ *
+ * Usage: java MapBenchmark [sizes] [distributions] [writePercents] [ops] [rounds]
+ * e.g.   java MapBenchmark 1000,100000 UNIFORM,ZIPFIAN 0,10,50 1000000 5
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+public class MapBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+
+	public static void main(String[] args) {
+
+		int[] sizes = ints(args.length > 0 ? args[0] : "1000,100000,1000000");
+		List<KeyDistribution> distributions = new ArrayList<>();
+		for(String d : (args.length > 1 ? args[1] : "SEQUENTIAL,UNIFORM,ZIPFIAN").split(","))
+			distributions.add(KeyDistribution.valueOf(d));
+		int[] writePercents = ints(args.length > 2 ? args[2] : "0,10,50");
+		int ops = args.length > 3 ? Integer.parseInt(args[3]) : 1000000;
+		int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+		LinkedHashMap<String, Supplier<Map<Integer, Integer>>> maps = new LinkedHashMap<>();
+		maps.put("AvlMap", AvlMap::new);
+		maps.put("ArenaAvlMap", ArenaAvlMap::new);
+		maps.put("PersistentAvlMap", PersistentAvlMap::new);
+		maps.put("BPlusTreeMap", BPlusTreeMap::new);
+		maps.put("SeparateChainingMap", SeparateChainingMap::new);
+		maps.put("OpenAddressingMap", OpenAddressingMap::new);
+		maps.put("ConcurrentChainingMap", ConcurrentChainingMap::new);
+
+		System.out.println(ops + " ops per round, best of " + rounds + " rounds");
+		System.out.printf("%-22s %9s %-11s %7s %10s%n", "map", "size", "keys", "writes", "ns/op");
+
+		for(int n : sizes) {
+			Integer[] boxed = new Integer[n];
+			for(int i = 0; i < n; i++)
+				boxed[i] = i;
+
+			for(KeyDistribution dist : distributions) {
+				int[] keys = dist.sample(n, ops, 42);
+
+				for(int writes : writePercents) {
+					boolean[] isWrite = writeMask(ops, writes, 43);
+
+					for(String name : maps.keySet()) {
+						double nsPerOp = run(maps.get(name), boxed, keys, isWrite, rounds);
+						System.out.printf("%-22s %9d %-11s %6d%% %10.1f%n",
+								name, n, dist, writes, nsPerOp);
+					}
+				}
+			}
+		}
+		if(sink == 42)
+			System.out.println();
+	}
+
+	/**
+     * Fills a fresh map with every key in [0, n) in random order, then
+     * replays the operation stream. Returns the best ns/op over rounds.
+     */
+	private static double run(Supplier<Map<Integer, Integer>> factory, Integer[] boxed,
+			int[] keys, boolean[] isWrite, int rounds) {
+
+		int[] fillOrder = shuffled(boxed.length, 44);
+		long best = Long.MAX_VALUE;
+
+		for(int r = 0; r < rounds; r++) {
+			Map<Integer, Integer> m = factory.get();
+			for(int k : fillOrder)
+				m.put(boxed[k], boxed[k]);
+
+			long start = System.nanoTime();
+			for(int i = 0; i < keys.length; i++) {
+				Integer k = boxed[keys[i]];
+				if(isWrite[i])
+					m.put(k, k);
+				else {
+					Integer v = m.get(k);
+					if(v != null)
+						sink += v;
+				}
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return (double) best / keys.length;
+	}
+
+	/**
+     * Returns a random permutation of [0, n).
+     */
+	private static int[] shuffled(int n, long seed) {
+
+		Random rnd = new Random(seed);
+		int[] order = new int[n];
+		for(int i = 0; i < n; i++)
+			order[i] = i;
+		for(int i = n - 1; i > 0; i--) {
+			int j = rnd.nextInt(i + 1);
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+		return order;
+	}
+
+	private static boolean[] writeMask(int ops, int writePercent, long seed) {
+
+		Random rnd = new Random(seed);
+		boolean[] mask = new boolean[ops];
+		for(int i = 0; i < ops; i++)
+			mask[i] = rnd.nextInt(100) < writePercent;
+		return mask;
+	}
+
+	private static int[] ints(String csv) {
+
+		String[] parts = csv.split(",");
+		int[] result = new int[parts.length];
+		for(int i = 0; i < parts.length; i++)
+			result[i] = Integer.parseInt(parts[i].trim());
+		return result;
+	}
+}
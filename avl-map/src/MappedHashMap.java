@@ -0,0 +1,191 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The MappedHashMap class is a read-only Map served straight from a
+ * memory-mapped hash snapshot, e.g. one written from a SeparateChainingMap.
+ * The file holds a bucket directory followed by the entries grouped by
+ * bucket, so get() hashes the key, reads two directory slots and compares
+ * the stored hashes and key bytes of one short run of entries; only the
+ * value it returns is decoded. Nothing is rebuilt on the heap.
+ *
+ * File layout (big-endian ints, at most 2 GB):
+ *
+ *     magic "HSHS", version, count, bucketCount (a power of two)
+ *     bucketCount + 1 directory offsets; bucket b's entries lie in
+ *         [dir[b], dir[b + 1])
+ *     count entries: hash, keyLength, key bytes, valueLength, value bytes
+ *
+ * Keys' hashCode() must be the same in the writing and reading processes,
+ * as it is for String, Integer and Long.
+ */
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+public class MappedHashMap<K extends Comparable<? super K>, V> implements Map<K,V> {
+
+	private static final int MAGIC = 0x48534853;	// "HSHS"
+	private static final int VERSION = 1;
+	private static final int HEADER = 16;
+
+	private final MappedByteBuffer buf;
+	private final Codec<K> keyCodec;
+	private final Codec<V> valueCodec;
+	private final int count;
+	private final int mask;
+
+	private MappedHashMap(MappedByteBuffer buf, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+
+		if(buf.capacity() < HEADER || buf.getInt(0) != MAGIC)
+			throw new IOException("Not a hash map snapshot");
+		if(buf.getInt(4) != VERSION)
+			throw new IOException("Unsupported snapshot version: " + buf.getInt(4));
+
+		this.buf = buf;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.count = buf.getInt(8);
+		this.mask = buf.getInt(12) - 1;
+	}
+
+	/**
+     * Spreads the hash code so the low bits used for the bucket depend on
+     * every bit of the original.
+     */
+	private static int hash(Object key) {
+
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+     * Writes pairs, which must have distinct keys, to file. The bucket
+     * count is the smallest power of two not below the number of pairs.
+     */
+	public static <K extends Comparable<? super K>, V> void write(Iterable<Pair<K,V>> pairs, File file,
+			Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+
+		ArrayList<byte[]> keys = new ArrayList<>();
+		ArrayList<byte[]> values = new ArrayList<>();
+		ArrayList<Integer> hashes = new ArrayList<>();
+		for(Pair<K,V> p : pairs) {
+			keys.add(keyCodec.encode(p.key));
+			values.add(valueCodec.encode(p.value));
+			hashes.add(hash(p.key));
+		}
+
+		int n = keys.size();
+		int buckets = 1;
+		while(buckets < n)
+			buckets <<= 1;
+
+		// counting sort of the entries by bucket
+		int[] start = new int[buckets + 1];
+		for(int h : hashes)
+			start[(h & (buckets - 1)) + 1]++;
+		for(int b = 0; b < buckets; b++)
+			start[b + 1] += start[b];
+		int[] order = new int[n];
+		int[] fill = start.clone();
+		for(int i = 0; i < n; i++)
+			order[fill[hashes.get(i) & (buckets - 1)]++] = i;
+
+		// directory offsets in bytes
+		long offset = HEADER + 4L * (buckets + 1);
+		int[] dir = new int[buckets + 1];
+		for(int b = 0, j = 0; b <= buckets; b++) {
+			for(; j < start[b]; j++) {
+				int i = order[j];
+				offset += 12 + keys.get(i).length + values.get(i).length;
+			}
+			if(offset > Integer.MAX_VALUE)
+				throw new IOException("Snapshot would exceed 2 GB");
+			dir[b] = (int) offset;
+		}
+
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(n);
+			out.writeInt(buckets);
+			for(int off : dir)
+				out.writeInt(off);
+			for(int i : order) {
+				out.writeInt(hashes.get(i));
+				out.writeInt(keys.get(i).length);
+				out.write(keys.get(i));
+				out.writeInt(values.get(i).length);
+				out.write(values.get(i));
+			}
+		}
+	}
+
+	/**
+     * Maps a snapshot written by write(). The file can be closed or even
+     * deleted afterwards; the mapping stays valid until it is collected.
+     */
+	public static <K extends Comparable<? super K>, V> MappedHashMap<K,V> open(File file,
+			Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel ch = raf.getChannel()) {
+			if(ch.size() > Integer.MAX_VALUE)
+				throw new IOException("Snapshot larger than 2 GB: " + file);
+			return new MappedHashMap<>(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()), keyCodec, valueCodec);
+		}
+	}
+
+	/**
+     * Returns a value given a key, or null if the key is absent. The key
+     * is encoded once and compared byte for byte with candidates whose
+     * stored hash matches.
+     */
+	public V get(K key) {
+
+		if(key == null)
+			return null;
+
+		int h = hash(key);
+		int b = h & mask;
+		int off = buf.getInt(HEADER + 4 * b);
+		int end = buf.getInt(HEADER + 4 * (b + 1));
+
+		byte[] encoded = null;
+		while(off < end) {
+			int keyLength = buf.getInt(off + 4);
+			int valueOff = off + 8 + keyLength;
+
+			if(buf.getInt(off) == h) {
+				if(encoded == null)
+					encoded = keyCodec.encode(key);
+				if(keyLength == encoded.length && sameBytes(off + 8, encoded))
+					return valueCodec.decode(buf, valueOff + 4, buf.getInt(valueOff));
+			}
+			off = valueOff + 4 + buf.getInt(valueOff);
+		}
+		return null;
+	}
+
+	public int size() {
+
+		return count;
+	}
+
+	public void put(K key, V value) {
+		throw new UnsupportedOperationException("Snapshot maps are read-only");
+	}
+
+	public V remove(K key) {
+		throw new UnsupportedOperationException("Snapshot maps are read-only");
+	}
+
+	private boolean sameBytes(int off, byte[] bytes) {
+
+		for(int i = 0; i < bytes.length; i++) {
+			if(buf.get(off + i) != bytes[i])
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,192 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The MappedSortedMap class is a read-only Map served straight from a
+ * memory-mapped snapshot file of sorted key/value pairs, e.g. one written
+ * from an AvlMap. Opening a snapshot only maps the file; get() binary
+ * searches the entries in place, comparing keys through the codec without
+ * decoding them, and decodes only the value it returns. Nothing is rebuilt
+ * on the heap and the data stays in the page cache, shared by every
+ * process that maps it.
+ *
+ * File layout (big-endian ints, at most 2 GB):
+ *
+ *     magic "AVLS", version, count
+ *     count entry offsets, in key order
+ *     count entries: keyLength, key bytes, valueLength, value bytes
+ *
+ * The view never changes the buffer's position, so any number of threads
+ * may read it at once.
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class MappedSortedMap<K extends Comparable<? super K>, V> implements Map<K,V>, Iterable<Pair<K,V>> {
+
+	private static final int MAGIC = 0x41564C53;	// "AVLS"
+	private static final int VERSION = 1;
+	private static final int HEADER = 12;
+
+	private final MappedByteBuffer buf;
+	private final Codec<K> keyCodec;
+	private final Codec<V> valueCodec;
+	private final int count;
+
+	private MappedSortedMap(MappedByteBuffer buf, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+
+		if(buf.capacity() < HEADER || buf.getInt(0) != MAGIC)
+			throw new IOException("Not a sorted map snapshot");
+		if(buf.getInt(4) != VERSION)
+			throw new IOException("Unsupported snapshot version: " + buf.getInt(4));
+
+		this.buf = buf;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.count = buf.getInt(8);
+	}
+
+	/**
+     * Writes pairs, which must be in strictly ascending key order (as an
+     * AvlMap or BPlusTreeMap iterates them), to file.
+     */
+	public static <K extends Comparable<? super K>, V> void write(Iterable<Pair<K,V>> pairs, File file,
+			Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+
+		ArrayList<byte[]> keys = new ArrayList<>();
+		ArrayList<byte[]> values = new ArrayList<>();
+		K last = null;
+		for(Pair<K,V> p : pairs) {
+			if(last != null && last.compareTo(p.key) >= 0)
+				throw new IllegalArgumentException("Pairs are not in ascending key order at " + p.key);
+			last = p.key;
+			keys.add(keyCodec.encode(p.key));
+			values.add(valueCodec.encode(p.value));
+		}
+
+		int n = keys.size();
+		long offset = HEADER + 4L * n;
+		int[] offsets = new int[n];
+		for(int i = 0; i < n; i++) {
+			offsets[i] = (int) offset;
+			offset += 8 + keys.get(i).length + values.get(i).length;
+			if(offset > Integer.MAX_VALUE)
+				throw new IOException("Snapshot would exceed 2 GB");
+		}
+
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(n);
+			for(int off : offsets)
+				out.writeInt(off);
+			for(int i = 0; i < n; i++) {
+				out.writeInt(keys.get(i).length);
+				out.write(keys.get(i));
+				out.writeInt(values.get(i).length);
+				out.write(values.get(i));
+			}
+		}
+	}
+
+	/**
+     * Maps a snapshot written by write(). The file can be closed or even
+     * deleted afterwards; the mapping stays valid until it is collected.
+     */
+	public static <K extends Comparable<? super K>, V> MappedSortedMap<K,V> open(File file,
+			Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel ch = raf.getChannel()) {
+			if(ch.size() > Integer.MAX_VALUE)
+				throw new IOException("Snapshot larger than 2 GB: " + file);
+			return new MappedSortedMap<>(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()), keyCodec, valueCodec);
+		}
+	}
+
+	/**
+     * Returns a value given a key, or null if the key is absent.
+     * Runtime: O(log n) in-place key comparisons, one value decode.
+     */
+	public V get(K key) {
+
+		int i = indexOf(key);
+		return i < 0 ? null : valueAt(entryOffset(i));
+	}
+
+	public int size() {
+
+		return count;
+	}
+
+	public void put(K key, V value) {
+		throw new UnsupportedOperationException("Snapshot maps are read-only");
+	}
+
+	public V remove(K key) {
+		throw new UnsupportedOperationException("Snapshot maps are read-only");
+	}
+
+	/**
+     * Iterates every pair in key order, decoding as it goes.
+     */
+	public Iterator<Pair<K,V>> iterator() {
+
+		return new Iterator<Pair<K,V>>() {
+
+			private int i;
+
+			public boolean hasNext() {
+				return i < count;
+			}
+
+			public Pair<K,V> next() {
+				if(!hasNext())
+					throw new NoSuchElementException();
+				int off = entryOffset(i++);
+				return new Pair<>(keyAt(off), valueAt(off));
+			}
+		};
+	}
+
+	/**
+     * Returns the index of key's entry, or -1.
+     */
+	private int indexOf(K key) {
+
+		int lo = 0, hi = count - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int off = entryOffset(mid);
+			int compareResult = keyCodec.compare(key, buf, off + 4, buf.getInt(off));
+
+			if(compareResult < 0)
+				hi = mid - 1;
+			else if(compareResult > 0)
+				lo = mid + 1;
+			else
+				return mid;    // Match
+		}
+		return -1;
+	}
+
+	private int entryOffset(int i) {
+
+		return buf.getInt(HEADER + 4 * i);
+	}
+
+	private K keyAt(int off) {
+
+		return keyCodec.decode(buf, off + 4, buf.getInt(off));
+	}
+
+	private V valueAt(int off) {
+
+		int valueOff = off + 4 + buf.getInt(off);
+		return valueCodec.decode(buf, valueOff + 4, buf.getInt(valueOff));
+	}
+}
@@ -0,0 +1,15 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * A MetricSource is an object that can report its health metrics by name,
+ * for MetricsRegistry and JMX. Values are Numbers or arrays of them and
+ * are computed when read, so reporting costs nothing until someone asks.
+ */
+
+public interface MetricSource {
+
+	/**
+     * Returns the current metrics in a stable order, e.g. "height" -> 17.
+     */
+	public java.util.Map<String, Object> metrics();
+}
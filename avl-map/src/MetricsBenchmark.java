@@ -0,0 +1,94 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Measures what metrics cost on the hot path: AvlMap put/get and
+ * SeparateChainingMap put with metrics disabled and enabled. Then it
+ * registers both maps with MetricsRegistry and prints their metrics as a
+ * JMX client would read them.
+ *
+ * Usage: java MetricsBenchmark [n] [rounds]
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class MetricsBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+
+	public static void main(String[] args) throws Exception {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int[] keys = KeyDistribution.UNIFORM.sample(Integer.MAX_VALUE, n, 42);
+
+		System.out.println("n = " + n + ", best of " + rounds + " rounds");
+		System.out.printf("%-22s %14s %14s%n", "", "disabled ns/op", "enabled ns/op");
+
+		long[] off = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+		long[] on = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+		for(int r = 0; r < rounds; r++) {
+			timeRound(keys, false, off);
+			timeRound(keys, true, on);
+		}
+		System.out.printf("%-22s %14.1f %14.1f%n", "AvlMap put", (double) off[0] / n, (double) on[0] / n);
+		System.out.printf("%-22s %14.1f %14.1f%n", "AvlMap get", (double) off[1] / n, (double) on[1] / n);
+		System.out.printf("%-22s %14.1f %14.1f%n", "SeparateChainingMap put", (double) off[2] / n, (double) on[2] / n);
+
+		AvlMap<Integer, Integer> tree = new AvlMap<>();
+		SeparateChainingMap<Integer, Integer> table = new SeparateChainingMap<>();
+		tree.enableMetrics();
+		table.enableMetrics();
+		for(int k : keys) {
+			tree.put(k, k);
+			table.put(k, k);
+		}
+		for(int k : keys)
+			sink += tree.get(k);
+
+		MetricsRegistry.register("tree", tree);
+		MetricsRegistry.register("table", table);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for(String name : MetricsRegistry.names()) {
+			ObjectName objectName = new ObjectName("coms3134:type=Metrics,name=" + ObjectName.quote(name));
+			System.out.println();
+			System.out.println(objectName);
+			for(MBeanAttributeInfo a : server.getMBeanInfo(objectName).getAttributes()) {
+				Object value = server.getAttribute(objectName, a.getName());
+				System.out.println("  " + a.getName() + " = "
+						+ (value instanceof long[] ? Arrays.toString((long[]) value) : value));
+			}
+		}
+		if(sink == 42)
+			System.out.println();
+	}
+
+	private static void timeRound(int[] keys, boolean enabled, long[] best) {
+
+		AvlMap<Integer, Integer> tree = new AvlMap<>();
+		SeparateChainingMap<Integer, Integer> table = new SeparateChainingMap<>();
+		if(enabled) {
+			tree.enableMetrics();
+			table.enableMetrics();
+		}
+
+		long start = System.nanoTime();
+		for(int k : keys)
+			tree.put(k, k);
+		best[0] = Math.min(best[0], System.nanoTime() - start);
+
+		start = System.nanoTime();
+		for(int k : keys)
+			sink += tree.get(k);
+		best[1] = Math.min(best[1], System.nanoTime() - start);
+
+		start = System.nanoTime();
+		for(int k : keys)
+			table.put(k, k);
+		best[2] = Math.min(best[2], System.nanoTime() - start);
+	}
+}
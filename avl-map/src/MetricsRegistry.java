@@ -0,0 +1,131 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The MetricsRegistry class keeps the MetricSources that have been
+ * registered by name and publishes each one to the platform MBean server as
+ * coms3134:type=Metrics,name=<name>, so jconsole or any JMX client can read
+ * its metrics as attributes. Attributes are computed from the source on
+ * every read.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.*;
+
+public class MetricsRegistry {
+
+	private static final String DOMAIN = "coms3134";
+	private static final ConcurrentHashMap<String, MetricSource> sources = new ConcurrentHashMap<>();
+
+	private MetricsRegistry() {
+	}
+
+	/**
+     * Registers source under name, replacing any source of that name.
+     */
+	public static void register(String name, MetricSource source) {
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = objectName(name);
+		try {
+			if(server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+			server.registerMBean(new SourceBean(source), objectName);
+		}
+		catch(JMException e) {
+			throw new IllegalStateException("Cannot publish metrics " + name, e);
+		}
+		sources.put(name, source);
+	}
+
+	public static void unregister(String name) {
+
+		if(sources.remove(name) == null)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+		}
+		catch(JMException e) {
+			// already gone
+		}
+	}
+
+	/**
+     * Returns the metrics of the source registered under name, or null.
+     */
+	public static java.util.Map<String, Object> read(String name) {
+
+		MetricSource source = sources.get(name);
+		return source == null ? null : source.metrics();
+	}
+
+	/**
+     * Returns the names of every registered source.
+     */
+	public static java.util.List<String> names() {
+
+		return new ArrayList<>(sources.keySet());
+	}
+
+	private static ObjectName objectName(String name) {
+
+		try {
+			return new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+		}
+		catch(MalformedObjectNameException e) {
+			throw new IllegalArgumentException("Bad metrics name: " + name, e);
+		}
+	}
+
+	/**
+     * Read-only MBean whose attributes are the source's current metrics.
+     */
+	private static class SourceBean implements DynamicMBean {
+
+		private final MetricSource source;
+
+		SourceBean(MetricSource source) {
+			this.source = source;
+		}
+
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			Object value = source.metrics().get(attribute);
+			if(value == null)
+				throw new AttributeNotFoundException(attribute);
+			return value;
+		}
+
+		public AttributeList getAttributes(String[] attributes) {
+			java.util.Map<String, Object> metrics = source.metrics();
+			AttributeList list = new AttributeList();
+			for(String a : attributes) {
+				if(metrics.containsKey(a))
+					list.add(new Attribute(a, metrics.get(a)));
+			}
+			return list;
+		}
+
+		public MBeanInfo getMBeanInfo() {
+			java.util.Map<String, Object> metrics = source.metrics();
+			MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[metrics.size()];
+			int i = 0;
+			for(java.util.Map.Entry<String, Object> e : metrics.entrySet())
+				attributes[i++] = new MBeanAttributeInfo(e.getKey(), e.getValue().getClass().getName(),
+						e.getKey(), true, false, false);
+			return new MBeanInfo(source.getClass().getName(), "Health metrics", attributes, null, null, null);
+		}
+
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Metrics are read-only");
+		}
+
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+			throw new MBeanException(new UnsupportedOperationException(actionName));
+		}
+	}
+}
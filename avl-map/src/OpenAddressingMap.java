@@ -0,0 +1,218 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The OpenAddressingMap class represents a linear probing hash table
+ * and implements the Map interface. Keys and values are kept in flat
+ * parallel arrays whose capacity is always a power of two, so no Pair or
+ * list node is allocated per entry. The spread hash of each key is cached
+ * alongside it so that probing rarely has to dereference a key.
+ */
+
+public class OpenAddressingMap<K, V> implements Map<K, V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private K[] keys;			// keys, null marks an empty slot
+	private V[] values;			// values, parallel to keys
+	private int[] hashes;		// spread hash codes, parallel to keys
+	private int mask;			// capacity - 1
+	private int keyCount;
+	private int threshold;		// keyCount at which the table grows
+	private final float loadFactor;
+
+	public OpenAddressingMap() {
+
+		this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+     * Creates a table able to hold expectedSize keys without growing,
+     * which is resized once keyCount / capacity exceeds loadFactor.
+     */
+	public OpenAddressingMap(int expectedSize, float loadFactor) {
+
+		if(loadFactor <= 0 || loadFactor >= 1)
+			throw new IllegalArgumentException("Load factor must be in (0, 1): "
+		+ loadFactor);
+
+		this.loadFactor = loadFactor;
+		allocate(tableSizeFor((int) Math.ceil(expectedSize / loadFactor)));
+		keyCount = 0;
+	}
+
+	/**
+     * Spreads the high bits of the hash code into the low bits, since
+     * only the low bits are used to index a power of two table.
+     */
+	private static int hash(Object key) {
+
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+     * Returns the smallest power of two that is >= n, and at least 2.
+     * @throws IllegalArgumentException if that exceeds MAXIMUM_CAPACITY.
+     */
+	private static int tableSizeFor(int n) {
+
+		if(n > MAXIMUM_CAPACITY)
+			throw new IllegalArgumentException("Capacity exceeds " + MAXIMUM_CAPACITY + ": " + n);
+		return n <= 2 ? 2 : Integer.highestOneBit(n - 1) << 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+
+		keys = (K[]) new Object[capacity];
+		values = (V[]) new Object[capacity];
+		hashes = new int[capacity];
+		mask = capacity - 1;
+		threshold = (int) (capacity * loadFactor);
+	}
+
+	/**
+     * Inserts a key/value pair into the hash table, replacing the value
+     * if the key is already present.
+     */
+	public void put(K key, V value) {
+
+		if(key == null)
+			throw new IllegalArgumentException("Null keys are not supported");
+
+		int h = hash(key);
+		int index = h & mask;
+
+		// probe until the key or an empty slot is found
+		while(keys[index] != null) {
+			if(hashes[index] == h && keys[index].equals(key)) {
+				values[index] = value;
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+
+		if(keyCount == MAXIMUM_CAPACITY - 1)
+			throw new IllegalStateException("Map is full: " + keyCount + " keys");
+		keys[index] = key;
+		values[index] = value;
+		hashes[index] = h;
+
+		if(++keyCount > threshold)
+			rehash();
+	}
+
+	/**
+     * Returns a value given a key for some key/value pair in the table,
+     * or null if the key is absent.
+     */
+	public V get(K key) {
+
+		if(key == null)
+			return null;
+
+		int h = hash(key);
+		int index = h & mask;
+		K probe;
+
+		while((probe = keys[index]) != null) {
+			if(hashes[index] == h && probe.equals(key))
+				return values[index];
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+     * Removes the pair for key, if any. The entries that follow it in the
+     * probe sequence are shifted back into the gap, so no tombstones are
+     * needed and later probes stay short.
+     * @return the value that was removed, or null.
+     */
+	public V remove(K key) {
+
+		if(key == null)
+			return null;
+
+		int h = hash(key);
+		int gap = h & mask;
+
+		while(keys[gap] == null || hashes[gap] != h || !keys[gap].equals(key)) {
+			if(keys[gap] == null)
+				return null;
+			gap = (gap + 1) & mask;
+		}
+		V old = values[gap];
+
+		// move back every entry whose home slot does not lie after the gap
+		int index = gap;
+		while(true) {
+			index = (index + 1) & mask;
+			if(keys[index] == null)
+				break;
+
+			int home = hashes[index] & mask;
+			if(((index - home) & mask) >= ((index - gap) & mask)) {
+				keys[gap] = keys[index];
+				values[gap] = values[index];
+				hashes[gap] = hashes[index];
+				gap = index;
+			}
+		}
+
+		keys[gap] = null;
+		values[gap] = null;
+		keyCount--;
+		return old;
+	}
+
+	/**
+     * Returns the number of keys in the table.
+     */
+	public int size() {
+
+		return keyCount;
+	}
+
+	/**
+     * Returns the number of slots in the table.
+     */
+	public int capacity() {
+
+		return mask + 1;
+	}
+
+	/**
+     * Doubles the table and reinserts every key, so that each key lands
+     * in its slot for the new mask. A table of MAXIMUM_CAPACITY cannot
+     * double, so it is left to fill instead, up to the one free slot that
+     * every probe needs to stop at.
+     */
+	private void rehash() {
+
+		if(keys.length == MAXIMUM_CAPACITY) {
+			threshold = MAXIMUM_CAPACITY - 1;
+			return;
+		}
+
+		K[] oldKeys = keys;
+		V[] oldValues = values;
+		int[] oldHashes = hashes;
+		allocate(oldKeys.length * 2);
+
+		for(int i = 0; i < oldKeys.length; i++) {
+			K key = oldKeys[i];
+			if(key == null)
+				continue;
+
+			int index = oldHashes[i] & mask;
+			while(keys[index] != null)
+				index = (index + 1) & mask;
+			keys[index] = key;
+			values[index] = oldValues[i];
+			hashes[index] = oldHashes[i];
+		}
+	}
+}
@@ -0,0 +1,284 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The PersistentAvlMap class represents an AVL tree whose nodes are never
+ * modified, and implements the Map interface. put and remove copy only the
+ * O(log n) nodes on the path to the key and publish the new root through a
+ * volatile field, so every earlier root stays a valid, unchanging version.
+ *
+ * A snapshot() is a single read of that field. Any number of threads can
+ * then read or iterate the snapshot without locks while one writer keeps
+ * mutating the map. Writers are serialized on the map's monitor.
+ */
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class PersistentAvlMap<K extends Comparable<? super K>, V> implements Map<K,V>, Iterable<Pair<K,V>> {
+
+	private static final int ALLOWED_IMBALANCE = 1;
+
+	private volatile Node<K,V> root;
+
+	/**
+     * Insert a key/value pair, replacing the value if the key is present.
+     * Readers of older snapshots are unaffected.
+     */
+	public synchronized void put(K key, V value) {
+
+		root = insert(root, key, value);
+	}
+
+	/**
+     * Remove the pair for key, if any.
+     * @return the value that was removed, or null.
+     */
+	public synchronized V remove(K key) {
+
+		Node<K,V> old = root;
+		Node<K,V> found = findNode(old, key);
+		if(found == null)
+			return null;
+
+		root = remove(old, key);
+		return found.value;
+	}
+
+	/**
+     * Returns the value for key in the latest version, or null.
+     */
+	public V get(K key) {
+
+		return find(root, key);
+	}
+
+	/**
+     * Returns the number of pairs in the latest version.
+     */
+	public int size() {
+
+		return size(root);
+	}
+
+	/**
+     * Returns an immutable view of the current version in O(1).
+     */
+	public Snapshot<K,V> snapshot() {
+
+		return new Snapshot<>(root);
+	}
+
+	/**
+     * Iterates the current version in key order; later writes are not seen.
+     */
+	public Iterator<Pair<K,V>> iterator() {
+
+		return new InOrderIterator<>(root);
+	}
+
+	/**
+     * A frozen version of the map. put throws, everything else reads the
+     * version the snapshot was taken from.
+     */
+	public static final class Snapshot<K extends Comparable<? super K>, V> implements Map<K,V>, Iterable<Pair<K,V>> {
+
+		private final Node<K,V> root;
+
+		private Snapshot(Node<K,V> root) {
+			this.root = root;
+		}
+
+		public void put(K key, V value) {
+			throw new UnsupportedOperationException("Snapshots are read-only");
+		}
+
+		public V get(K key) {
+			return find(root, key);
+		}
+
+		public V remove(K key) {
+			throw new UnsupportedOperationException("Snapshots are read-only");
+		}
+
+		public int size() {
+			return PersistentAvlMap.size(root);
+		}
+
+		public Iterator<Pair<K,V>> iterator() {
+			return new InOrderIterator<>(root);
+		}
+	}
+
+	/**
+     * Immutable tree node. Height and size are computed once, when the
+     * node is created.
+     */
+	private static final class Node<K,V> {
+
+		final K key;
+		final V value;
+		final Node<K,V> left;
+		final Node<K,V> right;
+		final int height;
+		final int size;
+
+		Node(K key, V value, Node<K,V> left, Node<K,V> right) {
+			this.key = key;
+			this.value = value;
+			this.left = left;
+			this.right = right;
+			height = Math.max(height(left), height(right)) + 1;
+			size = PersistentAvlMap.size(left) + PersistentAvlMap.size(right) + 1;
+		}
+	}
+
+	private static int height(Node<?,?> t) {
+
+		return t == null ? -1 : t.height;
+	}
+
+	private static int size(Node<?,?> t) {
+
+		return t == null ? 0 : t.size;
+	}
+
+	private static <K extends Comparable<? super K>, V> V find(Node<K,V> t, K key) {
+
+		Node<K,V> found = findNode(t, key);
+		return found == null ? null : found.value;
+	}
+
+	private static <K extends Comparable<? super K>, V> Node<K,V> findNode(Node<K,V> t, K key) {
+
+		while(t != null) {
+			int compareResult = key.compareTo(t.key);
+
+			if(compareResult < 0)
+				t = t.left;
+			else if(compareResult > 0)
+				t = t.right;
+			else
+				return t;    // Match
+		}
+		return null;
+	}
+
+	/**
+     * Internal method to insert into a subtree.
+     * @return the root of a new version of the subtree; t is unchanged.
+     */
+	private Node<K,V> insert(Node<K,V> t, K key, V value) {
+
+		if(t == null)
+			return new Node<>(key, value, null, null);
+
+		int compareResult = key.compareTo(t.key);
+
+		if(compareResult < 0)
+			return balance(t.key, t.value, insert(t.left, key, value), t.right);
+		else if(compareResult > 0)
+			return balance(t.key, t.value, t.left, insert(t.right, key, value));
+		else if(t.value == value)
+			return t;
+		else
+			return new Node<>(key, value, t.left, t.right);
+	}
+
+	/**
+     * Internal method to remove from a subtree.
+     * @return the root of a new version of the subtree, or t itself if
+     * key was not found.
+     */
+	private Node<K,V> remove(Node<K,V> t, K key) {
+
+		if(t == null)
+			return null;   // Item not found; do nothing
+
+		int compareResult = key.compareTo(t.key);
+
+		if(compareResult < 0) {
+			Node<K,V> left = remove(t.left, key);
+			return left == t.left ? t : balance(t.key, t.value, left, t.right);
+		}
+		else if(compareResult > 0) {
+			Node<K,V> right = remove(t.right, key);
+			return right == t.right ? t : balance(t.key, t.value, t.left, right);
+		}
+		else if(t.left == null)
+			return t.right;
+		else if(t.right == null)
+			return t.left;
+
+		// Two children: replace by the successor
+		Node<K,V> min = t.right;
+		while(min.left != null)
+			min = min.left;
+		return balance(min.key, min.value, t.left, removeMin(t.right));
+	}
+
+	private Node<K,V> removeMin(Node<K,V> t) {
+
+		if(t.left == null)
+			return t.right;
+		return balance(t.key, t.value, removeMin(t.left), t.right);
+	}
+
+	/**
+     * Builds a new node for key/value over children l and r, rotating if
+     * they differ in height by more than ALLOWED_IMBALANCE. Rotations
+     * create new nodes instead of relinking l and r.
+     */
+	private Node<K,V> balance(K key, V value, Node<K,V> l, Node<K,V> r) {
+
+		if(height(l) - height(r) > ALLOWED_IMBALANCE) {
+			if(height(l.left) >= height(l.right))    // single rotation
+				return new Node<>(l.key, l.value, l.left, new Node<>(key, value, l.right, r));
+
+			Node<K,V> lr = l.right;                  // double rotation
+			return new Node<>(lr.key, lr.value,
+					new Node<>(l.key, l.value, l.left, lr.left),
+					new Node<>(key, value, lr.right, r));
+		}
+		if(height(r) - height(l) > ALLOWED_IMBALANCE) {
+			if(height(r.right) >= height(r.left))    // single rotation
+				return new Node<>(r.key, r.value, new Node<>(key, value, l, r.left), r.right);
+
+			Node<K,V> rl = r.left;                   // double rotation
+			return new Node<>(rl.key, rl.value,
+					new Node<>(key, value, l, rl.left),
+					new Node<>(r.key, r.value, rl.right, r.right));
+		}
+		return new Node<>(key, value, l, r);
+	}
+
+	/**
+     * In-order iterator over one version of the tree.
+     */
+	private static class InOrderIterator<K extends Comparable<? super K>, V> implements Iterator<Pair<K,V>> {
+
+		private final ArrayDeque<Node<K,V>> stack = new ArrayDeque<>();
+
+		InOrderIterator(Node<K,V> root) {
+			pushLeft(root);
+		}
+
+		private void pushLeft(Node<K,V> t) {
+			for(; t != null; t = t.left)
+				stack.push(t);
+		}
+
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		public Pair<K,V> next() {
+			if(stack.isEmpty())
+				throw new NoSuchElementException();
+
+			Node<K,V> t = stack.pop();
+			pushLeft(t.right);
+			return new Pair<>(t.key, t.value);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Compares retained heap per entry and get latency of the primitive-keyed
+ * maps with the generic maps they replace: IntAvlMap and LongAvlMap with
+ * AvlMap, IntIntHashMap with SeparateChainingMap and OpenAddressingMap.
+ * The generic maps are filled from int keys as callers would fill them, so
+ * the boxed keys and values are counted as part of their footprint. Tree
+ * values are one shared object, which is not.
+ *
+ * Usage: java PrimitiveMapBenchmark [n] [lookups]
+ */
+
+import java.util.Random;
+
+public class PrimitiveMapBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+	private static final Object VALUE = new Object();
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+
+		// random keys outside the Integer cache, and a random lookup order
+		Random rnd = new Random(42);
+		int[] keys = new int[n];
+		for(int i = 0; i < n; i++)
+			keys[i] = rnd.nextInt() | 1024;
+		int[] probes = new int[lookups];
+		for(int i = 0; i < lookups; i++)
+			probes[i] = keys[rnd.nextInt(n)];
+
+		System.out.println("n = " + n + ", " + lookups + " lookups");
+		System.out.printf("%-38s %14s %12s%n", "map", "bytes/entry", "ns/get");
+
+		avlMap(keys, probes);
+		intAvlMap(keys, probes);
+		longAvlMap(keys, probes);
+		separateChainingMap(keys, probes);
+		openAddressingMap(keys, probes);
+		intIntHashMap(keys, probes);
+
+		if(sink == 42)
+			System.out.println();
+	}
+
+	private static void avlMap(int[] keys, int[] probes) {
+
+		long before = usedMemory();
+		AvlMap<Integer, Object> m = new AvlMap<>();
+		for(int k : keys)
+			m.put(k, VALUE);
+		long after = usedMemory();
+
+		long elapsed = Long.MAX_VALUE;
+		for(int r = 0; r < 2; r++) {
+			long start = System.nanoTime();
+			for(int k : probes)
+				sink += m.get(k).hashCode();
+			elapsed = Math.min(elapsed, System.nanoTime() - start);
+		}
+		report("AvlMap<Integer, V>", after - before, elapsed, keys.length, probes.length);
+	}
+
+	private static void intAvlMap(int[] keys, int[] probes) {
+
+		long before = usedMemory();
+		IntAvlMap<Object> m = new IntAvlMap<>();
+		for(int k : keys)
+			m.put(k, VALUE);
+		long after = usedMemory();
+
+		long elapsed = Long.MAX_VALUE;
+		for(int r = 0; r < 2; r++) {
+			long start = System.nanoTime();
+			for(int k : probes)
+				sink += m.get(k).hashCode();
+			elapsed = Math.min(elapsed, System.nanoTime() - start);
+		}
+		report("IntAvlMap<V>", after - before, elapsed, keys.length, probes.length);
+	}
+
+	private static void longAvlMap(int[] keys, int[] probes) {
+
+		long before = usedMemory();
+		LongAvlMap<Object> m = new LongAvlMap<>();
+		for(int k : keys)
+			m.put(k, VALUE);
+		long after = usedMemory();
+
+		long elapsed = Long.MAX_VALUE;
+		for(int r = 0; r < 2; r++) {
+			long start = System.nanoTime();
+			for(int k : probes)
+				sink += m.get(k).hashCode();
+			elapsed = Math.min(elapsed, System.nanoTime() - start);
+		}
+		report("LongAvlMap<V>", after - before, elapsed, keys.length, probes.length);
+	}
+
+	private static void separateChainingMap(int[] keys, int[] probes) {
+
+		long before = usedMemory();
+		SeparateChainingMap<Integer, Integer> m = new SeparateChainingMap<>();
+		for(int k : keys)
+			m.put(k, k);
+		long after = usedMemory();
+
+		long elapsed = Long.MAX_VALUE;
+		for(int r = 0; r < 2; r++) {
+			long start = System.nanoTime();
+			for(int k : probes)
+				sink += m.get(k);
+			elapsed = Math.min(elapsed, System.nanoTime() - start);
+		}
+		report("SeparateChainingMap<Integer, Integer>", after - before, elapsed, keys.length, probes.length);
+	}
+
+	private static void openAddressingMap(int[] keys, int[] probes) {
+
+		long before = usedMemory();
+		OpenAddressingMap<Integer, Integer> m = new OpenAddressingMap<>();
+		for(int k : keys)
+			m.put(k, k);
+		long after = usedMemory();
+
+		long elapsed = Long.MAX_VALUE;
+		for(int r = 0; r < 2; r++) {
+			long start = System.nanoTime();
+			for(int k : probes)
+				sink += m.get(k);
+			elapsed = Math.min(elapsed, System.nanoTime() - start);
+		}
+		report("OpenAddressingMap<Integer, Integer>", after - before, elapsed, keys.length, probes.length);
+	}
+
+	private static void intIntHashMap(int[] keys, int[] probes) {
+
+		long before = usedMemory();
+		IntIntHashMap m = new IntIntHashMap();
+		for(int k : keys)
+			m.put(k, k);
+		long after = usedMemory();
+
+		long elapsed = Long.MAX_VALUE;
+		for(int r = 0; r < 2; r++) {
+			long start = System.nanoTime();
+			for(int k : probes)
+				sink += m.get(k);
+			elapsed = Math.min(elapsed, System.nanoTime() - start);
+		}
+		report("IntIntHashMap", after - before, elapsed, keys.length, probes.length);
+	}
+
+	private static void report(String name, long bytes, long nanos, int n, int lookups) {
+
+		System.out.printf("%-38s %14.1f %12.1f%n", name, (double) bytes / n, (double) nanos / lookups);
+	}
+
+	private static long usedMemory() {
+
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Compares the worst-case put latency of SeparateChainingMap with
+ * all-at-once and incremental resizing.
+ * Usage: java ResizeLatencyBenchmark [n] [rounds]
+ */
+
+public class ResizeLatencyBenchmark {
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		String[] keys = new String[n];
+		for(int i = 0; i < n; i++)
+			keys[i] = "key" + i;
+
+		System.out.println("n = " + n + ", last of " + rounds + " rounds");
+		System.out.printf("%-12s %14s %14s %14s%n",
+				"resize", "total ms", "worst put us", "worst get us");
+
+		run("eager", false, keys, rounds);
+		run("incremental", true, keys, rounds);
+	}
+
+	private static void run(String name, boolean incremental, String[] keys, int rounds) {
+
+		SeparateChainingMap<String, Integer> m = null;
+		long total = 0;
+		Integer value = 1;
+
+		// earlier rounds warm up the JIT so only resizes show up as spikes
+		for(int r = 0; r < rounds; r++) {
+			m = new SeparateChainingMap<>(incremental);
+			m.setLatencyTracking(true);
+
+			long start = System.nanoTime();
+			for(String k : keys) {
+				m.put(k, value);
+				m.get(k);
+			}
+			total = System.nanoTime() - start;
+		}
+
+		System.out.printf("%-12s %14.1f %14.1f %14.1f%n", name, total / 1e6,
+				m.worstPutNanos() / 1e3, m.worstGetNanos() / 1e3);
+	}
+}
@@ -3,24 +3,89 @@
  * 
  * The SeparateChainingMap class represents a separate chaining hash table 
  * and implements the Map interface. Chains are implemented as linked lists.
+ * 
+ * Keys are hashed with a per-map random seed: String keys are hashed from
+ * their characters, other keys from hashCode(), and the result is spread
+ * over all bits before the bucket is chosen. Keys built to collide under
+ * String.hashCode() therefore land in different buckets. A chain that still
+ * grows past TREEIFY_THRESHOLD (e.g. keys whose hashCode() is identical) is
+ * converted into an AvlTree ordered by key, so a lookup in it is O(log n)
+ * instead of O(n). This requires compareTo to be consistent with equals.
+ * Tree buckets go back to chains when the table is resized.
+ * 
+ * In incremental mode a resize keeps the old and new tables live and moves
+ * at most MIGRATION_STEP old buckets per put/get, so no single operation
+ * rehashes the whole table.
+ * 
+ * An optional Bloom filter over the keys' hash codes lets get() answer most
+ * misses without touching a chain. Removed keys stay in the filter until it
+ * is rebuilt, which happens when stale keys outnumber live ones or the map
+ * outgrows the size the filter was built for.
+ * 
+ * metrics() reports the chain length histogram, load factor and resize
+ * count; enableMetrics() also times resizes. Nothing on the put/get path
+ * depends on metrics.
  */
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
-public class SeparateChainingMap<K extends Comparable<? super K>, V> implements Map<K, V> {
+public class SeparateChainingMap<K extends Comparable<? super K>, V> implements Map<K, V>, Iterable<Pair<K, V>>, MetricSource {
 	
 	private LinkedList<Pair<K, V>>[] theArray;
+	private AvlTree<Pair<K, V>>[] treeArray; // treeArray[i] replaces theArray[i] once treeified
 	private static final int initial_size = 10;
+	private static final int TREEIFY_THRESHOLD = 8;
+	private final int seed = ThreadLocalRandom.current().nextInt();
 	
 	private int keyCount;
 	private int theSize;
 	
-	@SuppressWarnings("unchecked")
+	// incremental resizing
+	private static final int MIGRATION_STEP = 4;
+	private final boolean incremental;
+	private LinkedList<Pair<K, V>>[] oldArray; // non-null while migrating
+	private AvlTree<Pair<K, V>>[] oldTrees;
+	private int migrateIndex; // next old bucket to migrate
+	
+	// per-operation latency stats
+	private boolean trackLatency;
+	private long worstPutNanos;
+	private long worstGetNanos;
+	
+	// optional Bloom filter front for misses
+	private BloomFilter filter; // null when disabled
+	private double filterRate;
+	private int filterCapacity; // keys the filter was sized for
+	private int staleKeys; // removed keys still set in the filter
+	private long filterSkips; // gets answered by the filter alone
+	private long filterFalsePositives; // gets the filter passed that missed
+	
+	// health metrics
+	private static final int HISTOGRAM_BUCKETS = 9; // chain lengths 0..7, then 8 or more
+	private boolean timeResizes;
+	private long resizeCount;
+	private long resizeNanos;
+	
 	public SeparateChainingMap() {
 		
+		this(false);
+	}
+	
+	/**
+     * Creates a table that resizes incrementally if incremental is true,
+     * and all at once inside a single put otherwise.
+     */
+	@SuppressWarnings("unchecked")
+	public SeparateChainingMap(boolean incremental) {
+		
 		theArray = (LinkedList<Pair<K, V>>[]) new LinkedList[initial_size];
+		treeArray = (AvlTree<Pair<K, V>>[]) new AvlTree[initial_size];
 		keyCount = 0;
 		theSize = initial_size;
+		this.incremental = incremental;
 	}
 	
 	/**
@@ -28,8 +93,37 @@ public class SeparateChainingMap<K extends Comparable<? super K>, V> implements
      */
 	public int hashFunction(K key) {
 		
-		int code = (int) key.hashCode() % theSize;
-		return Math.abs(code);
+		return indexFor(key, theSize);
+	}
+	
+	private int indexFor(K key, int size) {
+		
+		return (hash(key) & 0x7FFFFFFF) % size;
+	}
+	
+	/**
+     * Seeded hash of key, spread so that every bit of it affects the
+     * bucket. Strings are hashed from their characters, since collisions
+     * of String.hashCode() are easy to generate and do not depend on the
+     * seed.
+     */
+	private int hash(K key) {
+		
+		int h;
+		if(key instanceof String) {
+			String s = (String) key;
+			h = seed;
+			for(int i = 0; i < s.length(); i++) {
+				h ^= s.charAt(i);
+				h *= 0x5BD1E995;
+				h ^= h >>> 15;
+			}
+		}
+		else
+			h = key.hashCode() ^ seed;
+		
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
 	}
 	
 	/**
@@ -38,39 +132,229 @@ public class SeparateChainingMap<K extends Comparable<? super K>, V> implements
      * new pair. Otherwise, add to the existing list.
      */
 	public void put(K key, V value) {
-			
+		
+		long start = trackLatency ? System.nanoTime() : 0;
+		
 		ensureCapacity();
+		int index = bucketFor(key);
+		Pair<K, V> node = find(theArray, treeArray, index, key);
 		
-		int index = hashFunction(key);
-		Pair<K, V> pair = new Pair<K, V>(key, value);
+		// replacing a duplicate's value in place, otherwise adding to the bucket
+		if(node != null)
+			node.value = value;
+		else {
+			add(index, new Pair<K, V>(key, value));
+			keyCount++;
+			filterAdd(key);
+		}
 		
-		// no linked list exists for that index
-		if(theArray[index] == null) {
-			theArray[index] = new LinkedList<Pair<K, V>>();
-			theArray[index].addFirst(pair);
+		if(trackLatency)
+			worstPutNanos = Math.max(worstPutNanos, System.nanoTime() - start);
+	}
+	
+	/**
+     * Inserts the pair unless key is present, searching its bucket once.
+     * @return the value already present, or null if the pair was inserted.
+     */
+	public V putIfAbsent(K key, V value) {
+		
+		ensureCapacity();
+		int index = bucketFor(key);
+		Pair<K, V> node = find(theArray, treeArray, index, key);
+		if(node != null)
+			return node.value;
+		
+		add(index, new Pair<K, V>(key, value));
+		keyCount++;
+		filterAdd(key);
+		return null;
+	}
+	
+	/**
+     * Returns the value for key, inserting mappingFunction(key) if the key
+     * is absent, searching its bucket once.
+     */
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		
+		ensureCapacity();
+		int index = bucketFor(key);
+		Pair<K, V> node = find(theArray, treeArray, index, key);
+		if(node != null)
+			return node.value;
+		
+		V value = mappingFunction.apply(key);
+		if(value != null) {
+			add(index, new Pair<K, V>(key, value));
 			keyCount++;
+			filterAdd(key);
 		}
-			
-		ListIterator<Pair<K, V>> listIte = null;
-		if(theArray[index] != null) {
-			listIte = theArray[index].listIterator();
+		return value;
+	}
+	
+	/**
+     * Inserts value if key is absent, otherwise combines the old value with
+     * it, searching the key's bucket once. The pair is removed if the
+     * result is null.
+     * @return the new value, or null if the pair was removed.
+     */
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		
+		ensureCapacity();
+		int index = bucketFor(key);
+		Pair<K, V> node = find(theArray, treeArray, index, key);
+		
+		if(node != null) {
+			V newValue = remappingFunction.apply(node.value, value);
+			if(newValue == null) {
+				delete(index, key);
+				keyCount--;
+				filterRemoved();
+			}
+			else
+				node.value = newValue;
+			return newValue;
+		}
+		
+		add(index, new Pair<K, V>(key, value));
+		keyCount++;
+		filterAdd(key);
+		return value;
+	}
+	
+	/**
+     * Removes the pair for key, searching its bucket once.
+     * @return the value that was removed, or null.
+     */
+	public V remove(K key) {
+		
+		Pair<K, V> node = delete(bucketFor(key), key);
+		if(node == null)
+			return null;
+		
+		keyCount--;
+		filterRemoved();
+		return node.value;
+	}
+	
+	/**
+     * Returns the number of keys in the table.
+     */
+	public int size() {
+		
+		return keyCount;
+	}
+	
+	/**
+     * Iterates every pair in table order, including pairs still waiting in
+     * the old table during an incremental resize. The map must not be
+     * modified while iterating.
+     */
+	public Iterator<Pair<K, V>> iterator() {
+		
+		return new TableIterator();
+	}
+	
+	/**
+     * Returns the index of the bucket of the current table that holds or
+     * would hold key. During an incremental resize this first does a
+     * migration step and moves the key's own old bucket, so that the key
+     * is never in both tables.
+     */
+	private int bucketFor(K key) {
+		
+		if(oldArray != null) {
+			migrateStep();
+			if(oldArray != null)
+				migrateBucket(indexFor(key, oldArray.length));
 		}
+		return hashFunction(key);
+	}
+	
+	/**
+     * Returns the pair for key in bucket index of the given table, or
+     * null. Walks a chain, or searches a tree bucket in O(log n).
+     */
+	private Pair<K, V> find(LinkedList<Pair<K, V>>[] chains, AvlTree<Pair<K, V>>[] trees, int index, K key) {
 		
-		// adding to the list, checking for duplicates
-		if(listIte != null) {
+		AvlTree<Pair<K, V>> tree = trees[index];
+		if(tree != null)
+			return tree.find(new Pair<K, V>(key, null));
+		
+		LinkedList<Pair<K, V>> chain = chains[index];
+		if(chain != null) {
+			ListIterator<Pair<K, V>> listIte = chain.listIterator();
 			while(listIte.hasNext()) {
-				
 				Pair<K, V> node = listIte.next();
-				if(node.key.equals(key)) {
-					listIte.remove();
-					listIte.add(pair);
-				}
-				else {
-					listIte.add(pair);
-					keyCount++;
-				}
+				if(node.key.equals(key))
+					return node;
 			}
 		}
+		return null;
+	}
+	
+	/**
+     * Adds a pair whose key is absent to bucket index of the current table,
+     * converting the chain to a tree once it is longer than
+     * TREEIFY_THRESHOLD.
+     */
+	private void add(int index, Pair<K, V> pair) {
+		
+		AvlTree<Pair<K, V>> tree = treeArray[index];
+		if(tree != null) {
+			tree.insert(pair);
+			return;
+		}
+		
+		// no linked list exists for that index
+		if(theArray[index] == null)
+			theArray[index] = new LinkedList<Pair<K, V>>();
+		theArray[index].addFirst(pair);
+		
+		if(theArray[index].size() > TREEIFY_THRESHOLD)
+			treeify(index);
+	}
+	
+	/**
+     * Removes key from bucket index of the current table.
+     * @return the removed pair, or null if key was absent.
+     */
+	private Pair<K, V> delete(int index, K key) {
+		
+		AvlTree<Pair<K, V>> tree = treeArray[index];
+		if(tree != null) {
+			Pair<K, V> removed = tree.removeItem(new Pair<K, V>(key, null));
+			if(tree.isEmpty())
+				treeArray[index] = null;
+			return removed;
+		}
+		
+		LinkedList<Pair<K, V>> chain = theArray[index];
+		if(chain == null)
+			return null;
+		
+		ListIterator<Pair<K, V>> listIte = chain.listIterator();
+		while(listIte.hasNext()) {
+			Pair<K, V> node = listIte.next();
+			if(node.key.equals(key)) {
+				listIte.remove();
+				return node;
+			}
+		}
+		return null;
+	}
+	
+	/**
+     * Replaces the chain of bucket index by an AvlTree of the same pairs.
+     */
+	private void treeify(int index) {
+		
+		ArrayList<Pair<K, V>> sorted = new ArrayList<Pair<K, V>>(theArray[index]);
+		Collections.sort(sorted);
+		
+		AvlTree<Pair<K, V>> tree = new AvlTree<Pair<K, V>>();
+		tree.buildFromSorted(sorted);
+		treeArray[index] = tree;
+		theArray[index] = null;
 	}
 	
 	/**
@@ -78,46 +362,327 @@ public class SeparateChainingMap<K extends Comparable<? super K>, V> implements
      */
 	public V get(K key) {
 		
-		int index = hashFunction(key);
-		ListIterator<Pair<K, V>> listIte = null;
+		long start = trackLatency ? System.nanoTime() : 0;
 		
-		if(theArray[index] != null) {
-			listIte = theArray[index].listIterator();
+		if(filter != null && !filter.mightContain(key.hashCode())) {
+			filterSkips++;
+			if(trackLatency)
+				worstGetNanos = Math.max(worstGetNanos, System.nanoTime() - start);
+			return null;
 		}
-				
-		if(listIte != null) {
-			while(listIte.hasNext()) {
-				Pair<K, V> node = listIte.next();
-				if(node.key.equals(key))
-					return node.value;
-			}	
+		
+		// a key whose old bucket is not yet migrated is still in the old table
+		Pair<K, V> node;
+		int oldIndex = -1;
+		if(oldArray != null) {
+			migrateStep();
+			if(oldArray != null) {
+				oldIndex = indexFor(key, oldArray.length);
+				if(oldArray[oldIndex] == null && oldTrees[oldIndex] == null)
+					oldIndex = -1;
+			}
 		}
+		if(oldIndex >= 0)
+			node = find(oldArray, oldTrees, oldIndex, key);
+		else
+			node = find(theArray, treeArray, hashFunction(key), key);
+		V result = (node == null) ? null : node.value;
 		
-		return null;
+		if(node == null && filter != null)
+			filterFalsePositives++;
+		if(trackLatency)
+			worstGetNanos = Math.max(worstGetNanos, System.nanoTime() - start);
+		return result;
+	}
+	
+	/**
+     * Puts a Bloom filter with the given false positive rate in front of
+     * get(), built from the keys already present. The filter is sized for
+     * twice the keys present at each rebuild, so the rate is an upper bound
+     * reached only just before the next rebuild.
+     */
+	public void enableBloomFilter(double falsePositiveRate) {
+		
+		filterRate = falsePositiveRate;
+		rebuildFilter();
+		filterSkips = 0;
+		filterFalsePositives = 0;
+	}
+	
+	public void disableBloomFilter() {
+		
+		filter = null;
+	}
+	
+	/**
+     * Returns the number of gets the filter answered without walking a
+     * chain.
+     */
+	public long filterSkips() {
+		
+		return filterSkips;
+	}
+	
+	/**
+     * Returns the number of gets the filter let through that found no key.
+     * Over misses only, filterFalsePositives / (filterSkips +
+     * filterFalsePositives) is the observed false positive rate.
+     */
+	public long filterFalsePositives() {
+		
+		return filterFalsePositives;
+	}
+	
+	/**
+     * Returns the filter's size in bytes, or 0 if it is disabled.
+     */
+	public int filterSizeInBytes() {
+		
+		return filter == null ? 0 : filter.sizeInBytes();
+	}
+	
+	/**
+     * Starts timing resizes (or, in incremental mode, migration steps).
+     */
+	public void enableMetrics() {
+		
+		timeResizes = true;
+	}
+	
+	public void disableMetrics() {
+		
+		timeResizes = false;
+	}
+	
+	/**
+     * Returns the table's health metrics. The chain length histogram
+     * counts buckets by the number of keys in them, 0, 1, ..., 7 and 8 or
+     * more, over both tables during a resize. O(buckets).
+     */
+	public java.util.Map<String, Object> metrics() {
+		
+		long[] histogram = new long[HISTOGRAM_BUCKETS];
+		int maxChain = 0, treeBuckets = 0;
+		for(int t = (oldArray == null) ? 1 : 0; t < 2; t++) {
+			LinkedList<Pair<K, V>>[] chains = (t == 0) ? oldArray : theArray;
+			AvlTree<Pair<K, V>>[] trees = (t == 0) ? oldTrees : treeArray;
+			for(int i = 0; i < chains.length; i++) {
+				int length = 0;
+				if(trees[i] != null) {
+					length = trees[i].size();
+					treeBuckets++;
+				}
+				else if(chains[i] != null)
+					length = chains[i].size();
+				histogram[Math.min(length, HISTOGRAM_BUCKETS - 1)]++;
+				maxChain = Math.max(maxChain, length);
+			}
+		}
+		
+		java.util.Map<String, Object> m = new LinkedHashMap<>();
+		m.put("size", keyCount);
+		m.put("buckets", theSize);
+		m.put("loadFactor", (double) keyCount / theSize);
+		m.put("chainLengthHistogram", histogram);
+		m.put("maxChainLength", maxChain);
+		m.put("treeBuckets", treeBuckets);
+		m.put("resizeCount", resizeCount);
+		m.put("resizeMillis", resizeNanos / 1e6);
+		m.put("resizing", oldArray != null);
+		return m;
+	}
+	
+	/**
+     * Returns true while an incremental resize is in progress.
+     */
+	public boolean isResizing() {
+		
+		return oldArray != null;
+	}
+	
+	/**
+     * Returns the fraction of old buckets already migrated by the current
+     * incremental resize, or 1.0 if no resize is in progress.
+     */
+	public double migrationProgress() {
+		
+		if(oldArray == null)
+			return 1.0;
+		return (double) migrateIndex / oldArray.length;
+	}
+	
+	/**
+     * Turns recording of the worst-case put/get latency on or off.
+     */
+	public void setLatencyTracking(boolean enabled) {
+		
+		trackLatency = enabled;
+	}
+	
+	/**
+     * Returns the slowest put observed while latency tracking was on.
+     */
+	public long worstPutNanos() {
+		
+		return worstPutNanos;
+	}
+	
+	/**
+     * Returns the slowest get observed while latency tracking was on.
+     */
+	public long worstGetNanos() {
+		
+		return worstGetNanos;
+	}
+	
+	public void resetLatencyStats() {
+		
+		worstPutNanos = 0;
+		worstGetNanos = 0;
 	}
 	
 	/**
      * When the load factor exceeds 1, a new table of double size is created 
-     * and elements from its predecessor are stored anew.
+     * and elements from its predecessor are rehashed into it. In incremental
+     * mode the old table is only detached here and drained by migrateStep().
      */
 	@SuppressWarnings("unchecked")
 	private void ensureCapacity() {
 		
         if(keyCount/theSize >= 1) {
         	
-        	LinkedList<Pair<K, V>>[] doubleArray;
-        	doubleArray = (LinkedList<Pair<K, V>>[]) new LinkedList[theSize];
-        	
-        	for(int i = 0; i < theSize; i++)
-        		doubleArray[i] = theArray[i];
+        	// a previous migration must finish before the next one starts
+        	while(oldArray != null)
+        		migrateStep();
         	
-        	int newCapacity = theSize*2;
-        	theArray = (LinkedList<Pair<K, V>>[]) new LinkedList[newCapacity];
+        	oldArray = theArray;
+        	oldTrees = treeArray;
+        	migrateIndex = 0;
+        	resizeCount++;
         	
-        	for(int i = 0; i < theSize; i++)
-        		theArray[i] = doubleArray[i];
+        	theSize = theSize*2;
+        	theArray = (LinkedList<Pair<K, V>>[]) new LinkedList[theSize];
+        	treeArray = (AvlTree<Pair<K, V>>[]) new AvlTree[theSize];
         	
-        	theSize = newCapacity;
+        	if(!incremental) {
+        		while(oldArray != null)
+        			migrateStep();
+        	}
         }
     }
+	
+	/**
+     * Moves up to MIGRATION_STEP buckets from the old table to the new one,
+     * and drops the old table once every bucket has been moved.
+     * 
+     * Runtime: O(1) buckets per call in incremental mode. Since the table
+     * doubles once keyCount reaches theSize, the old table's theSize/2
+     * buckets are always drained before the next resize is due.
+     */
+	private void migrateStep() {
+		
+		long start = timeResizes ? System.nanoTime() : 0;
+		int steps = incremental ? MIGRATION_STEP : oldArray.length;
+		
+		while(steps-- > 0 && migrateIndex < oldArray.length)
+			migrateBucket(migrateIndex++);
+		
+		if(migrateIndex == oldArray.length) {
+			oldArray = null;
+			oldTrees = null;
+		}
+		if(timeResizes)
+			resizeNanos += System.nanoTime() - start;
+	}
+	
+	private void filterAdd(K key) {
+		
+		if(filter == null)
+			return;
+		if(keyCount > filterCapacity)
+			rebuildFilter(); // the new key is already in its chain
+		else
+			filter.add(key.hashCode());
+	}
+	
+	private void filterRemoved() {
+		
+		if(filter != null && ++staleKeys > keyCount)
+			rebuildFilter();
+	}
+	
+	/**
+     * Builds a fresh filter for twice the current key count, dropping
+     * removed keys. O(n), but only after n inserts or removes.
+     */
+	private void rebuildFilter() {
+		
+		filterCapacity = Math.max(2 * keyCount, 64);
+		filter = new BloomFilter(filterCapacity, filterRate);
+		for(Pair<K, V> pair : this)
+			filter.add(pair.key.hashCode());
+		staleKeys = 0;
+	}
+	
+	/**
+     * Walks the buckets of the old table, if any, then of the current one.
+     */
+	private class TableIterator implements Iterator<Pair<K, V>> {
+		
+		private final LinkedList<Pair<K, V>>[] first = oldArray;
+		private LinkedList<Pair<K, V>>[] table = (first != null) ? first : theArray;
+		private AvlTree<Pair<K, V>>[] trees = (first != null) ? oldTrees : treeArray;
+		private int index;
+		private Iterator<Pair<K, V>> chain = Collections.emptyIterator();
+		
+		public boolean hasNext() {
+			
+			while(!chain.hasNext()) {
+				if(index == table.length) {
+					if(table != first || first == null)
+						return false;
+					table = theArray;
+					trees = treeArray;
+					index = 0;
+					continue;
+				}
+				AvlTree<Pair<K, V>> tree = trees[index];
+				LinkedList<Pair<K, V>> next = table[index++];
+				if(tree != null) {
+					ArrayList<Pair<K, V>> pairs = new ArrayList<Pair<K, V>>(tree.size());
+					tree.inOrder(pairs::add);
+					chain = pairs.iterator();
+				}
+				else if(next != null)
+					chain = next.iterator();
+			}
+			return true;
+		}
+		
+		public Pair<K, V> next() {
+			
+			if(!hasNext())
+				throw new NoSuchElementException();
+			return chain.next();
+		}
+	}
+	
+	/**
+     * Rehashes every pair of one old bucket into the new table.
+     */
+	private void migrateBucket(int oldIndex) {
+		
+		LinkedList<Pair<K, V>> chain = oldArray[oldIndex];
+		AvlTree<Pair<K, V>> tree = oldTrees[oldIndex];
+		
+		if(chain != null) {
+			for(Pair<K, V> pair : chain)
+				add(hashFunction(pair.key), pair);
+		}
+		if(tree != null)
+			tree.inOrder(pair -> add(hashFunction(pair.key), pair));
+		
+		oldArray[oldIndex] = null;
+		oldTrees[oldIndex] = null;
+	}
 }
\ No newline at end of file
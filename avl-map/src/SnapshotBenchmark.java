@@ -0,0 +1,109 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Compares cold start from scratch (one put per key) with opening a
+ * memory-mapped snapshot, and the get cost and retained heap of the heap
+ * maps against their MappedSortedMap / MappedHashMap views.
+ *
+ * Usage: java SnapshotBenchmark [n] [dir]
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+public class SnapshotBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+
+	public static void main(String[] args) throws IOException {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		File dir = new File(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"));
+
+		String[] keys = new String[n];
+		for(int i = 0; i < n; i++)
+			keys[i] = "key" + (i * 0x9E3779B1L & 0xFFFFFFFFL); // distinct, scattered order
+
+		File sortedFile = new File(dir, "avlmap.snapshot");
+		File hashFile = new File(dir, "hashmap.snapshot");
+		sortedFile.deleteOnExit();
+		hashFile.deleteOnExit();
+
+		System.out.println("n = " + n);
+		System.out.printf("%-22s %12s %12s %14s %12s%n",
+				"map", "start ms", "get ns/op", "heap B/entry", "file MB");
+
+		// AvlMap vs sorted snapshot
+		long before = usedMemory();
+		long start = System.nanoTime();
+		AvlMap<String, Integer> avl = new AvlMap<>();
+		for(int i = 0; i < n; i++)
+			avl.put(keys[i], i);
+		long build = System.nanoTime() - start;
+		long heap = usedMemory() - before;
+		report("AvlMap (rebuild)", build, timeGets(avl, keys), heap, n, null);
+
+		MappedSortedMap.write(avl, sortedFile, Codec.STRING, Codec.INTEGER);
+		avl = null;
+
+		before = usedMemory();
+		start = System.nanoTime();
+		MappedSortedMap<String, Integer> sorted = MappedSortedMap.open(sortedFile, Codec.STRING, Codec.INTEGER);
+		long open = System.nanoTime() - start;
+		heap = usedMemory() - before;
+		report("MappedSortedMap", open, timeGets(sorted, keys), heap, n, sortedFile);
+		sorted = null;
+
+		// SeparateChainingMap vs hash snapshot
+		before = usedMemory();
+		start = System.nanoTime();
+		SeparateChainingMap<String, Integer> chained = new SeparateChainingMap<>();
+		for(int i = 0; i < n; i++)
+			chained.put(keys[i], i);
+		build = System.nanoTime() - start;
+		heap = usedMemory() - before;
+		report("SeparateChainingMap", build, timeGets(chained, keys), heap, n, null);
+
+		MappedHashMap.write(chained, hashFile, Codec.STRING, Codec.INTEGER);
+		chained = null;
+
+		before = usedMemory();
+		start = System.nanoTime();
+		MappedHashMap<String, Integer> hashed = MappedHashMap.open(hashFile, Codec.STRING, Codec.INTEGER);
+		open = System.nanoTime() - start;
+		heap = usedMemory() - before;
+		report("MappedHashMap", open, timeGets(hashed, keys), heap, n, hashFile);
+
+		if(sink == 42)
+			System.out.println();
+	}
+
+	/**
+     * Returns the best of three passes of one get per key, in ns/op.
+     */
+	private static double timeGets(Map<String, Integer> m, String[] keys) {
+
+		long best = Long.MAX_VALUE;
+		for(int r = 0; r < 3; r++) {
+			long start = System.nanoTime();
+			for(String k : keys)
+				sink += m.get(k);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return (double) best / keys.length;
+	}
+
+	private static void report(String name, long startNanos, double getNanos, long heap, int n, File file) {
+
+		System.out.printf("%-22s %12.2f %12.1f %14.1f %12s%n", name, startNanos / 1e6, getNanos,
+				(double) heap / n, file == null ? "-" : String.format("%.1f", file.length() / 1e6));
+	}
+
+	private static long usedMemory() {
+
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Compares retained heap per entry and get latency of the object-graph
+ * AvlMap, the array-backed ArenaAvlMap and the B+-tree BPlusTreeMap.
+ * Usage: java TreeStorageBenchmark [n] [lookups]
+ */
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+public class TreeStorageBenchmark {
+
+	private static long sink; // keeps the JIT from discarding lookups
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+
+		// shuffled Integer keys, boxed up front so they are not counted
+		Integer[] keys = new Integer[n];
+		for(int i = 0; i < n; i++)
+			keys[i] = i;
+		Random rnd = new Random(42);
+		for(int i = n - 1; i > 0; i--) {
+			int j = rnd.nextInt(i + 1);
+			Integer tmp = keys[i];
+			keys[i] = keys[j];
+			keys[j] = tmp;
+		}
+
+		System.out.println("n = " + n + ", " + lookups + " lookups");
+		System.out.printf("%-14s %14s %12s%n", "storage", "bytes/entry", "ns/get");
+
+		run("objects", AvlMap::new, keys, lookups);
+		run("arena", ArenaAvlMap::new, keys, lookups);
+		run("b+tree", BPlusTreeMap::new, keys, lookups);
+	}
+
+	private static void run(String name, Supplier<Map<Integer, Integer>> factory,
+			Integer[] keys, int lookups) {
+
+		long before = usedMemory();
+		Map<Integer, Integer> m = factory.get();
+		for(Integer k : keys)
+			m.put(k, k);
+		long after = usedMemory();
+
+		lookupLoop(m, keys, lookups); // warm up
+		long start = System.nanoTime();
+		lookupLoop(m, keys, lookups);
+		long elapsed = System.nanoTime() - start;
+
+		System.out.printf("%-14s %14.1f %12.1f%n", name,
+				(double) (after - before) / keys.length, (double) elapsed / lookups);
+	}
+
+	private static void lookupLoop(Map<Integer, Integer> m, Integer[] keys, int lookups) {
+
+		int index = 0;
+		for(int i = 0; i < lookups; i++) {
+			sink += m.get(keys[index]);
+			if(++index == keys.length)
+				index = 0;
+		}
+	}
+
+	private static long usedMemory() {
+
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -31,18 +31,8 @@ public class CreateIndex {
 			String[] arr = line.split(" ");
 						
 			for(String str : arr) {
-				
-				if(hm.containsKey(str)) {
-					MyLinkedList<Integer> lines = hm.get(str);
-					lines.add(lineCount);
-					hm.put(str, lines);
-				}
-				
-				else {
-					MyLinkedList<Integer> lines = new MyLinkedList<Integer>();
-					lines.add(lineCount);
-					hm.put(str, lines);
-				}
+				// one hash lookup per word instead of containsKey/get/put
+				hm.computeIfAbsent(str, k -> new MyLinkedList<Integer>()).add(lineCount);
 			}
 			lineCount++;
 		}
@@ -56,10 +46,7 @@ public class CreateIndex {
      */
 	public MyLinkedList<Integer> getIndex(String word) {
 		
-		if(hm.containsKey(word))
-			return hm.get(word);
-		else
-			return null;
+		return hm.get(word);
 	}
 	
 	/**
@@ -0,0 +1,52 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Times building the word index of a text file and looking words up in it.
+ *
+ * Usage: java CreateIndexBenchmark [file] [rounds]
+ * e.g.   java CreateIndexBenchmark iliad.txt 5
+ */
+
+import java.io.*;
+import java.util.*;
+
+public class CreateIndexBenchmark {
+
+	private static long sink; // keeps the JIT from discarding results
+
+	public static void main(String[] args) throws FileNotFoundException {
+
+		File file = new File(args.length > 0 ? args[0] : "iliad.txt");
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		long build = Long.MAX_VALUE, lookup = Long.MAX_VALUE;
+		int words = 0, lookups = 0;
+
+		for(int r = 0; r < rounds; r++) {
+			CreateIndex c = new CreateIndex();
+
+			long start = System.nanoTime();
+			HashMap<String, MyLinkedList<Integer>> m = c.read(file);
+			build = Math.min(build, System.nanoTime() - start);
+
+			String[] keys = m.keySet().toArray(new String[0]);
+			words = keys.length;
+			lookups = 0;
+
+			start = System.nanoTime();
+			for(int i = 0; i < 10; i++) {
+				for(String k : keys) {
+					sink += c.getIndex(k).size();
+					lookups++;
+				}
+			}
+			lookup = Math.min(lookup, System.nanoTime() - start);
+		}
+
+		System.out.println(file + ": " + words + " distinct words, best of " + rounds + " rounds");
+		System.out.printf("build index:  %10.2f ms%n", build / 1e6);
+		System.out.printf("getIndex:     %10.1f ns/op%n", (double) lookup / lookups);
+		if(sink == 42)
+			System.out.println();
+	}
+}
@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 public class ArrayStack<T> {
 	
 	private static int default_size = 10;
@@ -10,16 +12,19 @@ public class ArrayStack<T> {
 		topOfStack = -1;
 	}
 	    
-	@SuppressWarnings("unchecked")
 	private void ensureCapacity(int size) {
-		if (size > theArray.length) {
-			T[] old = theArray;
-	        size = size * 2;
-	        theArray = (T[]) new Object[old.length * 2];
-	        for (int i = 0; i < old.length; i++) 
-	        	theArray[i] = old[i];
-	        }
-	    }
+		if (size > theArray.length)
+			theArray = Arrays.copyOf(theArray, Math.max(theArray.length * 2, size));
+	}
+
+	/**
+	 * Halve the array once it is less than a quarter full, so the stack
+	 * gives back the memory of its peak size.
+	 */
+	private void shrinkIfSparse() {
+		if (theArray.length > default_size && topOfStack + 1 < theArray.length / 4)
+			theArray = Arrays.copyOf(theArray, Math.max(theArray.length / 2, default_size));
+	}
 	    
 	public void push(T x) {
 		topOfStack++;
@@ -32,7 +37,9 @@ public class ArrayStack<T> {
 			throw new IndexOutOfBoundsException("Attempted to pop from "
 	            		+ "empty stack!");
 	        T result = theArray[topOfStack];
+	        theArray[topOfStack] = null; // let the item be collected
 	        topOfStack--;
+	        shrinkIfSparse();
 	        return result;
 	    }
 
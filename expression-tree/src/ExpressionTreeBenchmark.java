@@ -0,0 +1,73 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Times parsing a post-fix expression into an ExpressionTree and
+ * evaluating it, for random expressions of several sizes.
+ *
+ * Usage: java ExpressionTreeBenchmark [operandCounts] [rounds]
+ * e.g.   java ExpressionTreeBenchmark 100,10000 5
+ */
+
+import java.util.Random;
+
+public class ExpressionTreeBenchmark {
+
+	private static double sink; // keeps the JIT from discarding results
+
+	public static void main(String[] args) {
+
+		String[] sizes = (args.length > 0 ? args[0] : "100,1000,10000").split(",");
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		System.out.println("best of " + rounds + " rounds");
+		System.out.printf("%-10s %10s %14s %14s%n", "operands", "chars", "parse ns/tok", "eval ns/tok");
+
+		for(String s : sizes) {
+			int operands = Integer.parseInt(s.trim());
+			String expression = randomPostfix(operands, new Random(42));
+			int tokens = 2 * operands - 1;
+
+			long parse = Long.MAX_VALUE, eval = Long.MAX_VALUE;
+			for(int r = 0; r < rounds; r++) {
+				long start = System.nanoTime();
+				ExpressionTree<?> e = ExpressionTree.makeExpressionTree(expression);
+				parse = Math.min(parse, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				sink += e.evaluate();
+				eval = Math.min(eval, System.nanoTime() - start);
+			}
+
+			System.out.printf("%-10d %10d %14.1f %14.1f%n", operands, expression.length(),
+					(double) parse / tokens, (double) eval / tokens);
+		}
+		if(sink == 42)
+			System.out.println();
+	}
+
+	/**
+     * Builds a random valid post-fix expression with the given number of
+     * operands. Only +, - and * are used so evaluation cannot divide by 0.
+     * Operators are emitted whenever the stack allows, keeping the tree
+     * shallow enough for the recursive evaluate().
+     */
+	static String randomPostfix(int operands, Random rnd) {
+
+		char[] operators = { '+', '-', '*' };
+		StringBuilder sb = new StringBuilder();
+		int depth = 0, pushed = 0;
+
+		while(pushed < operands || depth > 1) {
+			if(pushed < operands && (depth < 2 || rnd.nextBoolean())) {
+				sb.append(1 + rnd.nextInt(9)).append(' ');
+				pushed++;
+				depth++;
+			}
+			else {
+				sb.append(operators[rnd.nextInt(operators.length)]).append(' ');
+				depth--;
+			}
+		}
+		return sb.toString().trim();
+	}
+}
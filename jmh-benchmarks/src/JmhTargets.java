@@ -0,0 +1,289 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The JmhTargets class hands the classes of the other modules to the JMH
+ * benchmarks in package bench. Those cannot name default-package classes,
+ * so they look up these static factories by reflection once per trial,
+ * and every object returned here is seen through a JDK interface
+ * (java.util.Map, Queue and List, and functional interfaces) whose calls
+ * the JIT inlines as usual.
+ *
+ * Names starting with "java.util." give the JDK class itself, as a baseline.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+public class JmhTargets {
+
+	/**
+     * Capacity of the bounded queues, enough for the largest backlog of
+     * QueueBench and a burst on top of it.
+     */
+	private static final int QUEUE_CAPACITY = 1 << 21;
+
+	/**
+     * Returns an empty map of the named implementation.
+     */
+	public static java.util.Map<Integer, Integer> map(String name) {
+
+		switch(name) {
+		case "AvlMap":
+			return view(new AvlMap<Integer, Integer>());
+		case "SeparateChainingMap":
+			return view(new SeparateChainingMap<Integer, Integer>());
+		case "OpenAddressingMap":
+			return view(new OpenAddressingMap<Integer, Integer>());
+		case "ConcurrentChainingMap":
+			return view(new ConcurrentChainingMap<Integer, Integer>());
+		case "BPlusTreeMap":
+			return view(new BPlusTreeMap<Integer, Integer>());
+		case "ArenaAvlMap":
+			return view(new ArenaAvlMap<Integer, Integer>());
+		case "PersistentAvlMap":
+			return view(new PersistentAvlMap<Integer, Integer>());
+		case "java.util.HashMap":
+			return new HashMap<>();
+		case "java.util.TreeMap":
+			return new TreeMap<>();
+		default:
+			throw new IllegalArgumentException("Unknown map: " + name);
+		}
+	}
+
+	/**
+     * Returns count keys drawn from [0, n) by the named KeyDistribution.
+     */
+	public static int[] keys(String distribution, int n, int count, long seed) {
+
+		return KeyDistribution.valueOf(distribution).sample(n, count, seed);
+	}
+
+	/**
+     * Returns an empty queue of the named implementation. poll() on the
+     * repo's queues throws when they are empty instead of returning null.
+     * The bounded queues hold QUEUE_CAPACITY items. SpillingQueue spills
+     * to a new temporary directory, and the queue returned for it is
+     * Closeable: close() deletes the directory.
+     */
+	public static java.util.Queue<Integer> queue(String name) throws IOException {
+
+		switch(name) {
+		case "TwoStackQueue":
+			return view(new TwoStackQueue<Integer>());
+		case "SegmentedArrayQueue":
+			return view(new SegmentedArrayQueue<Integer>());
+		case "SpscRingBuffer":
+			return view(new SpscRingBuffer<Integer>(QUEUE_CAPACITY));
+		case "MpscRingBuffer":
+			return view(new MpscRingBuffer<Integer>(QUEUE_CAPACITY));
+		case "BoundedBlockingQueue":
+			return view(new BoundedBlockingQueue<Integer>(QUEUE_CAPACITY, BoundedBlockingQueue.FullPolicy.BLOCK));
+		case "SpillingQueue":
+			File dir = Files.createTempDirectory("spilling-queue").toFile();
+			return new QueueView<>(SpillingQueue.open(dir, Serializer.INTEGER), dir);
+		case "java.util.ArrayDeque":
+			return new ArrayDeque<>();
+		default:
+			throw new IllegalArgumentException("Unknown queue: " + name);
+		}
+	}
+
+	/**
+     * Returns an empty list of the named implementation.
+     */
+	public static java.util.List<Integer> list(String name) {
+
+		switch(name) {
+		case "MyLinkedList":
+			return view(new MyLinkedList<Integer>());
+		case "java.util.LinkedList":
+			return new LinkedList<>();
+		case "java.util.ArrayList":
+			return new ArrayList<>();
+		default:
+			throw new IllegalArgumentException("Unknown list: " + name);
+		}
+	}
+
+	/**
+     * Returns the random post-fix expression ExpressionTreeBenchmark uses.
+     */
+	public static String postfix(int operands, long seed) {
+
+		return ExpressionTreeBenchmark.randomPostfix(operands, new Random(seed));
+	}
+
+	/**
+     * Returns a function that parses a post-fix expression into an
+     * ExpressionTree, which evaluates it when asked for its value.
+     */
+	public static Function<String, DoubleSupplier> expressionParser() {
+
+		return s -> ExpressionTree.makeExpressionTree(s)::evaluate;
+	}
+
+	/**
+     * Returns a function that indexes a text file with CreateIndex and
+     * returns the index: a word's number of occurrences, or -1.
+     */
+	public static Function<File, ToIntFunction<String>> indexer() {
+
+		return file -> {
+			CreateIndex c = new CreateIndex();
+			try {
+				c.read(file);
+			}
+			catch(FileNotFoundException e) {
+				throw new UncheckedIOException(e);
+			}
+			return word -> {
+				MyLinkedList<Integer> lines = c.getIndex(word);
+				return lines == null ? -1 : lines.size();
+			};
+		};
+	}
+
+	/**
+     * Returns the distinct words of a text file, as CreateIndex splits them.
+     */
+	public static String[] words(File file) throws FileNotFoundException {
+
+		return new CreateIndex().read(file).keySet().toArray(new String[0]);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> java.util.Map<K, V> view(Map<K, V> m) {
+
+		return new AbstractMap<K, V>() {
+
+			public V get(Object key) {
+				return m.get((K) key);
+			}
+
+			public V put(K key, V value) {
+				m.put(key, value);
+				return null;
+			}
+
+			public V remove(Object key) {
+				return m.remove((K) key);
+			}
+
+			public int size() {
+				return m.size();
+			}
+
+			public Set<Entry<K, V>> entrySet() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private static <T> java.util.Queue<T> view(Queue<T> q) {
+
+		return new QueueView<>(q, null);
+	}
+
+	private static class QueueView<T> extends AbstractQueue<T> implements Closeable {
+
+		private final Queue<T> q;
+		private final File dir;		// the directory to delete on close, or null
+		private int size;
+
+		QueueView(Queue<T> q, File dir) {
+			this.q = q;
+			this.dir = dir;
+		}
+
+		public boolean offer(T x) {
+			q.enqueue(x);
+			size++;
+			return true;
+		}
+
+		public T poll() {
+			T x = q.dequeue();
+			size--;
+			return x;
+		}
+
+		public T peek() {
+			throw new UnsupportedOperationException();
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public Iterator<T> iterator() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void close() throws IOException {
+			if(q instanceof Closeable)
+				((Closeable) q).close();
+			if(dir != null) {
+				for(File f : dir.listFiles())
+					f.delete();
+				dir.delete();
+			}
+		}
+	}
+
+	private static <T> java.util.List<T> view(MyLinkedList<T> l) {
+
+		return new AbstractList<T>() {
+
+			public T get(int idx) {
+				return l.get(idx);
+			}
+
+			public T set(int idx, T x) {
+				return l.set(idx, x);
+			}
+
+			public void add(int idx, T x) {
+				l.add(idx, x);
+			}
+
+			public boolean add(T x) {
+				return l.add(x);
+			}
+
+			public T remove(int idx) {
+				return l.remove(idx);
+			}
+
+			public int size() {
+				return l.size();
+			}
+
+			public int indexOf(Object o) {
+				return l.indexOf(o);
+			}
+
+			public Iterator<T> iterator() {
+				return l.iterator();
+			}
+		};
+	}
+}
@@ -0,0 +1,49 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Parsing a random post-fix expression into an ExpressionTree and
+ * evaluating it, the JMH counterpart of ExpressionTreeBenchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpressionBench {
+
+	@Param({ "100", "10000" })
+	public int operands;
+
+	private String expression;
+	private Function<String, DoubleSupplier> parser;
+	private DoubleSupplier tree;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		expression = Targets.call("postfix", operands, 42L);
+		parser = Targets.call("expressionParser");
+		tree = parser.apply(expression);
+	}
+
+	@Benchmark
+	public DoubleSupplier parse() {
+
+		return parser.apply(expression);
+	}
+
+	@Benchmark
+	public double evaluate() {
+
+		return tree.getAsDouble();
+	}
+}
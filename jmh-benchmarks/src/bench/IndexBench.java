@@ -0,0 +1,55 @@
+package bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Indexing a text file with CreateIndex and looking words up in the
+ * index, the JMH counterpart of CreateIndexBenchmark. The file path is
+ * relative to the directory JMH is started from.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IndexBench {
+
+	@Param({ "create-index/iliad.txt" })
+	public String file;
+
+	private Function<File, ToIntFunction<String>> indexer;
+	private ToIntFunction<String> index;
+	private String[] words;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		indexer = Targets.call("indexer");
+		index = indexer.apply(new File(file));
+		words = Targets.call("words", new File(file));
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public ToIntFunction<String> build() {
+
+		return indexer.apply(new File(file));
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public int lookup() {
+
+		if(next == words.length)
+			next = 0;
+		return index.applyAsInt(words[next++]);
+	}
+}
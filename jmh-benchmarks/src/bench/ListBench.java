@@ -0,0 +1,78 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * List operations, the JMH counterpart of LinkedListBenchmark, on a list
+ * of the given size: append and remove at the end, add and remove at the
+ * front, get and indexOf at a random position, and a full iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ListBench {
+
+	private static final int POSITIONS = 1 << 12;
+
+	@Param({ "MyLinkedList", "java.util.LinkedList", "java.util.ArrayList" })
+	public String list;
+
+	@Param({ "100", "10000" })
+	public int size;
+
+	private List<Integer> l;
+	private int[] positions;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		l = Targets.call("list", list);
+		for(int i = 0; i < size; i++)
+			l.add(i);
+		positions = new java.util.Random(42).ints(POSITIONS, 0, size).toArray();
+	}
+
+	@Benchmark
+	public Integer addRemoveLast() {
+
+		l.add(size);
+		return l.remove(size);
+	}
+
+	@Benchmark
+	public Integer addRemoveFirst() {
+
+		l.add(0, -1);
+		return l.remove(0);
+	}
+
+	@Benchmark
+	public Integer get() {
+
+		return l.get(positions[next++ & (POSITIONS - 1)]);
+	}
+
+	@Benchmark
+	public int indexOf() {
+
+		return l.indexOf(positions[next++ & (POSITIONS - 1)]);
+	}
+
+	@Benchmark
+	public long iterate() {
+
+		long sum = 0;
+		for(Integer x : l)
+			sum += x;
+		return sum;
+	}
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * get/put mixes on the in-memory Map implementations, the JMH counterpart
+ * of MapBenchmark. The map is filled with keys [0, size) before each trial;
+ * the operations then draw their keys from the given KeyDistribution over
+ * [0, 2 * size), so about half the gets miss and half the puts insert.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapBench {
+
+	private static final int OPS = 1 << 16;	// length of the precomputed key stream
+
+	@Param({ "AvlMap", "ArenaAvlMap", "PersistentAvlMap", "SeparateChainingMap", "OpenAddressingMap",
+			"ConcurrentChainingMap", "BPlusTreeMap", "java.util.HashMap", "java.util.TreeMap" })
+	public String map;
+
+	@Param({ "1000", "1000000" })
+	public int size;
+
+	@Param({ "SEQUENTIAL", "UNIFORM", "ZIPFIAN" })
+	public String distribution;
+
+	@Param({ "0", "10", "50" })
+	public int writePercent;
+
+	private Map<Integer, Integer> m;
+	private Integer[] keys;
+	private boolean[] writes;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		m = Targets.call("map", map);
+		for(int i = 0; i < size; i++)
+			m.put(i, i);
+
+		int[] drawn = Targets.call("keys", distribution, 2 * size, OPS, 42L);
+		keys = new Integer[OPS];
+		writes = new boolean[OPS];
+		java.util.Random rnd = new java.util.Random(7);
+		for(int i = 0; i < OPS; i++) {
+			keys[i] = drawn[i];
+			writes[i] = rnd.nextInt(100) < writePercent;
+		}
+	}
+
+	@Benchmark
+	public Integer mixed() {
+
+		int i = next++ & (OPS - 1);
+		if(writes[i]) {
+			m.put(keys[i], i);
+			return null;
+		}
+		return m.get(keys[i]);
+	}
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Queue enqueue/dequeue, the JMH counterpart of QueueBenchmark: one
+ * enqueue and one dequeue behind a backlog of the given length, and a
+ * burst of batch enqueues followed by as many dequeues. SpillingQueue
+ * keeps its default 65536 items in memory at each end, so the largest
+ * backlog goes through its segment files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueueBench {
+
+	private static final int BATCH = 1000;
+
+	@Param({ "TwoStackQueue", "SegmentedArrayQueue", "SpscRingBuffer", "MpscRingBuffer", "BoundedBlockingQueue",
+			"SpillingQueue", "java.util.ArrayDeque" })
+	public String queue;
+
+	@Param({ "0", "1000", "1000000" })
+	public int backlog;
+
+	private Queue<Integer> q;
+	private final Integer item = 42;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		q = Targets.call("queue", queue);
+		for(int i = 0; i < backlog; i++)
+			q.offer(i);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+
+		if(q instanceof Closeable)
+			((Closeable) q).close();
+	}
+
+	@Benchmark
+	public Integer interleaved() {
+
+		q.offer(item);
+		return q.poll();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2 * BATCH)
+	public void burst(Blackhole bh) {
+
+		for(int i = 0; i < BATCH; i++)
+			q.offer(item);
+		for(int i = 0; i < BATCH; i++)
+			bh.consume(q.poll());
+	}
+}
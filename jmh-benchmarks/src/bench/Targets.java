@@ -0,0 +1,35 @@
+package bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Calls the static factories of the default-package JmhTargets class by
+ * name, since code in a named package cannot refer to it directly. Only
+ * used in setup methods, outside the measured code.
+ */
+final class Targets {
+
+	private Targets() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> T call(String method, Object... args) {
+
+		try {
+			for(Method m : Class.forName("JmhTargets").getMethods()) {
+				if(m.getName().equals(method) && m.getParameterCount() == args.length)
+					return (T) m.invoke(null, args);
+			}
+			throw new IllegalArgumentException("No JmhTargets." + method + " with " + args.length + " arguments");
+		}
+		catch(InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		catch(ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Times the common MyLinkedList operations at several sizes: appending,
+ * inserting at the front, indexed get, iteration, indexOf and removing
+ * from the front.
+ *
+ * Usage: java LinkedListBenchmark [sizes] [rounds]
+ * e.g.   java LinkedListBenchmark 1000,100000 5
+ */
+
+import java.util.Random;
+
+public class LinkedListBenchmark {
+
+	private static long sink; // keeps the JIT from discarding results
+
+	public static void main(String[] args) {
+
+		String[] sizes = (args.length > 0 ? args[0] : "1000,10000,100000").split(",");
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		System.out.println("best of " + rounds + " rounds");
+		System.out.printf("%-14s %10s %12s%n", "operation", "size", "ns/op");
+
+		for(String s : sizes) {
+			int n = Integer.parseInt(s.trim());
+			Integer[] items = new Integer[n];
+			for(int i = 0; i < n; i++)
+				items[i] = i;
+
+			// random positions and values for get and indexOf, fixed per size
+			Random rnd = new Random(42);
+			int probes = Math.min(n, 1000);
+			int[] positions = new int[probes];
+			Integer[] values = new Integer[probes];
+			for(int i = 0; i < probes; i++) {
+				positions[i] = rnd.nextInt(n);
+				values[i] = items[rnd.nextInt(n)];
+			}
+
+			long[] best = new long[6];
+			java.util.Arrays.fill(best, Long.MAX_VALUE);
+
+			for(int r = 0; r < rounds; r++) {
+				long start = System.nanoTime();
+				MyLinkedList<Integer> lst = new MyLinkedList<>();
+				for(Integer x : items)
+					lst.add(x);
+				best[0] = Math.min(best[0], System.nanoTime() - start);
+
+				start = System.nanoTime();
+				MyLinkedList<Integer> front = new MyLinkedList<>();
+				for(Integer x : items)
+					front.add(0, x);
+				best[1] = Math.min(best[1], System.nanoTime() - start);
+
+				start = System.nanoTime();
+				for(int p : positions)
+					sink += lst.get(p);
+				best[2] = Math.min(best[2], System.nanoTime() - start);
+
+				start = System.nanoTime();
+				for(Integer x : lst)
+					sink += x;
+				best[3] = Math.min(best[3], System.nanoTime() - start);
+
+				start = System.nanoTime();
+				for(Integer v : values)
+					sink += lst.indexOf(v);
+				best[4] = Math.min(best[4], System.nanoTime() - start);
+
+				start = System.nanoTime();
+				while(!lst.isEmpty())
+					sink += lst.remove(0);
+				best[5] = Math.min(best[5], System.nanoTime() - start);
+			}
+
+			System.out.printf("%-14s %10d %12.1f%n", "add", n, (double) best[0] / n);
+			System.out.printf("%-14s %10d %12.1f%n", "add(0, x)", n, (double) best[1] / n);
+			System.out.printf("%-14s %10d %12.1f%n", "get(i)", n, (double) best[2] / probes);
+			System.out.printf("%-14s %10d %12.1f%n", "iterate", n, (double) best[3] / n);
+			System.out.printf("%-14s %10d %12.1f%n", "indexOf", n, (double) best[4] / probes);
+			System.out.printf("%-14s %10d %12.1f%n", "remove(0)", n, (double) best[5] / n);
+		}
+		if(sink == 42)
+			System.out.println();
+	}
+}
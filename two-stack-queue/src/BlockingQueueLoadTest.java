@@ -0,0 +1,173 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Overloads a BoundedBlockingQueue under each FullPolicy and reports what
+ * the consumers got through and how long messages waited.
+ *
+ * Producers send messages on a fixed schedule, overload times faster than
+ * the consumers can handle them. Each consumer takes messages in batches
+ * with drainTo, or waits in poll(timeout) when the queue is empty, and
+ * handles each one by parking for work microseconds, as a thread waiting
+ * on I/O would. A producer hands each message over with offer(timeout), so
+ * under BLOCK it waits up to that long for room and gives the message up
+ * after that. Producers stop at the end of the run even if blocking has
+ * left them behind schedule, so offered/s shows how far backpressure
+ * slowed them down.
+ *
+ * A message's delay runs from the time it was scheduled to be sent until a
+ * consumer takes it, so it includes any time its producer spent blocked or
+ * behind schedule as well as the time in the queue. Messages the queue
+ * dropped or refused have no delay and are counted separately.
+ *
+ * The threads are ordinary platform threads. Their waiting goes through
+ * LockSupport.park rather than a monitor, the same way a virtual thread's
+ * would.
+ *
+ * Usage: java BlockingQueueLoadTest [producers] [consumers] [capacity] [seconds]
+ *                                   [work us] [overload] [offer timeout ms]
+ * e.g.   java BlockingQueueLoadTest 8 4 256 3 200 2 20
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class BlockingQueueLoadTest {
+
+	private static final int BATCH = 32;	// most messages a consumer takes at once
+
+	public static void main(String[] args) throws InterruptedException {
+
+		int producers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+		double seconds = args.length > 3 ? Double.parseDouble(args[3]) : 3;
+		int workMicros = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+		double overload = args.length > 5 ? Double.parseDouble(args[5]) : 2;
+		long offerTimeout = args.length > 6 ? Long.parseLong(args[6]) : 20;
+
+		double serviceRate = consumers * 1e6 / workMicros;
+		long interval = (long) (producers * 1e9 / (serviceRate * overload));
+
+		System.out.printf("%d producers, %d consumers, capacity %d, %.1f s, %d us work, "
+				+ "offered at %.1fx capacity (%.0f msgs/sec), offer timeout %d ms%n",
+				producers, consumers, capacity, seconds, workMicros, overload,
+				serviceRate * overload, offerTimeout);
+		System.out.printf("%-12s %10s %10s %9s %9s %9s %24s%n", "policy", "offered/s",
+				"handled/s", "handled", "dropped", "refused", "delay p50/p99/max ms");
+
+		for(BoundedBlockingQueue.FullPolicy policy : BoundedBlockingQueue.FullPolicy.values())
+			run(new BoundedBlockingQueue<>(capacity, policy), producers, consumers,
+					(long) (seconds * 1e9), interval, workMicros * 1000L, offerTimeout);
+	}
+
+	/**
+	 * A message stamped with the time it was scheduled to be sent.
+	 */
+	private static final class Message {
+		final long scheduled;
+
+		Message(long scheduled) {
+			this.scheduled = scheduled;
+		}
+	}
+
+	private static void run(BoundedBlockingQueue<Message> q, int producers, int consumers,
+			long duration, long interval, long work, long offerTimeout) throws InterruptedException {
+
+		AtomicLong offered = new AtomicLong(), refused = new AtomicLong();
+		long start = System.nanoTime(), end = start + duration;
+
+		Thread[] producerThreads = new Thread[producers];
+		for(int p = 0; p < producers; p++) {
+			long first = start + interval * p / producers;	// staggers the producers
+			producerThreads[p] = new Thread(() -> {
+				long sent = 0, failed = 0;
+				try {
+					for(long next = first; next < end; next += interval) {
+						long wait = next - System.nanoTime();
+						if(wait > 0)
+							LockSupport.parkNanos(wait);
+						else if(System.nanoTime() > end)
+							break;	// fell behind; the rest were never offered
+						if(!q.offer(new Message(next), offerTimeout, TimeUnit.MILLISECONDS))
+							failed++;
+						sent++;
+					}
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				offered.addAndGet(sent);
+				refused.addAndGet(failed);
+			});
+			producerThreads[p].start();
+		}
+
+		long[][] delays = new long[consumers][];
+		int[] handled = new int[consumers];
+		long[] lastTaken = new long[consumers];
+		Thread[] consumerThreads = new Thread[consumers];
+		for(int c = 0; c < consumers; c++) {
+			int id = c;
+			consumerThreads[c] = new Thread(() -> {
+				ArrayList<Message> batch = new ArrayList<>(BATCH);
+				long[] mine = new long[1024];
+				int n = 0;
+				try {
+					while(true) {
+						if(q.drainTo(batch, BATCH) == 0) {
+							Message m = q.poll(10, TimeUnit.MILLISECONDS);
+							if(m == null) {
+								if(System.nanoTime() > end && q.isEmpty())
+									break;
+								continue;
+							}
+							batch.add(m);
+						}
+
+						long now = System.nanoTime();
+						for(Message m : batch) {
+							if(n == mine.length)
+								mine = Arrays.copyOf(mine, n * 2);
+							mine[n++] = now - m.scheduled;
+							LockSupport.parkNanos(work);
+						}
+						lastTaken[id] = now;
+						batch.clear();
+					}
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				delays[id] = Arrays.copyOf(mine, n);
+				handled[id] = n;
+			});
+			consumerThreads[c].start();
+		}
+
+		for(Thread t : producerThreads)
+			t.join();
+		for(Thread t : consumerThreads)
+			t.join();
+
+		int total = 0;
+		long finish = start;
+		for(int c = 0; c < consumers; c++) {
+			total += handled[c];
+			finish = Math.max(finish, lastTaken[c]);
+		}
+		long[] all = new long[total];
+		for(int c = 0, i = 0; c < consumers; i += handled[c], c++)
+			System.arraycopy(delays[c], 0, all, i, handled[c]);
+		Arrays.sort(all);
+
+		String delay = total == 0 ? "-" : String.format("%.1f/%.1f/%.1f",
+				all[total / 2] / 1e6, all[(int) (total * 0.99)] / 1e6, all[total - 1] / 1e6);
+		System.out.printf("%-12s %10.0f %10.0f %9d %9d %9d %24s%n", q.policy(),
+				offered.get() / (duration / 1e9), total / ((finish - start) / 1e9),
+				total, q.droppedCount(), refused.get(), delay);
+	}
+}
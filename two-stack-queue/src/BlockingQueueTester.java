@@ -0,0 +1,155 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Checks BoundedBlockingQueue: the full-queue policies and timeouts on a
+ * single thread, then many producers and consumers streaming through a
+ * small queue, where every item must arrive exactly once and each
+ * producer's items must reach a single consumer in order.
+ */
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class BlockingQueueTester {
+
+	public static void main(String[] args) throws InterruptedException {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		BoundedBlockingQueue<Integer> drop = new BoundedBlockingQueue<>(3,
+				BoundedBlockingQueue.FullPolicy.DROP_OLDEST);
+		for(int i = 1; i <= 5; i++)
+			drop.enqueue(i);
+		System.out.println("DROP_OLDEST after 1..5: " + drain(drop) + ", dropped "
+				+ drop.droppedCount());
+
+		BoundedBlockingQueue<Integer> reject = new BoundedBlockingQueue<>(2,
+				BoundedBlockingQueue.FullPolicy.REJECT);
+		System.out.println("REJECT offers: " + reject.offer(1) + " " + reject.offer(2) + " "
+				+ reject.offer(3) + " " + reject.offer(4, 1, TimeUnit.SECONDS) + ", contents "
+				+ drain(reject) + ", rejected " + reject.rejectedCount());
+		try {
+			reject.enqueue(5);
+			reject.enqueue(6);
+			reject.enqueue(7);
+			System.out.println("enqueue to a full REJECT queue: no exception");
+		}
+		catch(IllegalStateException e) {
+			System.out.println("enqueue to a full REJECT queue: " + e.getMessage());
+		}
+
+		BoundedBlockingQueue<Integer> block = new BoundedBlockingQueue<>(1,
+				BoundedBlockingQueue.FullPolicy.BLOCK);
+		block.enqueue(1);
+		long start = System.nanoTime();
+		boolean accepted = block.offer(2, 50, TimeUnit.MILLISECONDS);
+		System.out.printf("BLOCK offer(50 ms) to a full queue: %b after %.0f ms%n", accepted,
+				(System.nanoTime() - start) / 1e6);
+		block.dequeue();
+		start = System.nanoTime();
+		Integer got = block.poll(50, TimeUnit.MILLISECONDS);
+		System.out.printf("poll(50 ms) on an empty queue: %s after %.0f ms%n", got,
+				(System.nanoTime() - start) / 1e6);
+		try {
+			block.dequeue();
+		}
+		catch(IndexOutOfBoundsException e) {
+			System.out.println("dequeue on an empty queue: " + e.getMessage());
+		}
+
+		Thread waiter = new Thread(() -> {
+			try {
+				block.take();
+				System.out.println("take returned without an item");
+			}
+			catch(InterruptedException e) {
+				System.out.println("take interrupted: ok");
+			}
+		});
+		waiter.start();
+		Thread.sleep(20);
+		waiter.interrupt();
+		waiter.join();
+
+		System.out.println();
+		System.out.println("4 producers, 1 consumer:  " + stream(4, 1, n));
+		System.out.println("4 producers, 4 consumers: " + stream(4, 4, n));
+		System.out.println("16 producers, 3 consumers: " + stream(16, 3, n));
+	}
+
+	private static ArrayList<Integer> drain(BoundedBlockingQueue<Integer> q) {
+		ArrayList<Integer> out = new ArrayList<>();
+		q.drainTo(out, Integer.MAX_VALUE);
+		return out;
+	}
+
+	/**
+	 * Streams n items from the producers through a BLOCK queue of capacity
+	 * 16 to the consumers, which drain what is there or take when it is
+	 * empty.
+	 * Returns "ok" when each item was received once and, with a single
+	 * consumer, each producer's items arrived in order.
+	 */
+	private static String stream(int producers, int consumers, int n) throws InterruptedException {
+
+		BoundedBlockingQueue<Integer> q = new BoundedBlockingQueue<>(16,
+				BoundedBlockingQueue.FullPolicy.BLOCK);
+		int each = n / producers, total = each * producers;
+		AtomicIntegerArray seen = new AtomicIntegerArray(total);
+		int[] next = new int[producers];
+		int[] outOfOrder = new int[1];
+
+		Thread[] threads = new Thread[producers + consumers];
+		for(int p = 0; p < producers; p++) {
+			int base = p * each;
+			threads[p] = new Thread(() -> {
+				for(int i = 0; i < each; i++)
+					q.enqueue(base + i);
+			});
+		}
+		int share = total / consumers;
+		for(int c = 0; c < consumers; c++) {
+			int quota = c == consumers - 1 ? total - share * (consumers - 1) : share;
+			threads[producers + c] = new Thread(() -> {
+				ArrayList<Integer> batch = new ArrayList<>();
+				try {
+					for(int received = 0; received < quota; ) {
+						if(q.drainTo(batch, quota - received) == 0)
+							batch.add(q.take());
+						for(int x : batch) {
+							seen.incrementAndGet(x);
+							if(consumers == 1) {
+								int p = x / each;
+								if(x - p * each != next[p])
+									outOfOrder[0]++;
+								next[p] = x - p * each + 1;
+							}
+						}
+						received += batch.size();
+						batch.clear();
+					}
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		for(Thread t : threads)
+			t.start();
+		for(Thread t : threads)
+			t.join();
+
+		int missing = 0, duplicated = 0;
+		for(int i = 0; i < total; i++) {
+			if(seen.get(i) == 0)
+				missing++;
+			else if(seen.get(i) > 1)
+				duplicated++;
+		}
+		if(missing + duplicated + outOfOrder[0] == 0)
+			return "ok, " + total + " received";
+		return missing + " missing, " + duplicated + " duplicated, " + outOfOrder[0]
+				+ " out of order";
+	}
+}
@@ -0,0 +1,334 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * BoundedBlockingQueue class implements a queue of fixed capacity that is
+ * safe for any number of producer and consumer threads. It gives bursty
+ * producers backpressure instead of growing without bound, as the
+ * TwoStackQueue stacks do.
+ *
+ * What a producer sees when the queue is full is set by its FullPolicy:
+ * BLOCK waits for room, DROP_OLDEST discards the item at the front to make
+ * room, and REJECT refuses the new item. Consumers wait for an item with
+ * take() or poll(timeout).
+ *
+ * The items live in a circular array guarded by one ReentrantLock with two
+ * Conditions. Waiting threads park through the lock rather than a
+ * synchronized monitor, which also keeps virtual threads unpinned on JDKs
+ * that have them. Wakeups are counted: a thread only signals a Condition
+ * when someone is waiting on it, it wakes one waiter per item or free slot
+ * rather than all of them, and drainTo moves a whole batch under a single
+ * lock acquisition with one round of signals.
+ */
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class BoundedBlockingQueue<T> implements Queue<T> {
+
+	public enum FullPolicy { BLOCK, DROP_OLDEST, REJECT }
+
+	private final T[] items;
+	private final FullPolicy policy;
+	private int head;		// index of the front item
+	private int count;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private int waitingConsumers;
+	private int waitingProducers;
+
+	private long dropped;	// items discarded by DROP_OLDEST
+	private long rejected;	// items refused without waiting
+
+	@SuppressWarnings("unchecked")
+	public BoundedBlockingQueue(int capacity, FullPolicy policy) {
+		if(capacity < 1)
+			throw new IllegalArgumentException("Capacity must be positive: "
+		+ capacity);
+
+		items = (T[]) new Object[capacity];
+		this.policy = policy;
+	}
+
+	/**
+	 * Insert x at the back of the queue, applying the full-queue policy:
+	 * BLOCK waits as long as it takes.
+	 *
+	 * @throws IllegalStateException if REJECT refuses x, or if the thread
+	 * is interrupted while waiting; its interrupt status is then set again.
+	 */
+	public void enqueue(T x) {
+		try {
+			if(!offer(x, Long.MAX_VALUE, TimeUnit.NANOSECONDS))
+				throw new IllegalStateException("Queue is full");
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for room", e);
+		}
+	}
+
+	/**
+	 * Insert x at the back of the queue, applying the full-queue policy:
+	 * BLOCK waits as long as it takes.
+	 *
+	 * @return false if REJECT refused x.
+	 */
+	public boolean put(T x) throws InterruptedException {
+		return offer(x, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Insert x at the back of the queue without waiting.
+	 *
+	 * @return false if the queue is full and the policy is not
+	 * DROP_OLDEST.
+	 */
+	public boolean offer(T x) {
+		if(x == null)
+			throw new NullPointerException("Null items are not supported");
+
+		lock.lock();
+		try {
+			if(count == items.length && !makeRoom(false))
+				return false;
+			insert(x);
+			return true;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Insert x at the back of the queue, applying the full-queue policy:
+	 * BLOCK waits up to timeout for room.
+	 *
+	 * @return false if the queue stayed full for the whole timeout, or if
+	 * REJECT refused x.
+	 */
+	public boolean offer(T x, long timeout, TimeUnit unit) throws InterruptedException {
+		if(x == null)
+			throw new NullPointerException("Null items are not supported");
+
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while(count == items.length) {
+				if(makeRoom(true))
+					break;
+				if(policy == FullPolicy.REJECT || nanos <= 0)
+					return false;
+
+				waitingProducers++;
+				try {
+					nanos = notFull.awaitNanos(nanos);
+				}
+				finally {
+					waitingProducers--;
+				}
+			}
+			insert(x);
+			return true;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove and return the item at the front of the queue, waiting for
+	 * one if the queue is empty.
+	 */
+	public T take() throws InterruptedException {
+		return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Remove and return the item at the front of the queue, waiting up to
+	 * timeout for one.
+	 *
+	 * @return the item, or null if the queue stayed empty.
+	 */
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while(count == 0) {
+				if(nanos <= 0)
+					return null;
+
+				waitingConsumers++;
+				try {
+					nanos = notEmpty.awaitNanos(nanos);
+				}
+				finally {
+					waitingConsumers--;
+				}
+			}
+			T x = extract();
+			wakeProducers(1);
+			return x;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove and return the item at the front of the queue without
+	 * waiting.
+	 *
+	 * @return the item, or null if the queue is empty.
+	 */
+	public T poll() {
+		lock.lock();
+		try {
+			if(count == 0)
+				return null;
+			T x = extract();
+			wakeProducers(1);
+			return x;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove and return the item at the front of the queue without
+	 * waiting.
+	 *
+	 * @throws IndexOutOfBoundsException if the queue is empty.
+	 */
+	public T dequeue() {
+		T x = poll();
+		if(x == null)
+			throw new IndexOutOfBoundsException("Attempted to dequeue an empty "
+		+ "queue");
+		return x;
+	}
+
+	/**
+	 * Remove up to max items from the front of the queue into target, in
+	 * FIFO order, under one lock acquisition, and wake as many waiting
+	 * producers as slots were freed. Does not wait.
+	 *
+	 * @return the number of items added to target.
+	 */
+	public int drainTo(Collection<? super T> target, int max) {
+		lock.lock();
+		try {
+			int n = Math.min(max, count);
+			for(int i = 0; i < n; i++)
+				target.add(extract());
+			wakeProducers(n);
+			return n;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int capacity() {
+		return items.length;
+	}
+
+	public FullPolicy policy() {
+		return policy;
+	}
+
+	/**
+	 * Return the number of items discarded by DROP_OLDEST.
+	 */
+	public long droppedCount() {
+		lock.lock();
+		try {
+			return dropped;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the number of items refused by REJECT, or under BLOCK by the
+	 * offer that does not wait.
+	 */
+	public long rejectedCount() {
+		lock.lock();
+		try {
+			return rejected;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Apply the policy to a full queue. Called with the lock held.
+	 *
+	 * @param mayWait whether the caller waits when the policy is BLOCK.
+	 * @return true if there is now room for one item.
+	 */
+	private boolean makeRoom(boolean mayWait) {
+		switch(policy) {
+		case DROP_OLDEST:
+			extract();
+			dropped++;
+			return true;
+		case REJECT:
+			rejected++;
+			return false;
+		default:
+			if(!mayWait)
+				rejected++;
+			return false;
+		}
+	}
+
+	private void insert(T x) {
+		int tail = head + count;
+		if(tail >= items.length)
+			tail -= items.length;
+		items[tail] = x;
+		count++;
+
+		if(waitingConsumers > 0)
+			notEmpty.signal();
+	}
+
+	private T extract() {
+		T x = items[head];
+		items[head] = null;	// let the item be collected
+		if(++head == items.length)
+			head = 0;
+		count--;
+		return x;
+	}
+
+	/**
+	 * Wake one waiting producer per freed slot, at most.
+	 */
+	private void wakeProducers(int freed) {
+		for(int i = Math.min(freed, waitingProducers); i > 0; i--)
+			notFull.signal();
+	}
+}
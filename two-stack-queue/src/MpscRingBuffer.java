@@ -0,0 +1,137 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * MpscRingBuffer class implements a bounded queue for any number of
+ * producer threads and exactly one consumer thread, without locks, for
+ * fanning several streams into one.
+ *
+ * It is laid out like SpscRingBuffer, but producers claim a slot by a
+ * compare-and-set on the shared tail index, and then publish the item by a
+ * release store into the slot itself. The consumer therefore waits on the
+ * slot rather than the tail: a slot that has been claimed but not yet
+ * filled is still null, and the consumer spins on it briefly instead of
+ * reporting the queue empty. The producers share one cached copy of the
+ * head index, which is only reread when it says the queue is full.
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+public class MpscRingBuffer<T> implements Queue<T> {
+
+	private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+	private final T[] buffer;
+	private final int mask;		// capacity - 1
+	private final SpscRingBuffer.PaddedIndex tail = new SpscRingBuffer.PaddedIndex();	// next slot to claim; cached holds the head
+	private final SpscRingBuffer.PaddedIndex head = new SpscRingBuffer.PaddedIndex();	// next slot to take
+
+	/**
+	 * Create a ring buffer holding at least capacity items, rounded up to
+	 * a power of two.
+	 */
+	@SuppressWarnings("unchecked")
+	public MpscRingBuffer(int capacity) {
+		if(capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Capacity must be in [1, 2^30]: "
+		+ capacity);
+
+		int size = 1;
+		while(size < capacity)
+			size <<= 1;
+		buffer = (T[]) new Object[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Insert x at the back of the queue if there is room. Any thread.
+	 *
+	 * @return false if the queue is full.
+	 *
+	 * Runtime: O(1), plus retries while other producers win the race
+	 */
+	public boolean offer(T x) {
+		if(x == null)
+			throw new NullPointerException("Null items are not supported");
+
+		long t;
+		do {
+			t = (long) SpscRingBuffer.Index.VALUE.getVolatile(tail);
+			long cachedHead = (long) SpscRingBuffer.Index.CACHED.getAcquire(tail);
+			if(t - cachedHead > mask) {
+				cachedHead = (long) SpscRingBuffer.Index.VALUE.getAcquire(head);
+				SpscRingBuffer.Index.CACHED.setRelease(tail, cachedHead);
+				if(t - cachedHead > mask)
+					return false;
+			}
+		} while(!SpscRingBuffer.Index.VALUE.compareAndSet(tail, t, t + 1));
+
+		SLOT.setRelease(buffer, (int) t & mask, x);	// publishes the item
+		return true;
+	}
+
+	/**
+	 * Remove and return the item at the front of the queue. Consumer only.
+	 *
+	 * @return the item, or null if the queue is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		long h = head.value;	// only this thread writes it
+		int slot = (int) h & mask;
+		T x = (T) SLOT.getAcquire(buffer, slot);
+
+		if(x == null) {
+			if(h == (long) SpscRingBuffer.Index.VALUE.getAcquire(tail))
+				return null;
+
+			// claimed by a producer that has not stored into it yet
+			for(int spins = 0; (x = (T) SLOT.getAcquire(buffer, slot)) == null; spins++)
+				SpscRingBuffer.backOff(spins);
+		}
+
+		buffer[slot] = null;	// ordered before the release of head
+		SpscRingBuffer.Index.VALUE.setRelease(head, h + 1);	// frees the slot
+		return x;
+	}
+
+	/**
+	 * Insert x at the back of the queue, waiting for room if it is full.
+	 * Any thread.
+	 */
+	public void enqueue(T x) {
+		for(int spins = 0; !offer(x); spins++)
+			SpscRingBuffer.backOff(spins);
+	}
+
+	/**
+	 * Remove and return the item at the front of the queue. Consumer only.
+	 *
+	 * @throws IndexOutOfBoundsException if the queue is empty.
+	 */
+	public T dequeue() {
+		T x = poll();
+		if(x == null)
+			throw new IndexOutOfBoundsException("Attempted to dequeue an empty "
+		+ "queue");
+		return x;
+	}
+
+	/**
+	 * Return the number of items claimed and not yet taken. Exact only
+	 * when no thread is running.
+	 */
+	public int size() {
+		long h = (long) SpscRingBuffer.Index.VALUE.getAcquire(head);
+		long t = (long) SpscRingBuffer.Index.VALUE.getAcquire(tail);
+		return (int) Math.max(0, Math.min(t - h, buffer.length));
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int capacity() {
+		return buffer.length;
+	}
+}
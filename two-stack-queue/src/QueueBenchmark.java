@@ -0,0 +1,216 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Times TwoStackQueue for bulk (enqueue n, then dequeue n), interleaved
+ * (enqueue one, dequeue one, with n/2 items in flight) and batched
+ * (enqueueAll and drainTo in runs of 64) traffic. Bulk and interleaved
+ * traffic also run on SegmentedArrayQueue and on EagerTransferQueue, the
+ * earlier TwoStackQueue that moved the whole inbox to the outbox on every
+ * dequeue, and the items each queue dequeues away from their FIFO
+ * position are counted.
+ *
+ * Usage: java QueueBenchmark [sizes] [rounds]
+ * e.g.   java QueueBenchmark 1000,100000,1000000 5
+ */
+
+import java.util.ArrayList;
+
+public class QueueBenchmark {
+
+	private static long sink; // keeps the JIT from discarding dequeues
+	private static final int BATCH = 64;
+
+	public static void main(String[] args) {
+
+		String[] sizes = (args.length > 0 ? args[0] : "1000,100000,1000000").split(",");
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		System.out.println("best of " + rounds + " rounds");
+		System.out.printf("%-14s %-16s %10s %12s %14s%n", "workload", "queue", "size", "ns/op", "out of order");
+
+		for(String s : sizes) {
+			int n = Integer.parseInt(s.trim());
+			Integer[] items = new Integer[n];
+			for(int i = 0; i < n; i++)
+				items[i] = i;
+
+			long[] best = new long[7];
+			java.util.Arrays.fill(best, Long.MAX_VALUE);
+			long[] outOfOrder = new long[7];
+			for(int r = 0; r < rounds; r++) {
+				best[0] = Math.min(best[0], bulk(new TwoStackQueue<>(), items, outOfOrder, 0));
+				best[1] = Math.min(best[1], bulk(new EagerTransferQueue<>(), items, outOfOrder, 1));
+				best[2] = Math.min(best[2], interleaved(new TwoStackQueue<>(), items, outOfOrder, 2));
+				best[3] = Math.min(best[3], interleaved(new EagerTransferQueue<>(), items, outOfOrder, 3));
+				best[4] = Math.min(best[4], batched(items, outOfOrder, 4));
+				best[5] = Math.min(best[5], bulk(new SegmentedArrayQueue<>(), items, outOfOrder, 5));
+				best[6] = Math.min(best[6], interleaved(new SegmentedArrayQueue<>(), items, outOfOrder, 6));
+			}
+
+			// every workload performs 2n queue operations
+			report("bulk", "TwoStackQueue", n, best[0], outOfOrder[0]);
+			report("bulk", "eager transfer", n, best[1], outOfOrder[1]);
+			report("bulk", "segmented", n, best[5], outOfOrder[5]);
+			report("interleaved", "TwoStackQueue", n, best[2], outOfOrder[2]);
+			report("interleaved", "eager transfer", n, best[3], outOfOrder[3]);
+			report("interleaved", "segmented", n, best[6], outOfOrder[6]);
+			report("batched", "TwoStackQueue", n, best[4], outOfOrder[4]);
+		}
+		if(sink == 42)
+			System.out.println();
+	}
+
+	private static void report(String workload, String queue, int n, long nanos, long outOfOrder) {
+
+		System.out.printf("%-14s %-16s %10d %12.1f %14d%n", workload, queue, n, nanos / (2.0 * n), outOfOrder);
+	}
+
+	private static long bulk(Queue<Integer> q, Integer[] items, long[] outOfOrder, int slot) {
+
+		Checker check = new Checker();
+		long start = System.nanoTime();
+		for(Integer x : items)
+			q.enqueue(x);
+		for(int i = 0; i < items.length; i++)
+			check.dequeued(q.dequeue());
+		long elapsed = System.nanoTime() - start;
+		outOfOrder[slot] = check.outOfOrder;
+		return elapsed;
+	}
+
+	/**
+     * Keeps half the items in flight and then alternates enqueue and
+     * dequeue, which is the steady state of a producer/consumer hand-off.
+     */
+	private static long interleaved(Queue<Integer> q, Integer[] items, long[] outOfOrder, int slot) {
+
+		Checker check = new Checker();
+		int half = items.length / 2;
+		long start = System.nanoTime();
+		for(int i = 0; i < half; i++)
+			q.enqueue(items[i]);
+		for(int i = half; i < items.length; i++) {
+			q.enqueue(items[i]);
+			check.dequeued(q.dequeue());
+		}
+		for(int i = 0; i < half; i++)
+			check.dequeued(q.dequeue());
+		long elapsed = System.nanoTime() - start;
+		outOfOrder[slot] = check.outOfOrder;
+		return elapsed;
+	}
+
+	/**
+     * Same traffic as interleaved, in runs of BATCH items.
+     */
+	private static long batched(Integer[] items, long[] outOfOrder, int slot) {
+
+		TwoStackQueue<Integer> q = new TwoStackQueue<>();
+		ArrayList<Integer> drained = new ArrayList<>(BATCH);
+		Integer[] run = new Integer[BATCH];
+		Checker check = new Checker();
+		int half = items.length / 2;
+
+		long start = System.nanoTime();
+		for(int i = 0; i < half; i += BATCH) {
+			int k = Math.min(BATCH, half - i);
+			System.arraycopy(items, i, run, 0, k);
+			q.enqueueAll(k == BATCH ? run : java.util.Arrays.copyOf(run, k));
+		}
+		for(int i = half; i < items.length; i += BATCH) {
+			int k = Math.min(BATCH, items.length - i);
+			System.arraycopy(items, i, run, 0, k);
+			q.enqueueAll(k == BATCH ? run : java.util.Arrays.copyOf(run, k));
+			drained.clear();
+			q.drainTo(drained, k);
+			for(Integer x : drained)
+				check.dequeued(x);
+		}
+		while(!q.isEmpty()) {
+			drained.clear();
+			q.drainTo(drained, BATCH);
+			for(Integer x : drained)
+				check.dequeued(x);
+		}
+		long elapsed = System.nanoTime() - start;
+		outOfOrder[slot] = check.outOfOrder;
+		return elapsed;
+	}
+
+	/**
+     * Counts dequeued items that are not at their FIFO position: items are
+     * enqueued as 0, 1, 2, ..., so the i-th item dequeued must be i.
+     */
+	private static class Checker {
+
+		private int position;
+		long outOfOrder;
+
+		void dequeued(Integer x) {
+			sink += x;
+			if(x != position)
+				outOfOrder++;
+			position++;
+		}
+	}
+
+	/**
+     * The earlier TwoStackQueue, copied as it was for comparison: every
+     * dequeue pops the whole inbox onto the outbox, on top of any older
+     * items there, and its stacks start at 10 slots and grow by copying
+     * one element at a time.
+     */
+	private static class EagerTransferQueue<T> implements Queue<T> {
+
+		private final ArrayStack<T> inbox = new ArrayStack<>();
+		private final ArrayStack<T> outbox = new ArrayStack<>();
+
+		public void enqueue(T x) {
+			inbox.push(x);
+		}
+
+		public T dequeue() {
+			while(inbox.topOfStack + 1 != 0)
+				outbox.push(inbox.pop());
+
+			if(outbox.topOfStack + 1 == 0)
+				throw new IndexOutOfBoundsException("Attempted to dequeue an empty stack");
+			return outbox.pop();
+		}
+
+		private static class ArrayStack<T> {
+
+			private int topOfStack = -1;
+			private T[] theArray;
+
+			@SuppressWarnings("unchecked")
+			ArrayStack() {
+				theArray = (T[]) new Object[10];
+			}
+
+			@SuppressWarnings("unchecked")
+			private void ensureCapacity(int size) {
+				if(size > theArray.length) {
+					T[] old = theArray;
+					theArray = (T[]) new Object[old.length * 2];
+					for(int i = 0; i < old.length; i++)
+						theArray[i] = old[i];
+				}
+			}
+
+			void push(T x) {
+				topOfStack++;
+				ensureCapacity(topOfStack + 1);
+				theArray[topOfStack] = x;
+			}
+
+			T pop() {
+				if(topOfStack == -1)
+					throw new IndexOutOfBoundsException("Attempted to pop from empty stack!");
+				T result = theArray[topOfStack];
+				topOfStack--;
+				return result;
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Hands messages between threads through SpscRingBuffer, MpscRingBuffer
+ * and, for comparison, a TwoStackQueue guarded by synchronized. It reports
+ * the throughput of one producer streaming to one consumer (and of several
+ * producers into an MpscRingBuffer), and the round-trip latency of a
+ * ping-pong between two threads over a pair of queues.
+ *
+ * The numbers depend on the threads running on separate cores; with fewer
+ * cores than threads they mostly measure the scheduler.
+ *
+ * Usage: java RingBufferBenchmark [messages] [capacity] [producers] [rounds]
+ * e.g.   java RingBufferBenchmark 10000000 1024 4 3
+ */
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+public class RingBufferBenchmark {
+
+	private static volatile long sink; // keeps the JIT from discarding messages
+
+	public static void main(String[] args) throws InterruptedException {
+
+		int messages = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+		int producers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+		System.out.println(messages + " messages, capacity " + capacity + ", best of " + rounds
+				+ " rounds, " + Runtime.getRuntime().availableProcessors() + " cores");
+		System.out.printf("%-28s %10s %14s %14s%n", "queue", "producers", "msgs/sec", "rtt p50/p99 ns");
+
+		run("synchronized TwoStackQueue", RingBufferBenchmark::lockedQueue, 1, messages, rounds);
+		run("SpscRingBuffer", () -> spsc(capacity), 1, messages, rounds);
+		run("MpscRingBuffer", () -> mpsc(capacity), 1, messages, rounds);
+		run("MpscRingBuffer", () -> mpsc(capacity), producers, messages, rounds);
+	}
+
+	/**
+	 * The offer/poll pair every queue under test is driven through.
+	 */
+	private interface Channel {
+		boolean offer(Integer x);
+		Integer poll();
+	}
+
+	private static Channel lockedQueue() {
+		TwoStackQueue<Integer> q = new TwoStackQueue<>();
+		return new Channel() {
+			public boolean offer(Integer x) {
+				synchronized(q) {
+					q.enqueue(x);
+				}
+				return true;
+			}
+			public Integer poll() {
+				synchronized(q) {
+					return q.isEmpty() ? null : q.dequeue();
+				}
+			}
+		};
+	}
+
+	private static Channel spsc(int capacity) {
+		SpscRingBuffer<Integer> q = new SpscRingBuffer<>(capacity);
+		return new Channel() {
+			public boolean offer(Integer x) {
+				return q.offer(x);
+			}
+			public Integer poll() {
+				return q.poll();
+			}
+		};
+	}
+
+	private static Channel mpsc(int capacity) {
+		MpscRingBuffer<Integer> q = new MpscRingBuffer<>(capacity);
+		return new Channel() {
+			public boolean offer(Integer x) {
+				return q.offer(x);
+			}
+			public Integer poll() {
+				return q.poll();
+			}
+		};
+	}
+
+	private static void run(String name, Supplier<Channel> factory, int producers, int messages, int rounds)
+			throws InterruptedException {
+
+		long best = Long.MAX_VALUE;
+		for(int r = 0; r < rounds; r++)
+			best = Math.min(best, throughput(factory.get(), producers, messages));
+
+		String latency = "-";
+		if(producers == 1) {
+			long[] rtt = pingPong(factory.get(), factory.get(), Math.min(messages / 10, 100000));
+			latency = rtt[rtt.length / 2] + "/" + rtt[rtt.length * 99 / 100];
+		}
+
+		System.out.printf("%-28s %10d %14.0f %14s%n", name, producers, messages / (best / 1e9), latency);
+	}
+
+	/**
+	 * Streams messages from the producers to the calling thread.
+	 * @return the elapsed nanoseconds.
+	 */
+	private static long throughput(Channel q, int producers, int messages) throws InterruptedException {
+
+		int each = messages / producers;
+		Integer item = 1;
+		Thread[] threads = new Thread[producers];
+		for(int p = 0; p < producers; p++) {
+			threads[p] = new Thread(() -> {
+				for(int i = 0, spins = 0; i < each; )
+					if(q.offer(item)) {
+						i++;
+						spins = 0;
+					}
+					else
+						SpscRingBuffer.backOff(spins++);
+			});
+		}
+
+		long start = System.nanoTime();
+		for(Thread t : threads)
+			t.start();
+
+		long sum = 0;
+		for(int received = 0, spins = 0; received < each * producers; ) {
+			Integer x = q.poll();
+			if(x != null) {
+				sum += x;
+				received++;
+				spins = 0;
+			}
+			else
+				SpscRingBuffer.backOff(spins++);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		for(Thread t : threads)
+			t.join();
+		sink = sum;
+		return elapsed;
+	}
+
+	/**
+	 * Sends n messages to an echo thread and times each round trip.
+	 * @return the sorted round-trip times in nanoseconds.
+	 */
+	private static long[] pingPong(Channel ping, Channel pong, int n) throws InterruptedException {
+
+		Thread echo = new Thread(() -> {
+			for(int i = 0, spins = 0; i < n; ) {
+				Integer x = ping.poll();
+				if(x == null) {
+					SpscRingBuffer.backOff(spins++);
+					continue;
+				}
+				while(!pong.offer(x))
+					Thread.onSpinWait();
+				i++;
+				spins = 0;
+			}
+		});
+		echo.start();
+
+		long[] rtt = new long[n];
+		Integer item = 1;
+		for(int i = 0; i < n; i++) {
+			long start = System.nanoTime();
+			while(!ping.offer(item))
+				Thread.onSpinWait();
+			for(int spins = 0; pong.poll() == null; spins++)
+				SpscRingBuffer.backOff(spins);
+			rtt[i] = System.nanoTime() - start;
+		}
+		echo.join();
+
+		Arrays.sort(rtt);
+		return rtt;
+	}
+}
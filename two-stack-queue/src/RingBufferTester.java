@@ -0,0 +1,73 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Streams items through SpscRingBuffer and MpscRingBuffer between threads
+ * and checks that none is lost, duplicated or reordered. With several
+ * producers, each producer's own items must still arrive in order.
+ */
+
+import java.util.function.Supplier;
+
+public class RingBufferTester {
+
+	public static void main(String[] args) throws InterruptedException {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		SpscRingBuffer<Long> spsc = new SpscRingBuffer<>(100);
+		System.out.println("SpscRingBuffer capacity " + spsc.capacity() + ": "
+				+ check(spsc, spsc::poll, 1, n));
+
+		for(int producers = 1; producers <= 4; producers++) {
+			MpscRingBuffer<Long> mpsc = new MpscRingBuffer<>(64);
+			System.out.println("MpscRingBuffer, " + producers + " producers: "
+					+ check(mpsc, mpsc::poll, producers, n));
+		}
+
+		SpscRingBuffer<Integer> small = new SpscRingBuffer<>(2);
+		System.out.println("\noffer to a full buffer: " + small.offer(1) + " "
+				+ small.offer(2) + " " + small.offer(3));
+		System.out.println("peek: " + small.peek() + ", size: " + small.size());
+		System.out.println("polls: " + small.poll() + " " + small.poll() + " " + small.poll());
+	}
+
+	/**
+	 * Sends n items split over the producers, each tagged with its
+	 * producer and sequence number, and receives them on this thread
+	 * through poll, which returns null while the queue is empty.
+	 */
+	private static String check(Queue<Long> q, Supplier<Long> poll, int producers, int n)
+			throws InterruptedException {
+
+		int each = n / producers;
+		Thread[] threads = new Thread[producers];
+		for(int p = 0; p < producers; p++) {
+			long tag = (long) p << 32;
+			threads[p] = new Thread(() -> {
+				for(int i = 0; i < each; i++)
+					q.enqueue(tag | i);
+			});
+			threads[p].start();
+		}
+
+		int[] next = new int[producers];
+		int received = 0, errors = 0;
+		for(int spins = 0; received < each * producers; ) {
+			Long x = poll.get();
+			if(x == null) {
+				SpscRingBuffer.backOff(spins++);
+				continue;
+			}
+			spins = 0;
+			int p = (int) (x >>> 32), seq = (int) (long) x;
+			if(seq != next[p])
+				errors++;
+			next[p] = seq + 1;
+			received++;
+		}
+
+		for(Thread t : threads)
+			t.join();
+		return (errors == 0 ? "ok" : errors + " out of order") + ", " + received + " received";
+	}
+}
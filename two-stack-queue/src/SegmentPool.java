@@ -0,0 +1,99 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * SegmentPool class hands out the fixed-size array segments that
+ * SegmentedArrayQueue and SegmentedArrayStack link together, and takes
+ * them back when they empty.
+ *
+ * A structure that grows and shrinks around a segment boundary would
+ * otherwise allocate a fresh segment every time it crosses it, so released
+ * segments are kept for reuse, but only up to maxPooled of them: the rest
+ * are dropped for the garbage collector, so a drained structure does not
+ * hold on to the memory of its peak size. A segment is only released once
+ * all its slots have been cleared.
+ */
+
+public class SegmentPool<T> {
+
+	/**
+	 * A block of slots, linked to its neighbours in the queue or stack.
+	 */
+	static final class Segment<T> {
+		final T[] items;
+		Segment<T> next;
+		Segment<T> prev;
+
+		@SuppressWarnings("unchecked")
+		Segment(int size) {
+			items = (T[]) new Object[size];
+		}
+	}
+
+	private final int segmentSize;
+	private final int maxPooled;
+	private Segment<T> free;	// pooled segments, linked through next
+	private int pooled;
+	private long allocated;		// segments ever created
+
+	public SegmentPool(int segmentSize, int maxPooled) {
+		if(segmentSize < 1)
+			throw new IllegalArgumentException("Segment size must be positive: "
+		+ segmentSize);
+		if(maxPooled < 0)
+			throw new IllegalArgumentException("Pool size must not be negative: "
+		+ maxPooled);
+
+		this.segmentSize = segmentSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * Return an empty, unlinked segment, reusing a pooled one if any.
+	 *
+	 * Runtime: O(1), plus the allocation of a new segment
+	 */
+	Segment<T> acquire() {
+		Segment<T> s = free;
+		if(s == null) {
+			allocated++;
+			return new Segment<>(segmentSize);
+		}
+		free = s.next;
+		s.next = null;
+		pooled--;
+		return s;
+	}
+
+	/**
+	 * Take back a segment whose slots have all been cleared. It is pooled
+	 * if there is room, and otherwise left for the garbage collector.
+	 */
+	void release(Segment<T> s) {
+		s.prev = null;
+		if(pooled == maxPooled) {
+			s.next = null;
+			return;
+		}
+		s.next = free;
+		free = s;
+		pooled++;
+	}
+
+	public int segmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Return the number of segments waiting in the pool.
+	 */
+	public int pooledSegments() {
+		return pooled;
+	}
+
+	/**
+	 * Return the number of segments ever allocated, pooled or not.
+	 */
+	public long allocatedSegments() {
+		return allocated;
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * SegmentedArrayQueue class implements an unbounded queue as a linked list
+ * of fixed-size array segments.
+ *
+ * Items are added at the tail segment and taken from the head segment.
+ * When the tail segment fills, a new one is linked after it, so growing
+ * never copies the items already queued, as doubling an array does. Each
+ * dequeue clears its slot, and a head segment that has been used up is
+ * returned to a SegmentPool, which keeps a few for reuse and lets the rest
+ * be collected. A queue that has been drained therefore holds no items and
+ * at most one segment plus the pool, whatever size it once reached.
+ */
+
+public class SegmentedArrayQueue<T> implements Queue<T> {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 256;
+	public static final int DEFAULT_MAX_POOLED = 2;
+
+	private final SegmentPool<T> pool;
+	private final int segmentSize;
+	private SegmentPool.Segment<T> head;	// segment holding the front item
+	private SegmentPool.Segment<T> tail;	// segment receiving the next item
+	private int headIndex;		// slot of the front item in head
+	private int tailIndex;		// next free slot in tail
+	private int size;
+	private int segments;		// segments linked into the queue
+
+	public SegmentedArrayQueue() {
+		this(new SegmentPool<>(DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_POOLED));
+	}
+
+	public SegmentedArrayQueue(int segmentSize, int maxPooled) {
+		this(new SegmentPool<>(segmentSize, maxPooled));
+	}
+
+	/**
+	 * Create a queue drawing its segments from pool, which may be shared
+	 * with other structures used by the same thread.
+	 */
+	public SegmentedArrayQueue(SegmentPool<T> pool) {
+		this.pool = pool;
+		segmentSize = pool.segmentSize();
+		head = tail = pool.acquire();
+		segments = 1;
+	}
+
+	/**
+	 * Insert x at the back of the queue.
+	 *
+	 * Runtime: O(1); a full tail segment is followed by a new one rather
+	 * than copied
+	 */
+	public void enqueue(T x) {
+		if(tailIndex == segmentSize) {
+			SegmentPool.Segment<T> s = pool.acquire();
+			s.prev = tail;
+			tail.next = s;
+			tail = s;
+			tailIndex = 0;
+			segments++;
+		}
+		tail.items[tailIndex++] = x;
+		size++;
+	}
+
+	/**
+	 * Remove and return the item at the front of the queue.
+	 *
+	 * Runtime: O(1)
+	 *
+	 * @throws IndexOutOfBoundsException if the queue is empty.
+	 */
+	public T dequeue() {
+		if(size == 0)
+			throw new IndexOutOfBoundsException("Attempted to dequeue an empty "
+		+ "queue");
+
+		T x = head.items[headIndex];
+		head.items[headIndex++] = null;	// let the item be collected
+		size--;
+
+		if(size == 0)	// head == tail: start over at its front
+			headIndex = tailIndex = 0;
+		else if(headIndex == segmentSize)
+			releaseHead();
+		return x;
+	}
+
+	/**
+	 * Return the item at the front of the queue without removing it.
+	 *
+	 * @throws IndexOutOfBoundsException if the queue is empty.
+	 */
+	public T peek() {
+		if(size == 0)
+			throw new IndexOutOfBoundsException("Attempted to peek an empty "
+		+ "queue");
+		return head.items[headIndex];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Return the number of segments linked into the queue, not counting
+	 * the pool.
+	 */
+	public int segments() {
+		return segments;
+	}
+
+	public SegmentPool<T> pool() {
+		return pool;
+	}
+
+	/**
+	 * Unlink the used-up head segment and return it to the pool. Its slots
+	 * have all been cleared by dequeue.
+	 */
+	private void releaseHead() {
+		SegmentPool.Segment<T> used = head;
+		head = used.next;
+		head.prev = null;
+		used.next = null;
+		pool.release(used);
+		headIndex = 0;
+		segments--;
+	}
+}
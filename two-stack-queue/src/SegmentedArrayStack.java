@@ -0,0 +1,141 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * SegmentedArrayStack class implements an unbounded stack as a linked list
+ * of fixed-size array segments, the stack counterpart of
+ * SegmentedArrayQueue.
+ *
+ * Pushing onto a full top segment links another one above it instead of
+ * copying the stack into a bigger array, and each pop clears its slot.
+ * When the top segment empties, it is kept as a spare above the new top,
+ * so a stack going up and down across a segment boundary does not acquire
+ * and release a segment on every step. Any segment beyond that spare goes
+ * back to the SegmentPool, and trim() gives up the spare as well.
+ */
+
+public class SegmentedArrayStack<T> {
+
+	private final SegmentPool<T> pool;
+	private final int segmentSize;
+	private SegmentPool.Segment<T> top;	// segment holding the top item; next is a spare
+	private int topIndex;		// items in top
+	private int size;
+	private int segments;		// segments linked into the stack, spare included
+
+	public SegmentedArrayStack() {
+		this(new SegmentPool<>(SegmentedArrayQueue.DEFAULT_SEGMENT_SIZE,
+				SegmentedArrayQueue.DEFAULT_MAX_POOLED));
+	}
+
+	public SegmentedArrayStack(int segmentSize, int maxPooled) {
+		this(new SegmentPool<>(segmentSize, maxPooled));
+	}
+
+	/**
+	 * Create a stack drawing its segments from pool, which may be shared
+	 * with other structures used by the same thread.
+	 */
+	public SegmentedArrayStack(SegmentPool<T> pool) {
+		this.pool = pool;
+		segmentSize = pool.segmentSize();
+		top = pool.acquire();
+		segments = 1;
+	}
+
+	/**
+	 * Push x onto the top of the stack.
+	 *
+	 * Runtime: O(1); a full top segment is followed by the spare or a new
+	 * one rather than copied
+	 */
+	public void push(T x) {
+		if(topIndex == segmentSize) {
+			if(top.next == null) {
+				SegmentPool.Segment<T> s = pool.acquire();
+				s.prev = top;
+				top.next = s;
+				segments++;
+			}
+			top = top.next;
+			topIndex = 0;
+		}
+		top.items[topIndex++] = x;
+		size++;
+	}
+
+	/**
+	 * Remove and return the item at the top of the stack.
+	 *
+	 * Runtime: O(1)
+	 *
+	 * @throws IndexOutOfBoundsException if the stack is empty.
+	 */
+	public T pop() {
+		if(size == 0)
+			throw new IndexOutOfBoundsException("Attempted to pop from "
+		+ "empty stack!");
+
+		T x = top.items[--topIndex];
+		top.items[topIndex] = null;	// let the item be collected
+		size--;
+
+		if(topIndex == 0 && top.prev != null) {
+			// the emptied segment becomes the spare; release the old spare
+			releaseAbove(top);
+			top = top.prev;
+			topIndex = segmentSize;
+		}
+		return x;
+	}
+
+	/**
+	 * Return the item at the top of the stack without removing it.
+	 *
+	 * @throws IndexOutOfBoundsException if the stack is empty.
+	 */
+	public T top() {
+		if(size == 0)
+			throw new IndexOutOfBoundsException("Attempted to read the top of "
+		+ "empty stack!");
+		return top.items[topIndex - 1];
+	}
+
+	/**
+	 * Release the spare segment above the top, if any.
+	 */
+	public void trim() {
+		releaseAbove(top);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Return the number of segments linked into the stack, including a
+	 * spare, but not counting the pool.
+	 */
+	public int segments() {
+		return segments;
+	}
+
+	public SegmentPool<T> pool() {
+		return pool;
+	}
+
+	/**
+	 * Return the empty segment linked after s to the pool.
+	 */
+	private void releaseAbove(SegmentPool.Segment<T> s) {
+		SegmentPool.Segment<T> spare = s.next;
+		if(spare == null)
+			return;
+		s.next = null;
+		pool.release(spare);
+		segments--;
+	}
+}
@@ -0,0 +1,233 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Checks SegmentedArrayQueue and SegmentedArrayStack against ArrayDeque
+ * under random traffic, then checks what they retain once drained: no
+ * dequeued or popped item may stay reachable, idle segments must go back
+ * to the pool or the garbage collector, and the heap a drained structure
+ * holds must not depend on the size it once reached. TwoStackQueue and
+ * ArrayDeque are measured alongside for comparison.
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.Consumer;
+
+public class SegmentedQueueTester {
+
+	private static Object keep; // holds the structure measured by retainedBytes
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		System.out.println("random traffic, segments of 4: " + randomTraffic(200000, 4));
+		System.out.println("random traffic, segments of 1: " + randomTraffic(20000, 1));
+
+		System.out.println("\nitems still reachable after draining 100000:");
+		System.out.println("  SegmentedArrayQueue  " + reachableAfterDrain(q -> {
+			SegmentedArrayQueue<Object> s = new SegmentedArrayQueue<>(64, 2);
+			q.forEach(s::enqueue);
+			while(!s.isEmpty())
+				s.dequeue();
+			keep = s;
+		}));
+		System.out.println("  SegmentedArrayStack  " + reachableAfterDrain(q -> {
+			SegmentedArrayStack<Object> s = new SegmentedArrayStack<>(64, 2);
+			q.forEach(s::push);
+			while(!s.isEmpty())
+				s.pop();
+			keep = s;
+		}));
+		System.out.println("  TwoStackQueue        " + reachableAfterDrain(q -> {
+			TwoStackQueue<Object> s = new TwoStackQueue<>();
+			q.forEach(s::enqueue);
+			for(int i = 0; i < q.size() / 2; i++)
+				s.dequeue();
+			q.forEach(s::enqueue);	// new items behind a half-drained outbox
+			while(!s.isEmpty())
+				s.dequeue();
+			keep = s;
+		}));
+
+		SegmentedArrayQueue<Integer> queue = new SegmentedArrayQueue<>();
+		for(int i = 0; i < n; i++)
+			queue.enqueue(i);
+		int full = queue.segments();
+		while(!queue.isEmpty())
+			queue.dequeue();
+		System.out.printf("%nSegmentedArrayQueue, %d items: %d segments full, %d drained, "
+				+ "%d pooled, %d allocated%n", n, full, queue.segments(),
+				queue.pool().pooledSegments(), queue.pool().allocatedSegments());
+
+		SegmentedArrayStack<Integer> stack = new SegmentedArrayStack<>();
+		for(int i = 0; i < n; i++)
+			stack.push(i);
+		full = stack.segments();
+		while(!stack.isEmpty())
+			stack.pop();
+		int drained = stack.segments();
+		stack.trim();
+		System.out.printf("SegmentedArrayStack, %d items: %d segments full, %d drained, "
+				+ "%d trimmed, %d pooled%n", n, full, drained, stack.segments(),
+				stack.pool().pooledSegments());
+
+		int size = SegmentedArrayQueue.DEFAULT_SEGMENT_SIZE;
+		SegmentedArrayStack<Integer> edge = new SegmentedArrayStack<>(size, 0);
+		for(int i = 0; i < size; i++)
+			edge.push(i);
+		for(int i = 0; i < 100000; i++) {
+			edge.push(i);
+			edge.pop();
+		}
+		System.out.println("100000 push/pop across a segment boundary, no pool: "
+				+ edge.pool().allocatedSegments() + " segments allocated");
+
+		System.out.println("\nheap held after growing to " + n + " items and draining:");
+		System.out.printf("  %-20s %10s%n", "SegmentedArrayQueue", kb(retainedBytes(() -> {
+			SegmentedArrayQueue<Integer> s = new SegmentedArrayQueue<>();
+			for(int i = 0; i < n; i++)
+				s.enqueue(i);
+			while(!s.isEmpty())
+				s.dequeue();
+			return s;
+		})));
+		System.out.printf("  %-20s %10s%n", "SegmentedArrayStack", kb(retainedBytes(() -> {
+			SegmentedArrayStack<Integer> s = new SegmentedArrayStack<>();
+			for(int i = 0; i < n; i++)
+				s.push(i);
+			while(!s.isEmpty())
+				s.pop();
+			return s;
+		})));
+		System.out.printf("  %-20s %10s%n", "TwoStackQueue", kb(retainedBytes(() -> {
+			TwoStackQueue<Integer> s = new TwoStackQueue<>();
+			for(int i = 0; i < n; i++)
+				s.enqueue(i);
+			while(!s.isEmpty())
+				s.dequeue();
+			return s;
+		})));
+		System.out.printf("  %-20s %10s%n", "ArrayDeque", kb(retainedBytes(() -> {
+			ArrayDeque<Integer> s = new ArrayDeque<>();
+			for(int i = 0; i < n; i++)
+				s.add(i);
+			while(!s.isEmpty())
+				s.poll();
+			return s;
+		})));
+	}
+
+	/**
+	 * Runs a random mix of operations on a queue and a stack, weighted to
+	 * grow and shrink repeatedly, and compares every result with ArrayDeque.
+	 */
+	private static String randomTraffic(int ops, int segmentSize) {
+
+		Random rnd = new Random(42);
+		SegmentPool<Integer> pool = new SegmentPool<>(segmentSize, 3);	// shared by both
+		SegmentedArrayQueue<Integer> queue = new SegmentedArrayQueue<>(pool);
+		SegmentedArrayStack<Integer> stack = new SegmentedArrayStack<>(pool);
+		ArrayDeque<Integer> queueModel = new ArrayDeque<>();
+		ArrayDeque<Integer> stackModel = new ArrayDeque<>();
+		int errors = 0;
+
+		for(int i = 0; i < ops; i++) {
+			boolean growing = (i / 5000) % 2 == 0;
+			int op = rnd.nextInt(10);
+			if(op < (growing ? 6 : 3)) {
+				queue.enqueue(i);
+				queueModel.add(i);
+				stack.push(i);
+				stackModel.push(i);
+			}
+			else if(op < 9) {
+				if(!queueModel.isEmpty() && !queue.dequeue().equals(queueModel.poll()))
+					errors++;
+				if(!stackModel.isEmpty() && !stack.pop().equals(stackModel.pop()))
+					errors++;
+			}
+			else {
+				if(!queueModel.isEmpty() && !queue.peek().equals(queueModel.peek()))
+					errors++;
+				if(!stackModel.isEmpty() && !stack.top().equals(stackModel.peek()))
+					errors++;
+			}
+			if(queue.size() != queueModel.size() || stack.size() != stackModel.size())
+				errors++;
+		}
+
+		try {
+			new SegmentedArrayQueue<Integer>(pool).dequeue();
+			errors++;
+		}
+		catch(IndexOutOfBoundsException expected) {
+		}
+		try {
+			new SegmentedArrayStack<Integer>(pool).pop();
+			errors++;
+		}
+		catch(IndexOutOfBoundsException expected) {
+		}
+		return (errors == 0 ? "ok" : errors + " mismatches") + ", " + pool.allocatedSegments()
+				+ " segments allocated";
+	}
+
+	/**
+	 * Passes 100000 fresh objects to fill, which loads and drains a
+	 * structure and stores it in keep, and counts how many of the objects
+	 * survive garbage collection while the structure is still reachable.
+	 */
+	private static int reachableAfterDrain(Consumer<ArrayList<Object>> fill) {
+
+		ArrayList<Object> items = new ArrayList<>();
+		ArrayList<WeakReference<Object>> refs = new ArrayList<>();
+		for(int i = 0; i < 100000; i++) {
+			Object x = new Object();
+			items.add(x);
+			refs.add(new WeakReference<>(x));
+		}
+		fill.accept(items);
+		items = null;
+
+		int alive = refs.size();
+		for(int attempt = 0; attempt < 10 && alive > 0; attempt++) {
+			System.gc();
+			alive = 0;
+			for(WeakReference<Object> r : refs)
+				if(r.get() != null)
+					alive++;
+		}
+		keep = null;
+		return alive;
+	}
+
+	/**
+	 * Returns the heap still in use, after garbage collection, while the
+	 * structure built by make is reachable, less the heap in use before.
+	 */
+	private static long retainedBytes(java.util.function.Supplier<Object> make) {
+
+		long before = usedAfterGc();
+		keep = make.get();
+		long after = usedAfterGc();
+		keep = null;
+		return after - before;
+	}
+
+	private static long usedAfterGc() {
+		Runtime rt = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for(int i = 0; i < 5; i++) {
+			System.gc();
+			used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+		}
+		return used;
+	}
+
+	private static String kb(long bytes) {
+		return Math.max(0, bytes / 1024) + " KB";
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * The Serializer interface turns queue items into bytes for SpillingQueue's
+ * segment files and reads them back from a memory-mapped buffer. Encodings
+ * must be stable across processes, so items spilled by one run can be read
+ * by the next.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public interface Serializer<T> {
+
+	/**
+	 * Returns the bytes for value.
+	 */
+	public byte[] encode(T value);
+
+	/**
+	 * Reads a value from buf[offset, offset + length) without moving the
+	 * buffer's position.
+	 */
+	public T decode(ByteBuffer buf, int offset, int length);
+
+	public static final Serializer<Integer> INTEGER = new Serializer<Integer>() {
+
+		public byte[] encode(Integer value) {
+			return ByteBuffer.allocate(4).putInt(value).array();
+		}
+
+		public Integer decode(ByteBuffer buf, int offset, int length) {
+			return buf.getInt(offset);
+		}
+	};
+
+	public static final Serializer<Long> LONG = new Serializer<Long>() {
+
+		public byte[] encode(Long value) {
+			return ByteBuffer.allocate(8).putLong(value).array();
+		}
+
+		public Long decode(ByteBuffer buf, int offset, int length) {
+			return buf.getLong(offset);
+		}
+	};
+
+	public static final Serializer<String> STRING = new Serializer<String>() {
+
+		public byte[] encode(String value) {
+			return value.getBytes(StandardCharsets.UTF_8);
+		}
+
+		public String decode(ByteBuffer buf, int offset, int length) {
+			byte[] bytes = new byte[length];
+			buf.get(offset, bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+}
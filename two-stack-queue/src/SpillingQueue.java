@@ -0,0 +1,616 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * SpillingQueue class implements an unbounded queue whose backlog may be far
+ * larger than the heap. The oldest items (the head) and the newest (the
+ * tail) are held in memory in SegmentedArrayQueues of up to memoryItems
+ * items each; everything between them is spilled to append-only segment
+ * files in dir, which are memory-mapped and written and read in place.
+ *
+ * While the queue stays short it never touches the disk: items go straight
+ * to the head. Once the head is full they collect in the tail, and every
+ * time the tail fills it is appended to the current segment file, which is
+ * sealed and followed by a new one when it runs out of room. When the head
+ * empties it is refilled with the next memoryItems items from disk. The
+ * first spill also writes the items then in the head, so whenever anything
+ * is on disk the disk holds every item from the head onwards, in order.
+ *
+ * A small cursor file records where the first item not yet dequeued is:
+ * a record position and how many records past it have been dequeued. It is
+ * memory-mapped as well, so keeping it current costs a few stores per
+ * dequeue. It holds two copies, each with a generation number and a
+ * checksum, and each update overwrites the older one; a copy torn by a
+ * crash fails its checksum and the other, one update older, is used.
+ * Segment files before the cursor have been consumed and are deleted.
+ *
+ * open() recovers whatever was on disk: it starts at the cursor, checks
+ * each record's CRC and stops at the first torn or missing one, so new
+ * items are appended after the last intact record. Items that only lived
+ * in memory are lost if the process dies; close() spills them first, so a
+ * queue that is closed and reopened holds exactly what it held. Records
+ * reach the page cache as they are written, which a process crash does not
+ * lose; sync() forces them to the device as well.
+ *
+ * Segment file: magic "SPQS", version, then records: length (8 + payload
+ * bytes), CRC32 of the payload, payload. A length of -1 marks a sealed
+ * segment; 0 is space not yet written.
+ * Cursor file: magic "SPQC", 4 unused bytes, then two 32-byte slots:
+ * segment number, offset, records to skip, generation, checksum of the rest.
+ *
+ * A SpillingQueue is not thread-safe.
+ */
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.zip.CRC32;
+
+public class SpillingQueue<T> implements Queue<T>, Closeable {
+
+	public static final int DEFAULT_MEMORY_ITEMS = 1 << 16;
+	public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+
+	private static final int MAGIC = 0x53505153;	// "SPQS"
+	private static final int VERSION = 1;
+	private static final int HEADER = 8;
+	private static final int END = -1;		// length of the record sealing a segment
+	private static final String SUFFIX = ".seg";
+	private static final String CURSOR_FILE = "cursor";
+	private static final int CURSOR_MAGIC = 0x53505143;	// "SPQC"
+	private static final int CURSOR_SLOT = 8, CURSOR_SLOT_BYTES = 32, CURSOR_BYTES = 72;
+	// fields within a slot
+	private static final int CURSOR_SEQ = 0, CURSOR_OFFSET = 8, CURSOR_SKIP = 12, CURSOR_GEN = 16,
+			CURSOR_CHECK = 24;
+
+	private final File dir;
+	private final Serializer<T> serializer;
+	private final int memoryItems;
+	private final int segmentBytes;
+
+	private final SegmentedArrayQueue<T> head;
+	private final SegmentedArrayQueue<T> tail;
+	private boolean headOnDisk;	// the head items are also the records from the cursor on
+	private long diskItems;		// records after the head, not yet loaded
+
+	private long writeSeq;			// segment being appended to
+	private MappedByteBuffer writeBuf;
+	private int writeOffset;
+	private long readSeq;			// segment holding the next record to load
+	private MappedByteBuffer readBuf;
+	private int readOffset;
+	private long firstSeq;			// oldest segment file still on disk
+	private long syncedSeq;			// segments before this one have been forced
+
+	private final MappedByteBuffer cursor;
+	private long cursorSeq;
+	private int cursorOffset;
+	private int cursorSkip;
+	private long cursorGen;			// generation of the newest slot
+	private final CRC32 crc = new CRC32();
+	private boolean closed;
+
+	private long segmentsCreated;
+	private long segmentsDeleted;
+
+	private SpillingQueue(File dir, Serializer<T> serializer, int memoryItems, int segmentBytes)
+			throws IOException {
+
+		if(memoryItems < 1)
+			throw new IllegalArgumentException("memoryItems must be positive: " + memoryItems);
+		if(segmentBytes < HEADER + 16)
+			throw new IllegalArgumentException("Segments must hold at least "
+		+ (HEADER + 16) + " bytes: " + segmentBytes);
+
+		this.dir = dir;
+		this.serializer = serializer;
+		this.memoryItems = memoryItems;
+		this.segmentBytes = segmentBytes;
+		head = new SegmentedArrayQueue<>();
+		tail = new SegmentedArrayQueue<>();
+
+		dir.mkdirs();
+		cursor = map(new File(dir, CURSOR_FILE), CURSOR_BYTES);
+		recover();
+	}
+
+	/**
+	 * Opens the queue in dir, recovering the items spilled there by an
+	 * earlier run, if any, with the default memory and segment sizes.
+	 */
+	public static <T> SpillingQueue<T> open(File dir, Serializer<T> serializer) throws IOException {
+		return open(dir, serializer, DEFAULT_MEMORY_ITEMS, DEFAULT_SEGMENT_BYTES);
+	}
+
+	/**
+	 * Opens the queue in dir, recovering the items spilled there by an
+	 * earlier run, if any.
+	 *
+	 * @param memoryItems most items held in memory at each end of the queue,
+	 * and the number spilled or loaded at a time.
+	 * @param segmentBytes size of each new segment file; no item may encode
+	 * to more than this less 16 bytes.
+	 */
+	public static <T> SpillingQueue<T> open(File dir, Serializer<T> serializer, int memoryItems,
+			int segmentBytes) throws IOException {
+		return new SpillingQueue<>(dir, serializer, memoryItems, segmentBytes);
+	}
+
+	/**
+	 * Insert x at the back of the queue.
+	 *
+	 * Runtime: O(1) amortized, plus encoding every memoryItems-th batch
+	 * once the queue has spilled
+	 */
+	public void enqueue(T x) {
+		if(x == null)
+			throw new NullPointerException("Null items are not supported");
+		ensureOpen();
+
+		if(!headOnDisk && diskItems == 0 && tail.isEmpty() && head.size() < memoryItems) {
+			head.enqueue(x);
+			return;
+		}
+		tail.enqueue(x);
+		if(tail.size() >= memoryItems)
+			spill();
+	}
+
+	/**
+	 * Remove and return the item at the front of the queue.
+	 *
+	 * Runtime: O(1) amortized, plus decoding every memoryItems-th batch
+	 * while the queue has spilled
+	 *
+	 * @throws IndexOutOfBoundsException if the queue is empty.
+	 */
+	public T dequeue() {
+		ensureOpen();
+
+		if(head.isEmpty()) {
+			if(diskItems > 0)
+				refill();
+			else if(!tail.isEmpty())
+				return tail.dequeue();
+			else
+				throw new IndexOutOfBoundsException("Attempted to dequeue an empty "
+			+ "queue");
+		}
+
+		T x = head.dequeue();
+		if(headOnDisk) {
+			if(head.isEmpty()) {
+				headOnDisk = false;
+				setCursor(readSeq, readOffset, 0);
+			}
+			else {
+				cursorSkip++;
+				writeCursor();
+			}
+		}
+		return x;
+	}
+
+	public long size() {
+		return head.size() + diskItems + tail.size();
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Return the number of items that are only on disk.
+	 */
+	public long diskItems() {
+		return diskItems;
+	}
+
+	/**
+	 * Return the number of segment files in dir.
+	 */
+	public long segmentFiles() {
+		return writeSeq - firstSeq + 1;
+	}
+
+	public long segmentsCreated() {
+		return segmentsCreated;
+	}
+
+	public long segmentsDeleted() {
+		return segmentsDeleted;
+	}
+
+	/**
+	 * Forces the spilled records and the cursor to the storage device.
+	 * Items held in memory are not written; close() spills them.
+	 */
+	public void sync() {
+		ensureOpen();
+		try {
+			// sealed segments are no longer mapped, so force their files
+			for(long s = Math.max(syncedSeq, firstSeq); s < writeSeq; s++) {
+				try(FileChannel ch = FileChannel.open(segmentFile(s).toPath(), StandardOpenOption.WRITE)) {
+					ch.force(false);
+				}
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		syncedSeq = writeSeq;
+		writeBuf.force();
+		cursor.force();
+	}
+
+	/**
+	 * Spills the items held in memory, forces everything to disk and
+	 * releases the files. The next open() of dir finds every item.
+	 */
+	public void close() throws IOException {
+		if(closed)
+			return;
+		spill();
+		sync();
+		closed = true;
+		if(readBuf != writeBuf)
+			unmap(readBuf);
+		unmap(writeBuf);
+		unmap(cursor);
+		readBuf = writeBuf = null;
+	}
+
+	private void ensureOpen() {
+		if(closed)
+			throw new IllegalStateException("Queue is closed");
+	}
+
+	/**
+	 * Appends the tail to disk. If nothing is on disk yet, the head goes
+	 * first, since it holds the older items, and the cursor moves to it.
+	 */
+	private void spill() {
+		if(!headOnDisk && diskItems == 0) {
+			if(head.isEmpty() && tail.isEmpty())
+				return;
+			setCursor(writeSeq, writeOffset, 0);
+			for(int i = 0, n = head.size(); i < n; i++) {
+				T x = head.dequeue();	// rotate the head through itself
+				append(x);
+				head.enqueue(x);
+			}
+			headOnDisk = !head.isEmpty();
+			moveRead(writeSeq, writeOffset);
+		}
+		while(!tail.isEmpty()) {
+			append(tail.dequeue());
+			diskItems++;
+		}
+	}
+
+	/**
+	 * Loads the next batch of records into the empty head.
+	 */
+	private void refill() {
+		skipSealed();
+		setCursor(readSeq, readOffset, 0);
+
+		int n = (int) Math.min(memoryItems, diskItems);
+		for(int i = 0; i < n; i++) {
+			skipSealed();
+			int length = readBuf.getInt(readOffset);
+			head.enqueue(serializer.decode(readBuf, readOffset + 8, length - 8));
+			readOffset += length;
+		}
+		diskItems -= n;
+		headOnDisk = true;
+	}
+
+	/**
+	 * Moves the read position to the next segment if the current one has
+	 * no more records.
+	 */
+	private void skipSealed() {
+		if(readOffset + 8 > readBuf.capacity() || readBuf.getInt(readOffset) == END)
+			moveRead(readSeq + 1, HEADER);
+	}
+
+	private void append(T x) {
+		byte[] bytes = serializer.encode(x);
+		int length = 8 + bytes.length;
+		if(HEADER + length > segmentBytes)
+			throw new IllegalArgumentException("Item of " + bytes.length
+		+ " bytes does not fit a segment of " + segmentBytes + " bytes");
+
+		if(writeOffset + length > writeBuf.capacity()) {
+			if(writeOffset + 4 <= writeBuf.capacity())
+				writeBuf.putInt(writeOffset, END);
+			newWriteSegment();
+		}
+
+		crc.reset();
+		crc.update(bytes);
+		writeBuf.putInt(writeOffset + 4, (int) crc.getValue());
+		writeBuf.put(writeOffset + 8, bytes);
+		writeBuf.putInt(writeOffset, length);
+		writeOffset += length;
+	}
+
+	private void newWriteSegment() {
+		MappedByteBuffer old = writeBuf;
+		writeSeq++;
+		writeBuf = mapSegment(writeSeq, true);
+		writeOffset = HEADER;
+		segmentsCreated++;
+		if(old != null && old != readBuf)
+			unmap(old);
+	}
+
+	/**
+	 * Points the read position at offset in segment seq, unmapping the
+	 * segment it leaves unless the writer still uses it.
+	 */
+	private void moveRead(long seq, int offset) {
+		if(seq != readSeq || readBuf == null) {
+			MappedByteBuffer old = readBuf;
+			readBuf = seq == writeSeq ? writeBuf : mapSegment(seq, false);
+			if(old != null && old != writeBuf && old != readBuf)
+				unmap(old);
+			readSeq = seq;
+		}
+		readOffset = offset;
+	}
+
+	/**
+	 * Records that the first item not yet dequeued is skip records past
+	 * offset in segment seq, and deletes the segments before it.
+	 */
+	private void setCursor(long seq, int offset, int skip) {
+		cursorSeq = seq;
+		cursorOffset = offset;
+		cursorSkip = skip;
+		writeCursor();
+
+		for(; firstSeq < seq; firstSeq++) {
+			if(segmentFile(firstSeq).delete())
+				segmentsDeleted++;
+		}
+	}
+
+	/**
+	 * Writes the cursor fields to the slot not holding the newest copy, so
+	 * that a crash part way through leaves that copy whole.
+	 */
+	private void writeCursor() {
+		cursorGen++;
+		int at = CURSOR_SLOT + (int) (cursorGen & 1) * CURSOR_SLOT_BYTES;
+		long offsetSkip = (long) cursorOffset << 32 | cursorSkip & 0xFFFFFFFFL;
+		cursor.putLong(at + CURSOR_SEQ, cursorSeq);
+		cursor.putLong(at + CURSOR_OFFSET, offsetSkip);	// and CURSOR_SKIP
+		cursor.putLong(at + CURSOR_GEN, cursorGen);
+		cursor.putLong(at + CURSOR_CHECK, cursorCheck(cursorSeq, offsetSkip, cursorGen));
+	}
+
+	/**
+	 * Hashes the fields of a cursor slot with MurmurHash3's finalizer, so
+	 * that a slot holding parts of two writes fails to match. An all-zero
+	 * slot does not match either.
+	 */
+	private static long cursorCheck(long seq, long offsetSkip, long gen) {
+		long h = (seq + 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L
+				^ offsetSkip * 0x94D049BB133111EBL ^ gen;
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return h ^ (h >>> 33);
+	}
+
+	/**
+	 * Finds the records left by an earlier run: from the cursor to the
+	 * first torn or missing record, which becomes the write position.
+	 */
+	private void recover() throws IOException {
+		ArrayList<Long> seqs = new ArrayList<>();
+		String[] names = dir.list();
+		if(names != null) {
+			for(String name : names) {
+				if(name.endsWith(SUFFIX)) {
+					try {
+						seqs.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+					}
+					catch(NumberFormatException e) {
+						// not one of ours
+					}
+				}
+			}
+		}
+		Collections.sort(seqs);
+
+		long seq = 0;
+		int offset = HEADER, skip = 0;
+		if(cursor.getInt(0) == CURSOR_MAGIC) {
+			// the newest slot that is whole; with neither, start over at
+			// the first segment, which repeats items rather than losing any
+			int newest = -1;
+			for(int slot = 0; slot < 2; slot++) {
+				int at = CURSOR_SLOT + slot * CURSOR_SLOT_BYTES;
+				long gen = cursor.getLong(at + CURSOR_GEN);
+				if(cursor.getLong(at + CURSOR_CHECK) != cursorCheck(cursor.getLong(at + CURSOR_SEQ),
+						cursor.getLong(at + CURSOR_OFFSET), gen))
+					continue;
+				if(newest < 0 || gen > cursorGen) {
+					newest = at;
+					cursorGen = gen;
+				}
+			}
+			if(newest >= 0) {
+				seq = cursor.getLong(newest + CURSOR_SEQ);
+				offset = cursor.getInt(newest + CURSOR_OFFSET);
+				skip = cursor.getInt(newest + CURSOR_SKIP);
+			}
+		}
+		else
+			cursor.putInt(0, CURSOR_MAGIC);
+
+		// segments before the cursor were consumed; a cursor before every
+		// segment means they were all deleted and it restarts at the first
+		for(long s : seqs) {
+			if(s < seq && segmentFile(s).delete())
+				segmentsDeleted++;
+		}
+		while(!seqs.isEmpty() && seqs.get(0) < seq)
+			seqs.remove(0);
+		if(!seqs.isEmpty() && seqs.get(0) > seq) {
+			seq = seqs.get(0);
+			offset = HEADER;
+			skip = 0;
+		}
+		if(seqs.isEmpty() || !validHeader(seq)) {
+			for(long s : seqs)
+				segmentFile(s).delete();
+			firstSeq = writeSeq = seq;
+			writeBuf = mapSegment(seq, true);
+			writeOffset = HEADER;
+			segmentsCreated++;
+			moveRead(seq, HEADER);
+			setCursor(seq, HEADER, 0);
+			return;
+		}
+
+		// walk the records, skipping those already dequeued
+		firstSeq = seq;
+		MappedByteBuffer buf = mapSegment(seq, false);
+		long count = 0;
+		long startSeq = -1;
+		int startOffset = HEADER;
+		boolean sealed = false;
+		while(true) {
+			if(offset + 8 > buf.capacity() || buf.getInt(offset) == END) {
+				if(!segmentFile(seq + 1).exists() || !validHeader(seq + 1)) {
+					sealed = true;
+					break;
+				}
+				unmap(buf);
+				seq++;
+				buf = mapSegment(seq, false);
+				offset = HEADER;
+				continue;
+			}
+
+			int length = buf.getInt(offset);
+			if(length < 8 || offset + length > buf.capacity())
+				break;
+			crc.reset();
+			crc.update(buf.slice(offset + 8, length - 8));
+			if((int) crc.getValue() != buf.getInt(offset + 4))
+				break;	// torn record
+
+			if(skip > 0)
+				skip--;
+			else if(count++ == 0) {
+				startSeq = seq;
+				startOffset = offset;
+			}
+			offset += length;
+		}
+
+		// anything past the last intact record is garbage
+		for(long s : seqs) {
+			if(s > seq)
+				segmentFile(s).delete();
+		}
+		writeSeq = seq;
+		writeBuf = buf;
+		writeOffset = offset;
+		if(!sealed)
+			for(int i = offset; i < Math.min(offset + 8, buf.capacity()); i++)
+				buf.put(i, (byte) 0);
+		else
+			newWriteSegment();
+
+		if(count == 0) {
+			startSeq = writeSeq;
+			startOffset = writeOffset;
+		}
+		diskItems = count;
+		moveRead(startSeq, startOffset);
+		setCursor(startSeq, startOffset, 0);
+	}
+
+	private boolean validHeader(long seq) throws IOException {
+		File file = segmentFile(seq);
+		if(file.length() < HEADER)
+			return false;
+		try(DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readInt() == MAGIC && in.readInt() == VERSION;
+		}
+	}
+
+	private File segmentFile(long seq) {
+		return new File(dir, String.format("%016d", seq) + SUFFIX);
+	}
+
+	/**
+	 * Maps segment seq, creating it with a header if asked.
+	 */
+	private MappedByteBuffer mapSegment(long seq, boolean create) {
+		File file = segmentFile(seq);
+		try {
+			MappedByteBuffer buf = map(file, create ? segmentBytes : (int) file.length());
+			if(create) {
+				buf.putInt(0, MAGIC);
+				buf.putInt(4, VERSION);
+			}
+			return buf;
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static MappedByteBuffer map(File file, int bytes) throws IOException {
+		try(FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return ch.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+		}
+	}
+
+	private static final Method INVOKE_CLEANER;
+	private static final Object UNSAFE;
+	static {
+		Method m = null;
+		Object u = null;
+		try {
+			Class<?> c = Class.forName("sun.misc.Unsafe");
+			Field f = c.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			u = f.get(null);
+			m = c.getMethod("invokeCleaner", ByteBuffer.class);
+		}
+		catch(ReflectiveOperationException | RuntimeException e) {
+			// mappings are then released when they are collected
+		}
+		INVOKE_CLEANER = m;
+		UNSAFE = u;
+	}
+
+	/**
+	 * Releases a mapping now rather than when it is collected, so a
+	 * deleted segment's disk space is freed at once. The buffer must not
+	 * be used again.
+	 */
+	private static void unmap(MappedByteBuffer buf) {
+		if(INVOKE_CLEANER == null || buf == null)
+			return;
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buf);
+		}
+		catch(ReflectiveOperationException e) {
+			// left to the collector
+		}
+	}
+}
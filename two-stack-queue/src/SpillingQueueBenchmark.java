@@ -0,0 +1,133 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Measures SpillingQueue throughput while the queue fits in memory and once
+ * its backlog has spilled to disk, next to an in-memory SegmentedArrayQueue.
+ *
+ *   in memory   enqueue one, dequeue one, with memoryItems / 2 in flight,
+ *               so nothing is spilled
+ *   fill        enqueue items in a row; all but 2 * memoryItems spill
+ *   drain       dequeue them all, reading the spilled ones back
+ *   backlog     enqueue one, dequeue one, behind a spilled backlog of
+ *               items / 2
+ *
+ * An operation is one enqueue or one dequeue. Disk MB/sec counts the
+ * records written and read, 16 bytes per Long with the record header. It
+ * also reports the heap in use with the whole backlog queued and the
+ * segment files created and deleted.
+ *
+ * Usage: java SpillingQueueBenchmark [items] [memoryItems] [segment MB] [dir]
+ * e.g.   java SpillingQueueBenchmark 20000000 65536 64 /var/tmp
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+public class SpillingQueueBenchmark {
+
+	private static long sink; // keeps the JIT from discarding dequeues
+
+	public static void main(String[] args) throws IOException {
+
+		int items = args.length > 0 ? Integer.parseInt(args[0]) : 20000000;
+		int memoryItems = args.length > 1 ? Integer.parseInt(args[1]) : SpillingQueue.DEFAULT_MEMORY_ITEMS;
+		int segmentBytes = (args.length > 2 ? Integer.parseInt(args[2]) : 64) << 20;
+		File dir = new File(args.length > 3 ? args[3] : System.getProperty("java.io.tmpdir"),
+				"spilling-queue-bench");
+
+		Long[] values = new Long[1024];
+		for(int i = 0; i < values.length; i++)
+			values[i] = (long) i;
+
+		System.out.println(items + " items, " + memoryItems + " in memory at each end, "
+				+ (segmentBytes >> 20) + " MB segments in " + dir);
+		System.out.printf("%-12s %-20s %14s %14s%n", "regime", "queue", "ops/sec", "disk MB/sec");
+
+		// in memory, twice: the first run warms up the JIT
+		for(int r = 0; r < 2; r++) {
+			SegmentedArrayQueue<Long> plain = new SegmentedArrayQueue<>();
+			long t = interleaved(plain, values, memoryItems / 2, items);
+			if(r == 1)
+				report("in memory", "SegmentedArrayQueue", items, t, false);
+
+			SpillingQueue<Long> q = SpillingQueue.open(clear(dir), Serializer.LONG, memoryItems, segmentBytes);
+			t = interleaved(q, values, memoryItems / 2, items);
+			if(r == 1)
+				report("in memory", "SpillingQueue", items, t, false);
+			q.close();
+		}
+
+		SpillingQueue<Long> q = SpillingQueue.open(clear(dir), Serializer.LONG, memoryItems, segmentBytes);
+		long start = System.nanoTime();
+		for(int i = 0; i < items; i++)
+			q.enqueue(values[i & 1023]);
+		report("fill", "SpillingQueue", items, System.nanoTime() - start, true);
+
+		long heap = usedHeap();
+		long onDisk = q.diskItems(), files = q.segmentFiles();
+
+		start = System.nanoTime();
+		long sum = 0;
+		for(int i = 0; i < items; i++)
+			sum += q.dequeue();
+		report("drain", "SpillingQueue", items, System.nanoTime() - start, true);
+
+		for(int i = 0; i < items / 2; i++)
+			q.enqueue(values[i & 1023]);
+		long t = interleaved(q, values, 0, items);
+		report("backlog", "SpillingQueue", items, t, true);
+		while(!q.isEmpty())
+			sum += q.dequeue();
+
+		System.out.printf("%nwith %d items queued: %d on disk in %d segment files, %.1f MB of heap in use%n",
+				items, onDisk, files, heap / 1e6);
+		System.out.printf("segment files created %d, deleted %d, left %d%n",
+				q.segmentsCreated(), q.segmentsDeleted(), q.segmentFiles());
+		q.close();
+		clear(dir);
+		sink = sum;
+	}
+
+	/**
+	 * Enqueues inFlight items, then alternates enqueue and dequeue for n
+	 * operations in all, and dequeues the inFlight items again.
+	 * @return the nanoseconds taken by the alternating part.
+	 */
+	private static long interleaved(Queue<Long> q, Long[] values, int inFlight, int n) {
+
+		for(int i = 0; i < inFlight; i++)
+			q.enqueue(values[i & 1023]);
+		long sum = 0;
+		long start = System.nanoTime();
+		for(int i = 0; i < n / 2; i++) {
+			q.enqueue(values[i & 1023]);
+			sum += q.dequeue();
+		}
+		long elapsed = System.nanoTime() - start;
+		for(int i = 0; i < inFlight; i++)
+			sum += q.dequeue();
+		sink += sum;
+		return elapsed;
+	}
+
+	private static void report(String regime, String queue, int ops, long nanos, boolean disk) {
+
+		double perSec = ops / (nanos / 1e9);
+		System.out.printf("%-12s %-20s %14.0f %14s%n", regime, queue, perSec,
+				disk ? String.format("%.0f", perSec * 16 / 1e6) : "-");
+	}
+
+	private static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	private static File clear(File dir) {
+		File[] files = dir.listFiles();
+		if(files != null)
+			for(File f : files)
+				f.delete();
+		return dir;
+	}
+}
@@ -0,0 +1,219 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * Checks SpillingQueue against ArrayDeque under random traffic with a tiny
+ * memory budget and tiny segment files, so that items cross between memory
+ * and disk and between segments all the time. It also closes and reopens
+ * the queue, abandons it without closing as a crashed process would,
+ * tears its last record or a cursor update, and checks what each reopened
+ * queue holds.
+ *
+ * Usage: java SpillingQueueTester [ops] [dir]
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+public class SpillingQueueTester {
+
+	public static void main(String[] args) throws IOException {
+
+		int ops = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		File base = new File(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"),
+				"spilling-queue-test");
+
+		File dir = clear(new File(base, "random"));
+		ArrayDeque<Long> model = new ArrayDeque<>();
+		SpillingQueue<Long> q = SpillingQueue.open(dir, Serializer.LONG, 8, 256);
+		Random rnd = new Random(42);
+		long next = 0;
+		int errors = 0, reopens = 0, maxFiles = 0;
+
+		for(int i = 0; i < ops; i++) {
+			boolean growing = (i / 20000) % 2 == 0;
+			if(rnd.nextInt(10) < (growing ? 6 : 4) || model.isEmpty()) {
+				q.enqueue(next);
+				model.add(next++);
+			}
+			else if(!q.dequeue().equals(model.poll()))
+				errors++;
+
+			if(q.size() != model.size())
+				errors++;
+			maxFiles = (int) Math.max(maxFiles, q.segmentFiles());
+			if(rnd.nextInt(5000) == 0) {
+				q.close();
+				q = SpillingQueue.open(dir, Serializer.LONG, 8, 256);
+				reopens++;
+				if(q.size() != model.size())
+					errors++;
+			}
+		}
+		int backlog = model.size();
+		while(!model.isEmpty())
+			if(!q.dequeue().equals(model.poll()))
+				errors++;
+		System.out.printf("random traffic, %d ops, %d reopens: %s; up to %d segment files, "
+				+ "%d after draining %d items (%d created, %d deleted in the last run)%n", ops, reopens,
+				errors == 0 ? "ok" : errors + " mismatches", maxFiles, q.segmentFiles(), backlog,
+				q.segmentsCreated(), q.segmentsDeleted());
+		try {
+			q.dequeue();
+			System.out.println("dequeue on an empty queue: no exception");
+		}
+		catch(IndexOutOfBoundsException e) {
+			System.out.println("dequeue on an empty queue: " + e.getMessage());
+		}
+		q.close();
+		System.out.println("files left in dir: " + Arrays.toString(dir.list()));
+
+		// a crash loses the items held only in memory, and nothing else
+		dir = clear(new File(base, "crash"));
+		q = SpillingQueue.open(dir, Serializer.LONG, 100, 4096);
+		model.clear();
+		next = 0;
+		for(int round = 0; round < 20; round++) {
+			for(int i = 0; i < 1000 + rnd.nextInt(100); i++) {
+				q.enqueue(next);
+				model.add(next++);
+			}
+			for(int i = 0; i < 537; i++) {	// leaves part of a loaded batch in the head
+				q.dequeue();
+				model.poll();
+			}
+		}
+		long held = q.size(), onDisk = q.diskItems();
+		q = SpillingQueue.open(dir, Serializer.LONG, 100, 4096);	// the old one is abandoned
+		System.out.printf("after a crash: %d of %d items recovered (%d were on disk only), %s%n",
+				q.size(), held, onDisk, isPrefix(q, model) ? "a prefix of the queue: ok" : "WRONG items");
+		q.close();
+
+		// a torn last record is dropped, and new items follow the one before it
+		dir = clear(new File(base, "torn"));
+		SpillingQueue<String> s = SpillingQueue.open(dir, Serializer.STRING, 4, 1024);
+		for(int i = 0; i < 100; i++)
+			s.enqueue("item " + i);
+		s.close();
+		tearLastRecord(dir);
+		s = SpillingQueue.open(dir, Serializer.STRING, 4, 1024);
+		long recovered = s.size();
+		s.enqueue("new item");
+		s.close();
+		s = SpillingQueue.open(dir, Serializer.STRING, 4, 1024);
+		String first = s.dequeue(), last = first;
+		boolean inOrder = first.equals("item 0");
+		for(int i = 1; !s.isEmpty(); i++) {
+			last = s.dequeue();
+			inOrder &= last.equals(i < recovered ? "item " + i : "new item");
+		}
+		System.out.printf("torn last record: %d of 100 recovered, then \"%s\" appended: %s%n",
+				recovered, last, inOrder ? "ok" : "WRONG order");
+
+		// a cursor update torn before its checksum leaves the older copy in use
+		dir = clear(new File(base, "torn-cursor"));
+		q = SpillingQueue.open(dir, Serializer.LONG, 100, 4096);
+		model.clear();
+		for(long i = 0; i < 5000; i++) {
+			q.enqueue(i);
+			model.add(i);
+		}
+		for(int i = 0; i < 1234; i++) {
+			q.dequeue();
+			model.poll();
+		}
+		q.close();
+		tearCursor(dir);
+		q = SpillingQueue.open(dir, Serializer.LONG, 100, 4096);
+		long size = q.size();
+		boolean same = size == model.size() && isPrefix(q, model);
+		System.out.printf("torn cursor: %d of %d items recovered: %s%n", size, model.size(),
+				same ? "ok" : "WRONG items");
+		q.close();
+
+		char[] big = new char[2000];
+		try {
+			s.enqueue(new String(big));
+			s.close();
+			System.out.println("item larger than a segment: no exception");
+		}
+		catch(IllegalArgumentException e) {
+			System.out.println("item larger than a segment: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Drains q and checks that its items are the first ones of model.
+	 */
+	private static boolean isPrefix(SpillingQueue<Long> q, ArrayDeque<Long> model) {
+		Iterator<Long> it = model.iterator();
+		while(!q.isEmpty())
+			if(!it.hasNext() || !it.next().equals(q.dequeue()))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Flips a payload byte of the last record on disk, in the newest
+	 * segment file that has any.
+	 */
+	private static void tearLastRecord(File dir) throws IOException {
+		String[] names = dir.list((d, name) -> name.endsWith(".seg"));
+		Arrays.sort(names);
+		for(int n = names.length - 1; n >= 0; n--) {
+			try(RandomAccessFile f = new RandomAccessFile(new File(dir, names[n]), "rw")) {
+				long offset = 8, last = -1;
+				while(offset + 8 <= f.length()) {
+					f.seek(offset);
+					int length = f.readInt();
+					if(length < 8)
+						break;
+					last = offset;
+					offset += length;
+				}
+				if(last < 0)
+					continue;
+				f.seek(last + 8);
+				int b = f.read();
+				f.seek(last + 8);
+				f.write(b ^ 0xFF);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes a newer segment number, the old offset and a newer generation
+	 * to the cursor slot not in use, but not its checksum, as a crash in
+	 * the middle of a cursor update would.
+	 */
+	private static void tearCursor(File dir) throws IOException {
+		try(RandomAccessFile f = new RandomAccessFile(new File(dir, "cursor"), "rw")) {
+			f.seek(8 + 16);
+			long gen0 = f.readLong();
+			f.seek(40 + 16);
+			long gen1 = f.readLong();
+			long newest = gen0 > gen1 ? 8 : 40, other = gen0 > gen1 ? 40 : 8;
+			f.seek(newest);
+			long seq = f.readLong();
+			int offset = f.readInt();
+			f.seek(other);
+			f.writeLong(seq + 1);
+			f.writeInt(offset);
+			f.writeInt(0);
+			f.writeLong(Math.max(gen0, gen1) + 1);
+		}
+	}
+
+	private static File clear(File dir) {
+		File[] files = dir.listFiles();
+		if(files != null)
+			for(File f : files)
+				f.delete();
+		return dir;
+	}
+}
@@ -0,0 +1,195 @@
+/**
+ * @author Jeremy Corren [jdc2189]
+ *
+ * SpscRingBuffer class implements a bounded queue for exactly one producer
+ * thread and one consumer thread, without locks.
+ *
+ * Items live in an array whose capacity is a power of two, so the slot of
+ * the n-th item is n & mask. The producer owns the tail index and the
+ * consumer owns the head index; each only writes its own. An index is
+ * published with a release store (the lazySet of AtomicLong), which makes
+ * the item written before it visible to the other thread without the full
+ * fence of a volatile write.
+ *
+ * Each side also caches the last value it read of the other side's index,
+ * and rereads it only when the cached value says the queue is full (for the
+ * producer) or empty (for the consumer). The two indices are kept in
+ * separate objects padded to more than a cache line, so the producer and
+ * consumer do not invalidate each other's line on every operation.
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+public class SpscRingBuffer<T> implements Queue<T> {
+
+	private final T[] buffer;
+	private final int mask;		// capacity - 1
+	private final PaddedIndex tail = new PaddedIndex();	// next slot to fill; cached holds the head
+	private final PaddedIndex head = new PaddedIndex();	// next slot to take; cached holds the tail
+
+	/**
+	 * Create a ring buffer holding at least capacity items, rounded up to
+	 * a power of two.
+	 */
+	@SuppressWarnings("unchecked")
+	public SpscRingBuffer(int capacity) {
+		if(capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Capacity must be in [1, 2^30]: "
+		+ capacity);
+
+		int size = 1;
+		while(size < capacity)
+			size <<= 1;
+		buffer = (T[]) new Object[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Insert x at the back of the queue if there is room. Producer only.
+	 *
+	 * @return false if the queue is full.
+	 *
+	 * Runtime: O(1)
+	 */
+	public boolean offer(T x) {
+		if(x == null)
+			throw new NullPointerException("Null items are not supported");
+
+		long t = tail.value;	// only this thread writes it
+		if(t - tail.cached > mask) {
+			tail.cached = (long) Index.VALUE.getAcquire(head);
+			if(t - tail.cached > mask)
+				return false;
+		}
+
+		buffer[(int) t & mask] = x;
+		Index.VALUE.setRelease(tail, t + 1);	// publishes the item
+		return true;
+	}
+
+	/**
+	 * Remove and return the item at the front of the queue. Consumer only.
+	 *
+	 * @return the item, or null if the queue is empty.
+	 *
+	 * Runtime: O(1)
+	 */
+	public T poll() {
+		long h = head.value;	// only this thread writes it
+		if(h >= head.cached) {
+			head.cached = (long) Index.VALUE.getAcquire(tail);
+			if(h >= head.cached)
+				return null;
+		}
+
+		int slot = (int) h & mask;
+		T x = buffer[slot];
+		buffer[slot] = null;	// let the item be collected
+		Index.VALUE.setRelease(head, h + 1);	// frees the slot
+		return x;
+	}
+
+	/**
+	 * Return the item at the front of the queue without removing it, or
+	 * null if the queue is empty. Consumer only.
+	 */
+	public T peek() {
+		long h = head.value;
+		if(h >= head.cached) {
+			head.cached = (long) Index.VALUE.getAcquire(tail);
+			if(h >= head.cached)
+				return null;
+		}
+		return buffer[(int) h & mask];
+	}
+
+	/**
+	 * Insert x at the back of the queue, waiting for room if it is full.
+	 * Producer only.
+	 */
+	public void enqueue(T x) {
+		for(int spins = 0; !offer(x); spins++)
+			backOff(spins);
+	}
+
+	/**
+	 * Remove and return the item at the front of the queue. Consumer only.
+	 *
+	 * @throws IndexOutOfBoundsException if the queue is empty.
+	 */
+	public T dequeue() {
+		T x = poll();
+		if(x == null)
+			throw new IndexOutOfBoundsException("Attempted to dequeue an empty "
+		+ "queue");
+		return x;
+	}
+
+	/**
+	 * Return the number of items in the queue. Exact only when neither
+	 * side is running.
+	 */
+	public int size() {
+		long h = (long) Index.VALUE.getAcquire(head);
+		long t = (long) Index.VALUE.getAcquire(tail);
+		return (int) Math.max(0, Math.min(t - h, buffer.length));
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int capacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * Wait a little before retrying a full or empty queue: spin at first,
+	 * then give the processor away, which the other side needs when both
+	 * share a core.
+	 */
+	static void backOff(int spins) {
+		if(spins < 64)
+			Thread.onSpinWait();
+		else
+			Thread.yield();
+	}
+
+	/**
+	 * Cache-line padding placed before an index. Superclass fields are
+	 * laid out first, so the padding cannot be reordered around it.
+	 */
+	static class PadBefore {
+		long p01, p02, p03, p04, p05, p06, p07, p08;
+	}
+
+	/**
+	 * An index together with its owner's cached copy of the other index.
+	 * The owner reads value plainly; other threads read it through VALUE
+	 * with acquire semantics, pairing with the owner's release stores.
+	 */
+	static class Index extends PadBefore {
+		long value;
+		long cached;
+
+		static final VarHandle VALUE;
+		static final VarHandle CACHED;
+		static {
+			try {
+				VALUE = MethodHandles.lookup().findVarHandle(Index.class, "value", long.class);
+				CACHED = MethodHandles.lookup().findVarHandle(Index.class, "cached", long.class);
+			}
+			catch(ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+	}
+
+	/**
+	 * Cache-line padding placed after an index.
+	 */
+	static class PaddedIndex extends Index {
+		long p11, p12, p13, p14, p15, p16, p17, p18;
+	}
+}
@@ -1,4 +1,7 @@
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 public class StackQueueTester {
 	
 	public static void main(String[] args) {
@@ -15,6 +18,26 @@ public class StackQueueTester {
 		System.out.println("\nPrinting dequeues: ");
 		
 		for(int i = 1; i < 16; i++)
-			System.out.print(mailbox.dequeue() + " ");		
+			System.out.print(mailbox.dequeue() + " ");
+		
+		// new mail arriving while older mail is still in the outbox
+		System.out.println("\n\nPrinting interleaved dequeues: ");
+		for(int i = 1; i < 4; i++)
+			mailbox.enqueue(i);
+		for(int i = 4; i < 16; i++) {
+			mailbox.enqueue(i);
+			System.out.print(mailbox.dequeue() + " ");
+		}
+		System.out.println("\npeek: " + mailbox.peek() + ", size: " + mailbox.size());
+		
+		System.out.println("\nPrinting batch drains of 4: ");
+		mailbox.enqueueAll(new Integer[] { 16, 17, 18 });
+		mailbox.enqueueAll(Arrays.asList(19, 20));
+		ArrayList<Integer> mailbag = new ArrayList<>();
+		while(mailbox.drainTo(mailbag, 4) > 0) {
+			System.out.print(mailbag + " ");
+			mailbag.clear();
+		}
+		System.out.println();
 	}
-}
\ No newline at end of file
+}
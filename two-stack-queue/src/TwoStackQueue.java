@@ -9,8 +9,16 @@
  * from the inbox and pushes them to the outbox, which represents the front of 
  * the queue. The dequeue() method pops items from the outbox and into the 
  * mailbag in the order they came in. 
+ * 
+ * Items are only moved when the outbox is empty, so the outbox always
+ * holds the oldest items and every item is moved at most once: dequeue is
+ * amortized O(1). The batch methods enqueueAll and drainTo move whole runs
+ * of the backing arrays with System.arraycopy.
  */
 
+import java.util.Arrays;
+import java.util.Collection;
+
 public class TwoStackQueue<T> implements Queue<T> {
 	
 	private ArrayStack<T> inbox; // inbox stack
@@ -29,6 +37,94 @@ public class TwoStackQueue<T> implements Queue<T> {
 	public void enqueue(T x) {
 		inbox.push(x);
 	}
+	
+	/**
+	 * Enqueue every item of items, in order.
+	 * 
+	 * Runtime: O(k) for k items, as a single array copy.
+	 */
+	public void enqueueAll(T[] items) {
+		inbox.pushAll(items, 0, items.length);
+	}
+	
+	/**
+	 * Enqueue every item of items, in iteration order. A Collection is
+	 * copied as one array.
+	 * 
+	 * Runtime: O(k) for k items
+	 */
+	@SuppressWarnings("unchecked")
+	public void enqueueAll(Iterable<? extends T> items) {
+		if(items instanceof Collection) {
+			Object[] array = ((Collection<? extends T>) items).toArray();
+			inbox.pushAll((T[]) array, 0, array.length);
+		}
+		else
+			for(T x : items)
+				inbox.push(x);
+	}
+	
+	/**
+	 * Return the item at the front of the queue without removing it.
+	 * 
+	 * Runtime: amortized O(1), as for dequeue()
+	 */
+	public T peek() {
+		if(outboxSize() == 0)
+			moveToOutbox();
+		
+		if(outboxSize() == 0)
+			throw new IndexOutOfBoundsException("Attempted to peek an empty " 
+		+ "queue");
+		
+		return outbox.theArray[outbox.topOfStack];
+	}
+	
+	/**
+	 * Return the number of items in the queue.
+	 */
+	public int size() {
+		return inboxSize() + outboxSize();
+	}
+	
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	
+	/**
+	 * Dequeue up to max items from the front of the queue into target,
+	 * in FIFO order. If the whole inbox is drained, it is read from its
+	 * bottom, which is already in FIFO order, and emptied without being
+	 * moved to the outbox.
+	 * 
+	 * @return the number of items added to target.
+	 * 
+	 * Runtime: amortized O(k) for k items drained
+	 */
+	public int drainTo(Collection<? super T> target, int max) {
+		int drained = 0;
+		
+		while(drained < max) {
+			if(outboxSize() == 0) {
+				int n = inboxSize();
+				if(n == 0)
+					break;
+				if(max - drained >= n) {
+					for(int i = 0; i < n; i++)
+						target.add(inbox.theArray[i]);
+					inbox.clear();
+					releaseArrays();
+					return drained + n;
+				}
+				moveToOutbox();
+			}
+			target.add(outbox.pop());
+			drained++;
+		}
+		if(size() == 0)
+			releaseArrays();
+		return drained;
+	}
 
 	public int inboxSize() { 
 		return inbox.topOfStack+1; 
@@ -49,16 +145,36 @@ public class TwoStackQueue<T> implements Queue<T> {
 	}
 	
 	/**
-	 * Move items from top of inbox stack to the outbox stack.
+	 * Move the items of the inbox stack to the empty outbox stack, so
+	 * that the oldest item is on top. Since the outbox is empty, the
+	 * inbox array is reversed in place and the two stacks swap arrays
+	 * instead of popping and pushing every item.
 	 * 	
-	 * Runtime: O(N), since while loop is O(N) given N pushes to
-	 * inbox stack, and pop() and push() are each O(1)
+	 * Runtime: O(N) for N items in the inbox, each of which is moved
+	 * only once
+	 * 
+	 * @throws IllegalStateException if the outbox is not empty, since
+	 * the inbox items would then land on top of older items.
 	 */
 	public void moveToOutbox() {
-		while(inboxSize() != 0) {
-			T item = inbox.pop();
-			outbox.push(item);
-		}
+		if(outboxSize() != 0)
+			throw new IllegalStateException("Outbox still holds " 
+		+ outboxSize() + " older items");
+		
+		inbox.reverse();
+		ArrayStack<T> empty = outbox;
+		outbox = inbox;
+		inbox = empty;
+	}
+	
+	/**
+	 * Shrink both stacks back to a small array once the queue is empty.
+	 * Shrinking while items remain would be undone by the next
+	 * moveToOutbox, which hands the emptied outbox array to the inbox.
+	 */
+	private void releaseArrays() {
+		inbox.trim();
+		outbox.trim();
 	}
 	
 	/**
@@ -67,16 +183,20 @@ public class TwoStackQueue<T> implements Queue<T> {
 	 * @return item from outbox stack in the order they were pushed
 	 * into the inbox stack.
 	 * 
-	 * Runtime: O(N), since moveToOutbox is O(N) and pop() is O(1)
+	 * Runtime: amortized O(1), since the outbox is only refilled when
+	 * it is empty and each item is moved to it once
 	 */
 	public T dequeue() {
-		moveToOutbox();
+		if(outboxSize() == 0)
+			moveToOutbox();
 				
 		if(outboxSize() == 0)
 			throw new IndexOutOfBoundsException("Attempted to dequeue an empty " 
 		+ "stack");
 		
 		T result = outbox.pop();
+		if(outboxSize() == 0 && inboxSize() == 0)
+			releaseArrays();
 		return result;
 	}
 	
@@ -88,6 +208,7 @@ public class TwoStackQueue<T> implements Queue<T> {
 	private static class ArrayStack<T> {
 		
 		private static int default_size = 10;
+		private static int retain_limit = 1024; // most slots kept while empty
 	    int topOfStack; // tracks end of array position
 	    private T[] theArray;
 	    
@@ -101,10 +222,48 @@ public class TwoStackQueue<T> implements Queue<T> {
 	    private void ensureCapacity(int size) {
 	        if (size > theArray.length) {
 	            T[] old = theArray;
-	            size = size * 2;
-	            theArray = (T[]) new Object[old.length * 2];
-	            for (int i = 0; i < old.length; i++) 
-	                theArray[i] = old[i];
+	            theArray = (T[]) new Object[Math.max(old.length * 2, size)];
+	            System.arraycopy(old, 0, theArray, 0, old.length);
+	        }
+	    }
+	    
+	    /**
+	     * Push items[from..to) in order, as one array copy.
+	     */
+	    public void pushAll(T[] items, int from, int to) {
+	        int n = to - from;
+	        ensureCapacity(topOfStack + 1 + n);
+	        System.arraycopy(items, from, theArray, topOfStack + 1, n);
+	        topOfStack += n;
+	    }
+	    
+	    /**
+	     * Drop every item, clearing the slots so they can be collected.
+	     */
+	    public void clear() {
+	        Arrays.fill(theArray, 0, topOfStack + 1, null);
+	        topOfStack = -1;
+	    }
+	    
+	    /**
+	     * If the stack is empty and its array has grown past
+	     * retain_limit slots, go back to a default-sized array, so an idle
+	     * queue does not hold the memory of its peak size.
+	     */
+	    @SuppressWarnings("unchecked")
+	    public void trim() {
+	        if (topOfStack == -1 && theArray.length > retain_limit)
+	            theArray = (T[]) new Object[default_size];
+	    }
+	    
+	    /**
+	     * Reverse the items in place, so the bottom item is on top.
+	     */
+	    public void reverse() {
+	        for (int i = 0, j = topOfStack; i < j; i++, j--) {
+	            T tmp = theArray[i];
+	            theArray[i] = theArray[j];
+	            theArray[j] = tmp;
 	        }
 	    }
 	    
@@ -119,6 +278,7 @@ public class TwoStackQueue<T> implements Queue<T> {
 	            throw new IndexOutOfBoundsException("Attempted to pop from "
 	            		+ "empty stack!");
 	        T result = theArray[topOfStack];
+	        theArray[topOfStack] = null; // let the item be collected
 	        topOfStack--;
 	        return result;
 	    }